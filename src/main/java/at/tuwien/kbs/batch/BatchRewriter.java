@@ -0,0 +1,264 @@
+package at.tuwien.kbs.batch;
+
+import at.tuwien.kbs.logic.Rewriter;
+import at.tuwien.kbs.logic.RewritingBudget;
+import at.tuwien.kbs.logic.RewritingResult;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.translation.Translator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Rewrites many query files with one ontology, in parallel.
+ * For every query file {@code name.query}, the translated query is written to {@code name.cypher} in the output
+ * directory, and {@code summary.tsv} lists the number of rewritings and the time of each step for every query, as
+ * well as the limit of the budget that stopped an incomplete rewriting.
+ * A query that cannot be parsed or rewritten is reported in the summary, it does not stop the batch.
+ */
+public class BatchRewriter {
+
+    /**
+     * The name of the summary file in the output directory.
+     */
+    public static final String SUMMARY = "summary.tsv";
+
+    private final Ontology ontology;
+
+    private final Supplier<Rewriter> rewriters;
+
+    private final Translator translator;
+
+    private final String extension;
+
+    private final int workers;
+
+    private final RewritingBudget budget;
+
+    /**
+     * Initialize a new batch rewriter.
+     *
+     * @param ontology The ontology.
+     * @param rewriters Creates a rewriter for each query, since rewriters keep state while rewriting.
+     * @param translator The translator, it must be thread-safe.
+     * @param extension The extension of the files of the translated queries, e.g. "cypher".
+     * @param workers The number of queries that are rewritten at the same time.
+     * @param budget The limits of the rewriting of every query.
+     */
+    public BatchRewriter(Ontology ontology, Supplier<Rewriter> rewriters, Translator translator, String extension,
+                         int workers, RewritingBudget budget) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be positive, got " + workers);
+        }
+        this.ontology = ontology;
+        this.rewriters = rewriters;
+        this.translator = translator;
+        this.extension = extension;
+        this.workers = workers;
+        this.budget = budget;
+    }
+
+    /**
+     * Get the query files of a batch.
+     *
+     * @param input Either a directory, whose files ending in .query are taken in the order of their names, or a
+     *              manifest that lists one query file per line, relative to the manifest. Empty lines and lines
+     *              starting with # are skipped.
+     * @return The query files.
+     * @throws IOException If the directory or manifest cannot be read.
+     */
+    public static List<Path> queryFiles(Path input) throws IOException {
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> files = Files.list(input)) {
+                return files.filter(f -> f.getFileName().toString().endsWith(".query"))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+        Path base = input.toAbsolutePath().getParent();
+        return Files.readAllLines(input).stream()
+                .map(String::trim)
+                .filter(l -> !l.isEmpty() && !l.startsWith("#"))
+                .map(base::resolve)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Rewrite the queries and write the translated queries and the summary to the output directory.
+     *
+     * @param queryFiles The query files, their names without extension must be distinct.
+     * @param output The output directory, it is created if it does not exist.
+     * @return The results, in the order of the query files.
+     * @throws IOException If the output cannot be written.
+     */
+    public List<Result> run(List<Path> queryFiles, Path output) throws IOException {
+        Set<String> names = new HashSet<>();
+        for (Path file : queryFiles) {
+            if (!names.add(name(file))) {
+                throw new IllegalArgumentException("Several query files are named " + name(file));
+            }
+        }
+        Files.createDirectories(output);
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.workers);
+        List<Result> results = new ArrayList<>();
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Path file : queryFiles) {
+                futures.add(executor.submit(() -> rewrite(file, output)));
+            }
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The batch was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add("query\trewritings\tparse_ms\trewrite_ms\ttranslate_ms\tincomplete\terror");
+        results.forEach(r -> lines.add(r.toString()));
+        Files.write(output.resolve(SUMMARY), lines);
+        return results;
+    }
+
+    /**
+     * Rewrite a single query file.
+     */
+    private Result rewrite(Path file, Path output) {
+        String name = name(file);
+        String queryString;
+        try {
+            queryString = Files.readString(file);
+        } catch (IOException e) {
+            return new Result(name, 0, 0, 0, 0, null, e.toString());
+        }
+        long start = System.nanoTime();
+        long parsed = start;
+        try {
+            Query query = new QueryParserImpl(this.ontology, true).parse(queryString);
+            parsed = System.nanoTime();
+            RewritingResult result = this.rewriters.get().rewrite(query, this.ontology, this.budget);
+            long rewritten = System.nanoTime();
+            String translatedQuery = this.translator.translate(query.getHead(), result.getQueries());
+            long translated = System.nanoTime();
+            Files.writeString(output.resolve(name + "." + this.extension), translatedQuery);
+            return new Result(name, result.getQueries().size(), parsed - start, rewritten - parsed,
+                    translated - rewritten, result.getExceeded(), null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            // unknown names in the query end up here;
+            // the time until the failure is counted for the step that failed
+            long failed = System.nanoTime();
+            return parsed == start ?
+                    new Result(name, 0, failed - start, 0, 0, null, e.toString()) :
+                    new Result(name, 0, parsed - start, failed - parsed, 0, null, e.toString());
+        }
+    }
+
+    private static String name(Path file) {
+        return file.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+    }
+
+    /**
+     * The outcome of rewriting one query of a batch.
+     */
+    public static final class Result {
+
+        private final String name;
+
+        private final int rewritings;
+
+        private final long parseNanos;
+
+        private final long rewriteNanos;
+
+        private final long translateNanos;
+
+        private final RewritingBudget.Limit exceeded;
+
+        private final String error;
+
+        private Result(String name, int rewritings, long parseNanos, long rewriteNanos, long translateNanos,
+                       RewritingBudget.Limit exceeded, String error) {
+            this.name = name;
+            this.rewritings = rewritings;
+            this.parseNanos = parseNanos;
+            this.rewriteNanos = rewriteNanos;
+            this.translateNanos = translateNanos;
+            this.exceeded = exceeded;
+            this.error = error;
+        }
+
+        /**
+         * Get the name of the query file without extension.
+         * @return The name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the number of rewritten queries.
+         * @return The number of rewritten queries, 0 if the query failed.
+         */
+        public int getRewritings() {
+            return rewritings;
+        }
+
+        /**
+         * Get the time of parsing, rewriting and translating the query.
+         * @return The time in nanoseconds.
+         */
+        public long getTotalNanos() {
+            return parseNanos + rewriteNanos + translateNanos;
+        }
+
+        /**
+         * Get the limit of the budget that stopped the rewriting.
+         * @return The limit, or null if the rewriting is complete or failed.
+         */
+        public RewritingBudget.Limit getExceeded() {
+            return exceeded;
+        }
+
+        /**
+         * Get the reason why the query failed.
+         * @return The error, or null if the query was rewritten.
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * Write the result as a line of the summary.
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s\t%d\t%.3f\t%.3f\t%.3f\t%s\t%s", this.name, this.rewritings,
+                    this.parseNanos / 1e6, this.rewriteNanos / 1e6, this.translateNanos / 1e6,
+                    this.exceeded != null ? this.exceeded : "",
+                    this.error != null ? this.error.replaceAll("\\s+", " ") : "");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package at.tuwien.kbs.cache;
+
+import at.tuwien.kbs.structure.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The result of rewriting and translating a query, as it is stored in a {@link RewritingCache}.
+ * The rewritten queries are kept in their string format, since they only refer to the vocabulary of the run that
+ * created them.
+ */
+public final class CachedRewriting {
+
+    private final List<String> rewritings;
+
+    private final String translation;
+
+    /**
+     * Initialize a new cache entry.
+     * @param rewritings The rewritten queries in string format, in the order they are printed.
+     * @param translation The translated query.
+     */
+    public CachedRewriting(List<String> rewritings, String translation) {
+        this.rewritings = Collections.unmodifiableList(new ArrayList<>(rewritings));
+        this.translation = Objects.requireNonNull(translation);
+    }
+
+    /**
+     * Create a cache entry from the rewritten queries.
+     * @param queries The rewritten queries.
+     * @param translation The translated query.
+     * @return The cache entry.
+     */
+    public static CachedRewriting of(Collection<Query> queries, String translation) {
+        List<String> rewritings = new ArrayList<>();
+        queries.forEach(q -> rewritings.add(q.toString()));
+        return new CachedRewriting(rewritings, translation);
+    }
+
+    /**
+     * Get the rewritten queries.
+     * @return The rewritten queries in string format.
+     */
+    public List<String> getRewritings() {
+        return rewritings;
+    }
+
+    /**
+     * Get the translated query.
+     * @return The query string that can be evaluated over the database.
+     */
+    public String getTranslation() {
+        return translation;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof CachedRewriting)) {
+            return false;
+        }
+        CachedRewriting r = (CachedRewriting) obj;
+        return this.rewritings.equals(r.rewritings) && this.translation.equals(r.translation);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.rewritings.hashCode() + this.translation.hashCode();
+    }
+}
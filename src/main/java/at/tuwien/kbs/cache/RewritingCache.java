@@ -0,0 +1,39 @@
+package at.tuwien.kbs.cache;
+
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.query.Query;
+
+/**
+ * An interface that describes a cache of rewritten and translated queries.
+ * Entries are identified by the fingerprint of the ontology, the canonical form of the input query and the
+ * configuration of the rewriting (e.g. the translator and whether the result is minimized), such that queries that
+ * only differ in the names of their non-head variables share an entry.
+ */
+public interface RewritingCache {
+
+    /**
+     * Compute the key of a query.
+     *
+     * @param ontology The ontology the query is rewritten with.
+     * @param query The parsed input query, before it is rewritten.
+     * @param configuration A description of all other settings that influence the result.
+     * @return The key of the query.
+     */
+    public String key(Ontology ontology, Query query, String configuration);
+
+    /**
+     * Look up a rewriting.
+     *
+     * @param key The key, see {@link #key(Ontology, Query, String)}.
+     * @return The cached rewriting, or null if there is none.
+     */
+    public CachedRewriting get(String key);
+
+    /**
+     * Store a rewriting, replacing the previous rewriting with the same key.
+     *
+     * @param key The key, see {@link #key(Ontology, Query, String)}.
+     * @param rewriting The rewriting.
+     */
+    public void put(String key, CachedRewriting rewriting);
+}
@@ -0,0 +1,169 @@
+package at.tuwien.kbs.cache.impl;
+
+import at.tuwien.kbs.cache.CachedRewriting;
+import at.tuwien.kbs.cache.RewritingCache;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.query.Query;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A rewriting cache with two tiers: a bounded in-memory tier that evicts the least recently used entries, and an
+ * optional directory on disk that keeps the entries across runs.
+ * An entry that is only found on disk is loaded into the memory tier.
+ * <p>
+ * Every entry is stored in its own file, named by the key: the first line holds the number n of rewritten queries,
+ * the next n lines the queries and the rest of the file the translation. Files are written to a temporary file
+ * first and then moved into place, such that concurrent readers never see a partial entry.
+ */
+public class RewritingCacheImpl implements RewritingCache {
+
+    /**
+     * The default number of entries of the memory tier.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final String SUFFIX = ".rewriting";
+
+    private final Map<String, CachedRewriting> memory;
+
+    private final Path directory;
+
+    /**
+     * Initialize a cache that only keeps entries in memory.
+     */
+    public RewritingCacheImpl() {
+        this(DEFAULT_CAPACITY, null);
+    }
+
+    /**
+     * Initialize a new cache.
+     * @param capacity The maximal number of entries in memory.
+     * @param directory The directory of the disk tier, it is created if it does not exist, or null to only keep
+     *                  entries in memory.
+     */
+    public RewritingCacheImpl(int capacity, Path directory) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedRewriting> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.directory = directory;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public String key(Ontology ontology, Query query, String configuration) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        String content = ontology.getFingerprint() + '\n' + configuration + '\n' + query.getNamedCanonicalForm();
+        return String.format("%064x", new BigInteger(1, digest.digest(content.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Override
+    public CachedRewriting get(String key) {
+        synchronized (this.memory) {
+            CachedRewriting rewriting = this.memory.get(key);
+            if (rewriting != null) {
+                return rewriting;
+            }
+        }
+        CachedRewriting rewriting = read(key);
+        if (rewriting != null) {
+            synchronized (this.memory) {
+                this.memory.put(key, rewriting);
+            }
+        }
+        return rewriting;
+    }
+
+    @Override
+    public void put(String key, CachedRewriting rewriting) {
+        synchronized (this.memory) {
+            this.memory.put(key, rewriting);
+        }
+        write(key, rewriting);
+    }
+
+    /**
+     * Read an entry from the disk tier.
+     * @return The entry, or null if there is no disk tier, no file for the key or the file cannot be read.
+     */
+    private CachedRewriting read(String key) {
+        if (this.directory == null) {
+            return null;
+        }
+        Path file = this.directory.resolve(key + SUFFIX);
+        String content;
+        try {
+            content = Files.readString(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // a file that is not in the expected format is treated as missing, it is replaced by the next put
+        try {
+            int end = content.indexOf('\n');
+            int n = Integer.parseInt(content.substring(0, end));
+            List<String> rewritings = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int start = end + 1;
+                end = content.indexOf('\n', start);
+                rewritings.add(content.substring(start, end));
+            }
+            return new CachedRewriting(rewritings, content.substring(end + 1));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write an entry to the disk tier, if there is one.
+     */
+    private void write(String key, CachedRewriting rewriting) {
+        if (this.directory == null) {
+            return;
+        }
+        StringBuilder content = new StringBuilder();
+        content.append(rewriting.getRewritings().size()).append('\n');
+        rewriting.getRewritings().forEach(q -> content.append(q).append('\n'));
+        content.append(rewriting.getTranslation());
+        try {
+            Path tmp = Files.createTempFile(this.directory, key, ".tmp");
+            try {
+                Files.writeString(tmp, content);
+                Files.move(tmp, this.directory.resolve(key + SUFFIX),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,40 +1,60 @@
 package at.tuwien.kbs.cli;
 
+import at.tuwien.kbs.batch.BatchRewriter;
+import at.tuwien.kbs.cache.CachedRewriting;
+import at.tuwien.kbs.cache.RewritingCache;
+import at.tuwien.kbs.cache.impl.RewritingCacheImpl;
+import at.tuwien.kbs.evaluation.PropertyGraph;
+import at.tuwien.kbs.evaluation.impl.EvaluatorImpl;
 import at.tuwien.kbs.logic.Rewriter;
+import at.tuwien.kbs.logic.RewritingBudget;
+import at.tuwien.kbs.logic.RewritingResult;
+import at.tuwien.kbs.logic.Containment;
+import at.tuwien.kbs.logic.impl.ContainmentImpl;
+import at.tuwien.kbs.logic.impl.JfrRewritingListener;
+import at.tuwien.kbs.logic.impl.ParallelRewriterImpl;
 import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.logic.impl.RewritingMetrics;
+import at.tuwien.kbs.server.RewritingServer;
 import at.tuwien.kbs.structure.ontology.Ontology;
 import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
 import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
 import at.tuwien.kbs.structure.parser.QueryParser;
 import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
 import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.translation.TranslationWriter;
 import at.tuwien.kbs.translation.Translator;
 import at.tuwien.kbs.translation.impl.CypherTranslator;
+import at.tuwien.kbs.translation.impl.FactorisedCypherTranslator;
+import at.tuwien.kbs.translation.impl.SqlTranslator;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.nio.file.Files;
+import java.util.function.Supplier;
 
 import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
 import net.sourceforge.argparse4j.inf.Namespace;
 
 
-/**
- * TODOS:
- *
- *   - add ability to output queries in one (multiple?) file(s)
- *
- */
-
 public class Cli {
     public static void main(String[] args) throws IOException {
         Ontology ontology;
-        Translator translator = new CypherTranslator();
-        Rewriter rewriter = new RewriterImpl();
+        Translator translator;
 //        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
 
 
@@ -42,9 +62,69 @@ public class Cli {
                 .defaultHelp(true)
                 .description("Ontology-Mediated Query Answering for Property Graphs.");
         ArgParser.addArgument("-o", "--ontology")
-                .help("Provide the ontology to be used.");
+                .nargs("+")
+                .help("Provide the ontology to be used, a server can load several ontologies.");
         ArgParser.addArgument("-q", "--query")
                 .help("The query to be rewritten into CYPHER.");
+        ArgParser.addArgument("-m", "--minimize")
+                .action(Arguments.storeTrue())
+                .help("Remove rewritten queries that are contained in another rewritten query.");
+        ArgParser.addArgument("-t", "--threads")
+                .type(Integer.class)
+                .setDefault(1)
+                .help("The number of threads used for the rewriting.");
+        ArgParser.addArgument("-d", "--deterministic")
+                .action(Arguments.storeTrue())
+                .help("Make the output independent of the scheduling of the threads and the translated query the same " +
+                        "string for every run, such that Neo4j can reuse the plan of a repeated query.");
+        ArgParser.addArgument("-f", "--factorise")
+                .action(Arguments.storeTrue())
+                .help("Match the atoms that several rewritten queries have in common once and the remaining atoms " +
+                        "in CALL subqueries (Neo4j 4.1 or later), instead of a union of one match per query. With " +
+                        "--sql, define every distinct atom once as a common table expression.");
+        ArgParser.addArgument("--sql")
+                .action(Arguments.storeTrue())
+                .help("Translate into SQL over the tables nodes(id), labels(node, label) and " +
+                        "edges(source, target, type), e.g. for PostgreSQL or DuckDB, instead of CYPHER.");
+        ArgParser.addArgument("-c", "--cache-dir")
+                .help("A directory to keep the rewritten queries in, such that rewriting the same query with the " +
+                        "same ontology again is only a lookup.");
+        ArgParser.addArgument("-s", "--serve")
+                .type(Integer.class)
+                .help("Keep the ontologies loaded and rewrite the queries posted to http://localhost:<port>/rewrite.");
+        ArgParser.addArgument("-w", "--workers")
+                .type(Integer.class)
+                .setDefault(Runtime.getRuntime().availableProcessors())
+                .help("The number of server requests or batch queries that are handled at the same time.");
+        ArgParser.addArgument("--max-queries")
+                .type(Integer.class)
+                .help("Stop the rewriting once it has found this many queries.");
+        ArgParser.addArgument("--max-rounds")
+                .type(Integer.class)
+                .help("Stop the rewriting after this many rounds of applying the rules.");
+        ArgParser.addArgument("--timeout")
+                .type(Double.class)
+                .help("Stop the rewriting after this many seconds.");
+        ArgParser.addArgument("--heap-watermark")
+                .type(Double.class)
+                .help("Stop the rewriting once this share (between 0 and 1) of the maximal heap is in use.");
+        ArgParser.addArgument("--metrics")
+                .help("Write the number of queries and the time of each rule and round of the rewriting as JSON to " +
+                        "the given file, - for the standard output.");
+        ArgParser.addArgument("--stream")
+                .action(Arguments.storeTrue())
+                .help("Write the translated query while the rewriting goes on, instead of once it is finished. The " +
+                        "rewritten queries are neither minimized nor cached.");
+        ArgParser.addArgument("-g", "--graph")
+                .nargs("+")
+                .help("A JSON file, or a nodes and a relationships CSV file in the format of the Neo4j import tool, " +
+                        "to evaluate the rewritten queries over. The answers are written after the translated query.");
+        ArgParser.addArgument("-b", "--batch")
+                .help("A directory of .query files or a manifest that lists query files, one per line, which are " +
+                        "all rewritten with the ontology.");
+        ArgParser.addArgument("--output-dir")
+                .setDefault("rewritings")
+                .help("The directory the translated queries of a batch and the summary are written to.");
         Namespace ns = null;
         try {
             ns = ArgParser.parseArgs(args);
@@ -53,25 +133,104 @@ public class Cli {
             System.exit(1);
         }
 
-        if (ns.getString("ontology") == null   || ns.getString("query") == null) {
+        boolean serve = ns.getInt("serve") != null;
+        boolean batch = ns.getString("batch") != null;
+        List<String> ontology_paths = ns.getList("ontology");
+        if (ontology_paths == null || !serve &&
+                ((ns.getString("query") == null) == !batch || ontology_paths.size() > 1)) {
 //            System.out.println("Need to provide both an OWL2 ontology and a query!");
             System.out.println(ArgParser.formatUsage());
             System.exit(1);
         }
+        if (ns.getBoolean("stream") && ns.getBoolean("minimize")) {
+            System.out.println("Streamed rewritings cannot be minimized, since a query is only known to be " +
+                    "subsumed once all rewritings are found.");
+            System.exit(1);
+        }
+        List<String> graph_paths = ns.getList("graph");
+        if (graph_paths != null && (ns.getBoolean("stream") || graph_paths.size() > 2)) {
+            System.out.println("The graph is either one JSON file or two CSV files, and streamed rewritings are not " +
+                    "evaluated.");
+            System.exit(1);
+        }
+
 
+        Containment containment = ns.getBoolean("minimize") ? new ContainmentImpl() : null;
+        int threads = ns.getInt("threads");
+        boolean deterministic = ns.getBoolean("deterministic");
+        if (ns.getBoolean("sql")) {
+            translator = new SqlTranslator(ns.getBoolean("factorise"));
+        } else {
+            translator = ns.getBoolean("factorise") ?
+                    new FactorisedCypherTranslator(deterministic) : new CypherTranslator(deterministic);
+        }
+        Supplier<Rewriter> rewriters = () -> {
+            Rewriter rewriter = threads > 1 ?
+                    new ParallelRewriterImpl(threads, deterministic, containment) :
+                    new RewriterImpl(containment);
+            // the events are only recorded if a flight recording is running
+            rewriter.addListener(new JfrRewritingListener());
+            return rewriter;
+        };
+        String configuration = translator.getClass().getName() + ",factorise=" + ns.getBoolean("factorise") +
+                ",minimize=" + ns.getBoolean("minimize") +
+                ",deterministic=" + deterministic;
 
-        // read ontology
+        // a rewriting that is stopped by the budget returns the queries found so far, which are not cached
+        RewritingBudget budget = RewritingBudget.unlimited();
+        if (ns.getInt("max_queries") != null) {
+            budget.maxQueries(ns.getInt("max_queries"));
+        }
+        if (ns.getInt("max_rounds") != null) {
+            budget.maxRounds(ns.getInt("max_rounds"));
+        }
+        if (ns.getDouble("timeout") != null) {
+            budget.timeout(Duration.ofNanos((long) (ns.getDouble("timeout") * 1e9)));
+        }
+        if (ns.getDouble("heap_watermark") != null) {
+            budget.heapWatermark(ns.getDouble("heap_watermark"));
+        }
+
+        // read ontologies, named by their file name without extension
 //        System.out.println("please enter the path to the ontology file you want to work with");
 //        String ontology_path = br.readLine();
-        String ontology_path = ns.getString("ontology");
-        try {
-            ontology = new OntologyImpl(ontology_path);
-        } catch (OWLOntologyCreationException e) {
-            System.out.println("Something went wrong loading the ontology");
-            System.out.println(e.getMessage());
+        Map<String, Ontology> ontologies = new LinkedHashMap<>();
+        for (String ontology_path : ontology_paths) {
+            String name = Path.of(ontology_path).getFileName().toString().replaceFirst("\\.[^.]*$", "");
+            try {
+                ontologies.put(name, new OntologyImpl(ontology_path));
+            } catch (OWLOntologyCreationException e) {
+                System.out.println("Something went wrong loading the ontology " + ontology_path);
+                System.out.println(e.getMessage());
+                return;
+            } catch (NotOWL2QLException e) {
+                System.out.println("The given ontology " + ontology_path + " was not in OWL2 QL");
+                return;
+            }
+        }
+
+        if (serve) {
+            Path cacheDir = ns.getString("cache_dir") != null ? Path.of(ns.getString("cache_dir")) : null;
+            RewritingServer server = new RewritingServer(ontologies, rewriters, translator,
+                    new RewritingCacheImpl(RewritingCacheImpl.DEFAULT_CAPACITY, cacheDir), configuration,
+                    ns.getInt("workers"), budget);
+            // only local clients are served
+            server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), ns.getInt("serve")));
+            System.out.printf("Serving the ontologies %s on port %d\n", ontologies.keySet(), server.getPort());
             return;
-        } catch (NotOWL2QLException e) {
-            System.out.println("The given ontology was not in OWL2 QL");
+        }
+        ontology = ontologies.values().iterator().next();
+
+        if (batch) {
+            List<Path> queryFiles = BatchRewriter.queryFiles(Path.of(ns.getString("batch")));
+            Path output = Path.of(ns.getString("output_dir"));
+            long start = System.nanoTime();
+            List<BatchRewriter.Result> results = new BatchRewriter(ontology, rewriters, translator,
+                    ns.getBoolean("sql") ? "sql" : "cypher",
+                    ns.getInt("workers"), budget).run(queryFiles, output);
+            long failed = results.stream().filter(r -> r.getError() != null).count();
+            System.out.printf("Rewrote %d queries in %.1f s, %d failed, see %s\n", results.size() - failed,
+                    (System.nanoTime() - start) / 1e9, failed, output.resolve(BatchRewriter.SUMMARY));
             return;
         }
 
@@ -88,18 +247,78 @@ public class Cli {
 
         System.out.printf("Parsed Query:\n %s\n", query.toString());
 
-        // rewrite query
-        Set<Query> rewrittenQueries = rewriter.rewrite(query, ontology);
+        if (ns.getBoolean("stream")) {
+            // only the canonical forms of the rewritings are kept, each query is written once it is found
+            System.out.println("Translated Query:");
+            Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            RewritingBudget.Limit exceeded;
+            try (TranslationWriter translation = translator.open(query.getHead(), writer)) {
+                exceeded = rewriters.get().rewrite(query, ontology, budget, translation);
+            }
+            System.out.println();
+            if (exceeded != null) {
+                System.out.printf("The rewriting was stopped (%s), the result is incomplete.\n", exceeded);
+            }
+            System.out.println("Your query has been rewritten.");
+            return;
+        }
+
+        // look up the rewriting; its answers do not depend on the number of threads, and with -d neither does the
+        // translation, since the variants of a rewriting that the rewriters keep apart are translated once
+        RewritingCache cache = null;
+        String key = null;
+        CachedRewriting rewriting = null;
+        Set<Query> rewrittenQueries = null;
+        if (ns.getString("cache_dir") != null) {
+            cache = new RewritingCacheImpl(RewritingCacheImpl.DEFAULT_CAPACITY, Path.of(ns.getString("cache_dir")));
+            key = cache.key(ontology, query, configuration);
+            // the cache keeps the rewritings as strings, the graph is evaluated over the queries themselves
+            if (graph_paths == null) {
+                rewriting = cache.get(key);
+            }
+        }
+
+        if (rewriting == null) {
+            // rewrite query
+            Rewriter rewriter = rewriters.get();
+            RewritingMetrics metrics = new RewritingMetrics();
+            rewriter.addListener(metrics);
+            RewritingResult result = rewriter.rewrite(query, ontology, budget);
+            rewrittenQueries = result.getQueries();
+            if (ns.getString("metrics") != null) {
+                if (ns.getString("metrics").equals("-")) {
+                    System.out.print(metrics.toJson());
+                } else {
+                    Files.writeString(Path.of(ns.getString("metrics")), metrics.toJson());
+                }
+            }
+
+            // translate to query over the sources
+            rewriting = CachedRewriting.of(rewrittenQueries, translator.translate(query.getHead(), rewrittenQueries));
+            if (!result.isComplete()) {
+                System.out.printf("The rewriting was stopped (%s), the result is incomplete.\n",
+                        result.getExceeded());
+            } else if (cache != null) {
+                cache.put(key, rewriting);
+            }
+        }
 
         System.out.println("Rewritten queries");
         // print rewritten queries
-        rewrittenQueries.forEach(System.out::println);
+        rewriting.getRewritings().forEach(System.out::println);
 
-        // translate to query over the sources
-        String translatedQuery = translator.translate(query.getHead(), rewrittenQueries);
+        String translatedQuery = rewriting.getTranslation();
 
         System.out.printf("Translated Query:\n %s\n", translatedQuery);
 
+        if (graph_paths != null) {
+            PropertyGraph graph = graph_paths.size() == 1 ? PropertyGraph.readJson(Path.of(graph_paths.get(0))) :
+                    PropertyGraph.readCsv(Path.of(graph_paths.get(0)), Path.of(graph_paths.get(1)));
+            Set<List<String>> answers = new EvaluatorImpl(graph).evaluate(query.getHead(), rewrittenQueries);
+            System.out.printf("Answers (%d):\n", answers.size());
+            answers.forEach(a -> System.out.println(String.join("\t", a)));
+        }
+
 //        // copy query to clipboard
 //        Toolkit toolkit = Toolkit.getDefaultToolkit();
 //        Clipboard clipboard = toolkit.getSystemClipboard();
@@ -0,0 +1,25 @@
+package at.tuwien.kbs.evaluation;
+
+import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.structure.query.Variable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An interface describing the functions an evaluator of queries over a property graph must implement.
+ * Concept names are matched with the labels and roles with the relationship types of the graph by the fragments of
+ * their IRIs, as in the translations.
+ */
+public interface Evaluator {
+
+    /**
+     * Evaluate a union of queries, e.g. the rewritings of a query, over the graph.
+     *
+     * @param answerVars The answer variables of the union.
+     * @param queries The queries.
+     * @return The answers, each one the ids of the nodes the answer variables are mapped to. A boolean union that
+     * holds has the empty list as its only answer.
+     */
+    Set<List<String>> evaluate(List<Variable> answerVars, Set<Query> queries);
+}
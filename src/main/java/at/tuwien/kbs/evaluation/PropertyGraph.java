@@ -0,0 +1,432 @@
+package at.tuwien.kbs.evaluation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * A property graph held in memory, indexed for the evaluation of queries.
+ * <p>
+ * The nodes are numbered from 0 to {@link #size()} - 1. For each label there is the set of its nodes, and for each
+ * relationship type the outgoing and the incoming relationships are kept in compressed sparse row (CSR) form: the
+ * neighbours of all nodes in one array, sorted and without duplicates per node, and the offset of the neighbours of
+ * each node. Properties are not loaded, since queries only refer to labels and types.
+ * Graphs are immutable and can be shared by threads.
+ */
+public final class PropertyGraph {
+
+    private static final BitSet NO_NODES = new BitSet(0);
+
+    private final String[] ids;
+
+    private final Map<String, Integer> nodes;
+
+    private final Map<String, BitSet> labels;
+
+    private final Map<String, Adjacency> outgoing;
+
+    private final Map<String, Adjacency> incoming;
+
+    private PropertyGraph(String[] ids, Map<String, Integer> nodes, Map<String, BitSet> labels,
+                          Map<String, Adjacency> outgoing, Map<String, Adjacency> incoming) {
+        this.ids = ids;
+        this.nodes = nodes;
+        this.labels = labels;
+        this.outgoing = outgoing;
+        this.incoming = incoming;
+    }
+
+    /**
+     * Get the number of nodes.
+     * @return The number of nodes.
+     */
+    public int size() {
+        return this.ids.length;
+    }
+
+    /**
+     * Get the id a node was loaded with.
+     * @param node The number of the node.
+     * @return The id of the node.
+     */
+    public String getId(int node) {
+        return this.ids[node];
+    }
+
+    /**
+     * Get the number of a node.
+     * @param id The id the node was loaded with.
+     * @return The number of the node, or -1 if there is no node with the id.
+     */
+    public int getNode(String id) {
+        return this.nodes.getOrDefault(id, -1);
+    }
+
+    /**
+     * Get the nodes with a label. The returned set must not be modified.
+     * @param label The label.
+     * @return The numbers of the nodes with the label.
+     */
+    public BitSet getNodes(String label) {
+        return this.labels.getOrDefault(label, NO_NODES);
+    }
+
+    /**
+     * Get the relationships of a type from their start to their end node.
+     * @param type The type of the relationships.
+     * @return The end nodes of the relationships by their start node.
+     */
+    public Adjacency getOutgoing(String type) {
+        return this.outgoing.getOrDefault(type, Adjacency.EMPTY);
+    }
+
+    /**
+     * Get the relationships of a type from their end to their start node.
+     * @param type The type of the relationships.
+     * @return The start nodes of the relationships by their end node.
+     */
+    public Adjacency getIncoming(String type) {
+        return this.incoming.getOrDefault(type, Adjacency.EMPTY);
+    }
+
+    /**
+     * Read a graph from two CSV files, in the format of the Neo4j import tool. The first line of each file is a
+     * header. The nodes file has the id of a node in the first column and its labels, separated by semicolons, in
+     * the second one. The relationships file has the ids of the start and the end node and the type in the first
+     * three columns. Further columns are ignored, nodes that only occur in relationships are added.
+     *
+     * @param nodes The path of the nodes file.
+     * @param relationships The path of the relationships file.
+     * @return The graph.
+     * @throws IOException If a file cannot be read or a line has too few columns.
+     */
+    public static PropertyGraph readCsv(Path nodes, Path relationships) throws IOException {
+        Builder builder = new Builder();
+        readCsv(nodes, 1, fields -> builder.addNode(fields.get(0), fields.size() > 1 && !fields.get(1).isEmpty() ?
+                Arrays.asList(fields.get(1).split(";")) : Collections.emptyList()));
+        readCsv(relationships, 3, fields -> builder.addRelationship(fields.get(0), fields.get(1), fields.get(2)));
+        return builder.build();
+    }
+
+    /**
+     * Read a graph from a JSON file of the form
+     * {@code {"nodes": [{"id": "1", "labels": ["A"]}, ...], "relationships": [{"start": "1", "end": "2",
+     * "type": "r"}, ...]}}. Ids may also be numbers, and "edges", "source" and "target" are accepted for
+     * "relationships", "start" and "end". Further fields are ignored, nodes that only occur in relationships are
+     * added. The file is read as a stream, so only the graph itself is kept in memory.
+     *
+     * @param file The path of the file.
+     * @return The graph.
+     * @throws IOException If the file cannot be read or is not of this form.
+     */
+    public static PropertyGraph readJson(Path file) throws IOException {
+        Builder builder = new Builder();
+        try (JsonParser parser = new JsonFactory().createParser(file.toFile())) {
+            expect(parser, JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (field.equals("nodes")) {
+                    readObjects(parser, values -> builder.addNode(required(parser, values, "id"),
+                            values.getOrDefault("labels", Collections.emptyList())));
+                } else if (field.equals("relationships") || field.equals("edges")) {
+                    readObjects(parser, values -> builder.addRelationship(required(parser, values, "start", "source"),
+                            required(parser, values, "end", "target"), required(parser, values, "type")));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static void readCsv(Path file, int columns, CsvLine line) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.readLine();  // the header
+            int number = 1;
+            String l;
+            while ((l = reader.readLine()) != null) {
+                number++;
+                if (l.isBlank()) {
+                    continue;
+                }
+                List<String> fields = fields(l);
+                if (fields.size() < columns) {
+                    throw new IOException(String.format("Line %d of %s has %d columns instead of at least %d",
+                            number, file, fields.size(), columns));
+                }
+                line.accept(fields);
+            }
+        }
+    }
+
+    /**
+     * Split a line of a CSV file into its fields, which may be quoted with double quotes.
+     */
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Read an array of flat objects, whose values are scalars or arrays of scalars.
+     */
+    private static void readObjects(JsonParser parser, JsonObject object) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected an array at " + parser.getCurrentLocation());
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected an object at " + parser.getCurrentLocation());
+            }
+            Map<String, List<String>> values = new HashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    List<String> list = new ArrayList<>();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        list.add(parser.getText());
+                    }
+                    values.put(field, list);
+                } else if (token == JsonToken.START_OBJECT) {
+                    parser.skipChildren();  // e.g. the properties
+                } else {
+                    values.put(field, Collections.singletonList(parser.getText()));
+                }
+            }
+            object.accept(values);
+        }
+    }
+
+    private static String required(JsonParser parser, Map<String, List<String>> values, String... fields)
+            throws IOException {
+        for (String field : fields) {
+            List<String> value = values.get(field);
+            if (value != null && value.size() == 1) {
+                return value.get(0);
+            }
+        }
+        throw new IOException("Missing the field " + fields[0] + " before " + parser.getCurrentLocation());
+    }
+
+    private static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.nextToken() != token) {
+            throw new IOException("Expected " + token + " at " + parser.getCurrentLocation());
+        }
+    }
+
+    private interface CsvLine {
+        void accept(List<String> fields) throws IOException;
+    }
+
+    private interface JsonObject {
+        void accept(Map<String, List<String>> values) throws IOException;
+    }
+
+    /**
+     * The relationships of a type in compressed sparse row form, from the nodes on one side to the nodes on the
+     * other side. The neighbours of a node are {@code getNeighbour(i)} for {@code getStart(node) <= i <
+     * getEnd(node)}, in ascending order.
+     */
+    public static final class Adjacency {
+
+        private static final Adjacency EMPTY = new Adjacency(new int[0], new int[0]);
+
+        private final int[] offsets;
+
+        private final int[] neighbours;
+
+        private Adjacency(int[] offsets, int[] neighbours) {
+            this.offsets = offsets;
+            this.neighbours = neighbours;
+        }
+
+        /**
+         * Get the index of the first neighbour of a node.
+         * @param node The number of the node.
+         * @return The index of its first neighbour.
+         */
+        public int getStart(int node) {
+            return node < this.offsets.length - 1 ? this.offsets[node] : 0;
+        }
+
+        /**
+         * Get the index after the last neighbour of a node.
+         * @param node The number of the node.
+         * @return The index after its last neighbour.
+         */
+        public int getEnd(int node) {
+            return node < this.offsets.length - 1 ? this.offsets[node + 1] : 0;
+        }
+
+        /**
+         * Get a neighbour.
+         * @param i The index of the neighbour, see {@link #getStart(int)}.
+         * @return The number of the neighbour.
+         */
+        public int getNeighbour(int i) {
+            return this.neighbours[i];
+        }
+
+        /**
+         * Get the number of neighbours of a node.
+         * @param node The number of the node.
+         * @return The number of its neighbours.
+         */
+        public int getDegree(int node) {
+            return getEnd(node) - getStart(node);
+        }
+
+        /**
+         * Check whether two nodes are neighbours, by a binary search.
+         * @param node The number of the node.
+         * @param neighbour The number of the possible neighbour.
+         * @return True if the second node is a neighbour of the first one.
+         */
+        public boolean contains(int node, int neighbour) {
+            return Arrays.binarySearch(this.neighbours, getStart(node), getEnd(node), neighbour) >= 0;
+        }
+
+        /**
+         * Build the adjacency of pairs of nodes.
+         */
+        private static Adjacency of(int nodes, int[] from, int[] to, int size) {
+            int[] offsets = new int[nodes + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int node = 0; node < nodes; node++) {
+                offsets[node + 1] += offsets[node];
+            }
+            int[] next = Arrays.copyOf(offsets, nodes);
+            int[] neighbours = new int[size];
+            for (int i = 0; i < size; i++) {
+                neighbours[next[from[i]]++] = to[i];
+            }
+            // sort the neighbours of each node and drop duplicate relationships
+            int length = 0;
+            for (int node = 0; node < nodes; node++) {
+                int start = offsets[node];
+                int end = offsets[node + 1];
+                Arrays.sort(neighbours, start, end);
+                offsets[node] = length;
+                for (int i = start; i < end; i++) {
+                    if (i == start || neighbours[i] != neighbours[i - 1]) {
+                        neighbours[length++] = neighbours[i];
+                    }
+                }
+            }
+            offsets[nodes] = length;
+            return new Adjacency(offsets, Arrays.copyOf(neighbours, length));
+        }
+    }
+
+    /**
+     * A builder of a property graph.
+     */
+    public static final class Builder {
+
+        private final Map<String, Integer> nodes = new HashMap<>();
+
+        private final List<String> ids = new ArrayList<>();
+
+        private final Map<String, BitSet> labels = new HashMap<>();
+
+        /**
+         * The start and end nodes of the relationships by their type.
+         */
+        private final Map<String, int[][]> relationships = new HashMap<>();
+
+        private final Map<String, Integer> sizes = new HashMap<>();
+
+        /**
+         * Add a node, or labels to a node that has been added already.
+         * @param id The id of the node.
+         * @param labels The labels of the node.
+         * @return This builder.
+         */
+        public Builder addNode(String id, Collection<String> labels) {
+            int node = node(id);
+            for (String label : labels) {
+                this.labels.computeIfAbsent(label, l -> new BitSet()).set(node);
+            }
+            return this;
+        }
+
+        /**
+         * Add a relationship, the nodes are added if they have not been added yet.
+         * @param start The id of the start node.
+         * @param end The id of the end node.
+         * @param type The type of the relationship.
+         * @return This builder.
+         */
+        public Builder addRelationship(String start, String end, String type) {
+            int[][] pairs = this.relationships.computeIfAbsent(type, t -> new int[2][16]);
+            int size = this.sizes.getOrDefault(type, 0);
+            if (size == pairs[0].length) {
+                pairs[0] = Arrays.copyOf(pairs[0], 2 * size);
+                pairs[1] = Arrays.copyOf(pairs[1], 2 * size);
+            }
+            pairs[0][size] = node(start);
+            pairs[1][size] = node(end);
+            this.sizes.put(type, size + 1);
+            return this;
+        }
+
+        /**
+         * Build the graph.
+         * @return A graph with the nodes and relationships added so far.
+         */
+        public PropertyGraph build() {
+            int size = this.ids.size();
+            Map<String, Adjacency> outgoing = new HashMap<>();
+            Map<String, Adjacency> incoming = new HashMap<>();
+            this.relationships.forEach((type, pairs) -> {
+                outgoing.put(type, Adjacency.of(size, pairs[0], pairs[1], this.sizes.get(type)));
+                incoming.put(type, Adjacency.of(size, pairs[1], pairs[0], this.sizes.get(type)));
+            });
+            Map<String, BitSet> labels = new HashMap<>();
+            this.labels.forEach((label, nodes) -> labels.put(label, (BitSet) nodes.clone()));
+            return new PropertyGraph(this.ids.toArray(new String[0]), new HashMap<>(this.nodes), labels,
+                    outgoing, incoming);
+        }
+
+        private int node(String id) {
+            return this.nodes.computeIfAbsent(id, i -> {
+                this.ids.add(i);
+                return this.ids.size() - 1;
+            });
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package at.tuwien.kbs.evaluation.impl;
+
+import at.tuwien.kbs.evaluation.Evaluator;
+import at.tuwien.kbs.evaluation.PropertyGraph;
+import at.tuwien.kbs.structure.query.*;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLObjectInverseOf;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+
+import java.util.*;
+
+/**
+ * An evaluator that joins the atoms of each query one variable at a time, as a worst-case optimal (generic) join.
+ * The candidates of a variable are enumerated from the most selective atom that connects it to a bound variable, or
+ * else from its labels, and are checked against all other atoms by lookups in the graph. A roles atom is looked up
+ * in the relationships of its types, in the direction of each role, and an arbitrary length roles atom in the nodes
+ * reachable by a {@link PathAutomaton} of its roles. All queries of a union share the automaton of the same roles,
+ * so the nodes reachable from a node are searched once per union. Once all answer variables are bound, one match of
+ * the remaining variables is enough.
+ */
+public class EvaluatorImpl implements Evaluator {
+
+    private final PropertyGraph graph;
+
+    /**
+     * Initialize an evaluator.
+     * @param graph The graph the queries are evaluated over.
+     */
+    public EvaluatorImpl(PropertyGraph graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public Set<List<String>> evaluate(List<Variable> answerVars, Set<Query> queries) {
+        Set<List<String>> answers = new HashSet<>();
+        // the rewritings share their arbitrary length roles atoms, and with them the reachable nodes
+        Map<Set<OWLObjectPropertyExpression>, PathAutomaton> automata = new HashMap<>();
+        for (Query q : queries) {
+            new Join(answerVars, q, automata).run(answers);
+        }
+        return answers;
+    }
+
+    /**
+     * The evaluation of a single query. The variables are numbered in the order they occur in the body.
+     */
+    private final class Join {
+
+        private final Map<String, Integer> variables = new HashMap<>();
+
+        /**
+         * The nodes of the concepts atoms by their variable.
+         */
+        private final List<List<BitSet>> concepts = new ArrayList<>();
+
+        /**
+         * The binary atoms by their variables.
+         */
+        private final List<List<Relation>> relations = new ArrayList<>();
+
+        /**
+         * The nodes of the most selective concepts atom of each variable and their number, or null and the number
+         * of all nodes.
+         */
+        private final BitSet[] labelled;
+
+        private final long[] labelledSize;
+
+        private final int[] head;
+
+        private final int[] order;
+
+        /**
+         * The node each variable is bound to, or -1.
+         */
+        private final int[] binding;
+
+        private final Ints[] candidates;
+
+        /**
+         * The depth from which all answer variables are bound.
+         */
+        private final int cutoff;
+
+        private Set<List<String>> answers;
+
+        private Join(List<Variable> answerVars, Query query,
+                     Map<Set<OWLObjectPropertyExpression>, PathAutomaton> automata) {
+            for (Atom atom : query.getBody()) {
+                if (atom instanceof Concepts) {
+                    this.concepts.get(variable(((Concepts) atom).getTerm()))
+                            .add(nodes(((Concepts) atom).getConceptNames()));
+                } else {
+                    Binary binary = (Binary) atom;
+                    Relation relation = new Relation(binary, variable(binary.getLeft()), variable(binary.getRight()),
+                            automata);
+                    this.relations.get(relation.left).add(relation);
+                    if (relation.right != relation.left) {
+                        this.relations.get(relation.right).add(relation);
+                    }
+                }
+            }
+
+            this.labelled = new BitSet[this.variables.size()];
+            this.labelledSize = new long[this.variables.size()];
+            for (int v = 0; v < this.labelled.length; v++) {
+                this.labelledSize[v] = graph.size();
+                for (BitSet nodes : this.concepts.get(v)) {
+                    if (nodes.cardinality() <= this.labelledSize[v]) {
+                        this.labelled[v] = nodes;
+                        this.labelledSize[v] = nodes.cardinality();
+                    }
+                }
+            }
+
+            this.head = new int[Math.min(answerVars.size(), query.getHead().size())];
+            for (int i = 0; i < this.head.length; i++) {
+                Integer v = this.variables.get(query.getHead().get(i).getName());
+                if (v == null) {
+                    throw new IllegalArgumentException("The answer variable " + query.getHead().get(i).getName() +
+                            " does not occur in the body of the query");
+                }
+                this.head[i] = v;
+            }
+
+            this.order = order();
+            this.binding = new int[this.variables.size()];
+            Arrays.fill(this.binding, -1);
+            this.candidates = new Ints[this.order.length];
+            Arrays.setAll(this.candidates, i -> new Ints());
+            int cutoff = 0;
+            for (int i = 0; i < this.order.length; i++) {
+                for (int h : this.head) {
+                    if (this.order[i] == h) {
+                        cutoff = i + 1;
+                    }
+                }
+            }
+            this.cutoff = cutoff;
+        }
+
+        private void run(Set<List<String>> answers) {
+            this.answers = answers;
+            join(0);
+        }
+
+        /**
+         * Bind the variable at a depth of the order to all its candidates in turn.
+         *
+         * @return True if the binding could be extended to all variables.
+         */
+        private boolean join(int depth) {
+            if (depth == this.order.length) {
+                List<String> answer = new ArrayList<>(this.head.length);
+                for (int h : this.head) {
+                    answer.add(graph.getId(this.binding[h]));
+                }
+                this.answers.add(answer);
+                return true;
+            }
+
+            // enumerate the candidates from the most selective atom
+            int v = this.order[depth];
+            Relation generator = null;
+            int from = -1;
+            boolean fromLeft = false;
+            long best = Long.MAX_VALUE;
+            for (Relation r : this.relations.get(v)) {
+                boolean right = r.right == v;
+                int other = right ? r.left : r.right;
+                if (other != v && this.binding[other] >= 0) {
+                    long estimate = r.estimate(this.binding[other], right);
+                    if (estimate < best) {
+                        best = estimate;
+                        generator = r;
+                        from = this.binding[other];
+                        fromLeft = right;
+                    }
+                }
+            }
+            BitSet labelled = this.labelled[v];
+            Ints candidates = this.candidates[depth];
+            candidates.size = 0;
+            if (labelled != null && this.labelledSize[v] < best) {
+                generator = null;
+                for (int n = labelled.nextSetBit(0); n >= 0; n = labelled.nextSetBit(n + 1)) {
+                    candidates.add(n);
+                }
+            } else if (generator != null) {
+                generator.neighbours(from, fromLeft, candidates);
+            } else {
+                for (int n = 0; n < graph.size(); n++) {
+                    candidates.add(n);
+                }
+            }
+
+            boolean found = false;
+            for (int i = 0; i < candidates.size; i++) {
+                this.binding[v] = candidates.values[i];
+                if (admissible(v, generator) && join(depth + 1)) {
+                    found = true;
+                    if (depth >= this.cutoff) {
+                        break;
+                    }
+                }
+            }
+            this.binding[v] = -1;
+            return found;
+        }
+
+        /**
+         * Check the atoms of a variable whose terms are bound, except the atom its candidates come from.
+         */
+        private boolean admissible(int v, Relation generator) {
+            for (BitSet nodes : this.concepts.get(v)) {
+                if (!nodes.get(this.binding[v])) {
+                    return false;
+                }
+            }
+            for (Relation r : this.relations.get(v)) {
+                if (r != generator && this.binding[r.left] >= 0 && this.binding[r.right] >= 0 &&
+                        !r.holds(this.binding[r.left], this.binding[r.right])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Order the variables greedily: variables connected to the variables before them come first, then those
+         * with fewer labelled nodes and those in more atoms.
+         */
+        private int[] order() {
+            int size = this.variables.size();
+            int[] order = new int[size];
+            boolean[] placed = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                int best = -1;
+                long bestScore = Long.MAX_VALUE;
+                for (int v = 0; v < size; v++) {
+                    if (placed[v]) {
+                        continue;
+                    }
+                    boolean connected = false;
+                    for (Relation r : this.relations.get(v)) {
+                        connected |= placed[r.left] || placed[r.right];
+                    }
+                    long score = ((connected ? 0L : 1L) << 62) + (this.labelledSize[v] << 16) -
+                            this.relations.get(v).size();
+                    if (score < bestScore) {
+                        bestScore = score;
+                        best = v;
+                    }
+                }
+                order[i] = best;
+                placed[best] = true;
+            }
+            return order;
+        }
+
+        private int variable(Term term) {
+            return this.variables.computeIfAbsent(term.getName(), name -> {
+                this.concepts.add(new ArrayList<>());
+                this.relations.add(new ArrayList<>());
+                return this.variables.size();
+            });
+        }
+
+        /**
+         * Get the nodes with one of the labels of concepts.
+         */
+        private BitSet nodes(Set<OWLClassExpression> conceptNames) {
+            if (conceptNames.size() == 1) {
+                return graph.getNodes(conceptNames.iterator().next().asOWLClass().getIRI().getFragment());
+            }
+            BitSet nodes = new BitSet(graph.size());
+            for (OWLClassExpression c : conceptNames) {
+                nodes.or(graph.getNodes(c.asOWLClass().getIRI().getFragment()));
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * A binary atom, with the relationships that lead from its left to its right term and back.
+     */
+    private final class Relation {
+
+        private final int left;
+
+        private final int right;
+
+        /**
+         * The automaton of an arbitrary length roles atom, or null.
+         */
+        private final PathAutomaton closure;
+
+        private final PropertyGraph.Adjacency[] forward;
+
+        private final PropertyGraph.Adjacency[] backward;
+
+        private Relation(Binary atom, int left, int right,
+                         Map<Set<OWLObjectPropertyExpression>, PathAutomaton> automata) {
+            this.left = left;
+            this.right = right;
+            this.closure = atom instanceof ArbitraryLengthRoles ?
+                    automata.computeIfAbsent(atom.getRoles(), roles -> PathAutomaton.star(graph, roles)) : null;
+            List<PropertyGraph.Adjacency> forward = new ArrayList<>();
+            List<PropertyGraph.Adjacency> backward = new ArrayList<>();
+            for (OWLObjectPropertyExpression p : atom.getRoles()) {
+                String type = p.getNamedProperty().getIRI().getFragment();
+                boolean inverse = p instanceof OWLObjectInverseOf;
+                forward.add(inverse ? graph.getIncoming(type) : graph.getOutgoing(type));
+                backward.add(inverse ? graph.getOutgoing(type) : graph.getIncoming(type));
+            }
+            this.forward = forward.toArray(new PropertyGraph.Adjacency[0]);
+            this.backward = backward.toArray(new PropertyGraph.Adjacency[0]);
+        }
+
+        private boolean holds(int l, int r) {
+            if (this.closure != null) {
+                return l == r || reach(l, true).get(r);
+            }
+            for (PropertyGraph.Adjacency a : this.forward) {
+                if (a.contains(l, r)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Estimate the number of nodes related to a node by the relationships of the node, possibly with duplicates.
+         * The nodes reachable by an arbitrary length roles atom are only searched once the atom is chosen to
+         * enumerate the candidates, so for these the node and its neighbours are taken as the estimate.
+         */
+        private long estimate(int node, boolean fromLeft) {
+            long degree = this.closure != null ? 1 : 0;
+            for (PropertyGraph.Adjacency a : fromLeft ? this.forward : this.backward) {
+                degree += a.getDegree(node);
+            }
+            return degree;
+        }
+
+        private void neighbours(int node, boolean fromLeft, Ints neighbours) {
+            if (this.closure != null) {
+                BitSet reached = reach(node, fromLeft);
+                for (int n = reached.nextSetBit(0); n >= 0; n = reached.nextSetBit(n + 1)) {
+                    neighbours.add(n);
+                }
+                return;
+            }
+            PropertyGraph.Adjacency[] adjacencies = fromLeft ? this.forward : this.backward;
+            for (PropertyGraph.Adjacency a : adjacencies) {
+                for (int i = a.getStart(node); i < a.getEnd(node); i++) {
+                    neighbours.add(a.getNeighbour(i));
+                }
+            }
+            if (adjacencies.length > 1) {
+                neighbours.sortUnique();
+            }
+        }
+
+        private BitSet reach(int node, boolean fromLeft) {
+            return this.closure.reachable(node, fromLeft);
+        }
+    }
+}
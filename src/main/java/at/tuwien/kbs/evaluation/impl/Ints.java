@@ -0,0 +1,34 @@
+package at.tuwien.kbs.evaluation.impl;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of node numbers.
+ */
+final class Ints {
+
+    int[] values = new int[16];
+
+    int size;
+
+    void add(int value) {
+        if (this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, 2 * this.size);
+        }
+        this.values[this.size++] = value;
+    }
+
+    /**
+     * Sort the values and remove duplicates.
+     */
+    void sortUnique() {
+        Arrays.sort(this.values, 0, this.size);
+        int length = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (i == 0 || this.values[i] != this.values[i - 1]) {
+                this.values[length++] = this.values[i];
+            }
+        }
+        this.size = length;
+    }
+}
@@ -0,0 +1,145 @@
+package at.tuwien.kbs.evaluation.impl;
+
+import at.tuwien.kbs.evaluation.PropertyGraph;
+import org.semanticweb.owlapi.model.OWLObjectInverseOf;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+
+import java.util.*;
+
+/**
+ * A nondeterministic finite automaton whose transitions follow the relationships of a graph, to evaluate regular
+ * path queries. The nodes reachable from a node are found by a breadth-first search of the product of the graph and
+ * the automaton, which visits each pair of a node and a state once, so paths are evaluated under set semantics and
+ * the search ends on cycles. The nodes reached in a final state are the answers.
+ * <p>
+ * The reachable nodes are memoised per node and direction, such that all atoms with the same automaton share them.
+ * An automaton is not thread-safe, it is meant to be used for one evaluation.
+ */
+final class PathAutomaton {
+
+    private final PropertyGraph graph;
+
+    private final BitSet initial;
+
+    private final BitSet finals;
+
+    /**
+     * The transitions of each state, and the transitions of each state of the reversed automaton.
+     */
+    private final List<List<Transition>> transitions;
+
+    private final List<List<Transition>> reversed;
+
+    private final Map<Integer, BitSet> forward = new HashMap<>();
+
+    private final Map<Integer, BitSet> backward = new HashMap<>();
+
+    private PathAutomaton(PropertyGraph graph, BitSet initial, BitSet finals, List<List<Transition>> transitions) {
+        this.graph = graph;
+        this.initial = initial;
+        this.finals = finals;
+        this.transitions = transitions;
+        this.reversed = new ArrayList<>();
+        transitions.forEach(t -> this.reversed.add(new ArrayList<>()));
+        for (int state = 0; state < transitions.size(); state++) {
+            for (Transition t : transitions.get(state)) {
+                this.reversed.get(t.target).add(new Transition(t.backward, t.forward, state));
+            }
+        }
+    }
+
+    /**
+     * Compile the arbitrary length roles (r1|...|rn)* into an automaton, with a single state that is initial and
+     * final and a loop for each role, in the direction of the role.
+     *
+     * @param graph The graph whose relationships are followed.
+     * @param roles The roles.
+     * @return The automaton.
+     */
+    static PathAutomaton star(PropertyGraph graph, Set<OWLObjectPropertyExpression> roles) {
+        List<Transition> loops = new ArrayList<>();
+        for (OWLObjectPropertyExpression p : roles) {
+            String type = p.getNamedProperty().getIRI().getFragment();
+            loops.add(p instanceof OWLObjectInverseOf ?
+                    new Transition(graph.getIncoming(type), graph.getOutgoing(type), 0) :
+                    new Transition(graph.getOutgoing(type), graph.getIncoming(type), 0));
+        }
+        BitSet state = new BitSet();
+        state.set(0);
+        return new PathAutomaton(graph, state, state, Collections.singletonList(loops));
+    }
+
+    /**
+     * Get the nodes connected to a node by a path the automaton accepts. The returned set must not be modified.
+     *
+     * @param node The number of the node.
+     * @param forward True for the end nodes of the paths that start at the node, false for the start nodes of the
+     *                paths that end at the node.
+     * @return The numbers of the connected nodes.
+     */
+    BitSet reachable(int node, boolean forward) {
+        Map<Integer, BitSet> reached = forward ? this.forward : this.backward;
+        BitSet nodes = reached.get(node);
+        if (nodes == null) {
+            nodes = forward ? search(node, this.transitions, this.initial, this.finals) :
+                    search(node, this.reversed, this.finals, this.initial);
+            reached.put(node, nodes);
+        }
+        return nodes;
+    }
+
+    /**
+     * Search the product of the graph and the automaton breadth-first, from a node in the start states.
+     *
+     * @return The nodes reached in an accepting state.
+     */
+    private BitSet search(int node, List<List<Transition>> transitions, BitSet start, BitSet accepting) {
+        int size = this.graph.size();
+        BitSet nodes = new BitSet(size);
+        BitSet visited = new BitSet(size * transitions.size());
+        Ints queue = new Ints();
+        for (int state = start.nextSetBit(0); state >= 0; state = start.nextSetBit(state + 1)) {
+            visited.set(state * size + node);
+            queue.add(state * size + node);
+            if (accepting.get(state)) {
+                nodes.set(node);
+            }
+        }
+        for (int next = 0; next < queue.size; next++) {
+            int state = queue.values[next] / size;
+            int n = queue.values[next] % size;
+            for (Transition t : transitions.get(state)) {
+                for (int i = t.forward.getStart(n); i < t.forward.getEnd(n); i++) {
+                    int pair = t.target * size + t.forward.getNeighbour(i);
+                    if (!visited.get(pair)) {
+                        visited.set(pair);
+                        queue.add(pair);
+                        if (accepting.get(t.target)) {
+                            nodes.set(t.forward.getNeighbour(i));
+                        }
+                    }
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * A transition to a state, along relationships that are followed forward, and backward in the reversed
+     * automaton.
+     */
+    private static final class Transition {
+
+        private final PropertyGraph.Adjacency forward;
+
+        private final PropertyGraph.Adjacency backward;
+
+        private final int target;
+
+        private Transition(PropertyGraph.Adjacency forward, PropertyGraph.Adjacency backward, int target) {
+            this.forward = forward;
+            this.backward = backward;
+            this.target = target;
+        }
+    }
+}
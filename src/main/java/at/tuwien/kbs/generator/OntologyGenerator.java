@@ -0,0 +1,234 @@
+package at.tuwien.kbs.generator;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A generator of synthetic OWL2 QL (DL-Lite) ontologies.
+ * The generated ontology consists of
+ * <ul>
+ *     <li>a concept hierarchy with depth levels of width concepts, each concept below the top level is a subclass
+ *     of a random concept of the level above,</li>
+ *     <li>sub-property axioms between random roles,</li>
+ *     <li>existential axioms A \ISA \exists R and \exists R \ISA A, and</li>
+ *     <li>domain and range axioms.</li>
+ * </ul>
+ * Roles in the axioms are inverse properties with the given ratio.
+ * The generator is deterministic: the same settings and seed always yield the same ontology.
+ */
+public class OntologyGenerator {
+
+    /**
+     * The namespace of the generated classes and properties.
+     */
+    public static final String NAMESPACE = "http://www.semanticweb.org/generated#";
+
+    private final long seed;
+
+    private int depth = 3;
+
+    private int width = 10;
+
+    private int properties = 10;
+
+    private int subProperties = 5;
+
+    private double inverseRatio = 0.2;
+
+    private int existentials = 20;
+
+    private int domainRanges = 10;
+
+    /**
+     * Initialize a new generator with the default settings.
+     * @param seed The seed of the random choices.
+     */
+    public OntologyGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Set the number of levels of the concept hierarchy.
+     * @param depth The number of levels, at least 1.
+     * @return This generator.
+     */
+    public OntologyGenerator depth(int depth) {
+        this.depth = requirePositive(depth, "depth");
+        return this;
+    }
+
+    /**
+     * Set the number of concepts per level of the concept hierarchy.
+     * @param width The number of concepts per level, at least 1.
+     * @return This generator.
+     */
+    public OntologyGenerator width(int width) {
+        this.width = requirePositive(width, "width");
+        return this;
+    }
+
+    /**
+     * Set the number of properties.
+     * @param properties The number of properties, at least 1.
+     * @return This generator.
+     */
+    public OntologyGenerator properties(int properties) {
+        this.properties = requirePositive(properties, "properties");
+        return this;
+    }
+
+    /**
+     * Set the number of sub-property axioms.
+     * @param subProperties The number of sub-property axioms.
+     * @return This generator.
+     */
+    public OntologyGenerator subProperties(int subProperties) {
+        this.subProperties = requireNonNegative(subProperties, "subProperties");
+        return this;
+    }
+
+    /**
+     * Set the ratio of inverse properties among the roles in the axioms.
+     * @param inverseRatio The ratio, between 0 and 1.
+     * @return This generator.
+     */
+    public OntologyGenerator inverseRatio(double inverseRatio) {
+        if (inverseRatio < 0 || inverseRatio > 1) {
+            throw new IllegalArgumentException("inverseRatio must be between 0 and 1, got " + inverseRatio);
+        }
+        this.inverseRatio = inverseRatio;
+        return this;
+    }
+
+    /**
+     * Set the number of existential axioms A \ISA \exists R and \exists R \ISA A.
+     * @param existentials The number of existential axioms.
+     * @return This generator.
+     */
+    public OntologyGenerator existentials(int existentials) {
+        this.existentials = requireNonNegative(existentials, "existentials");
+        return this;
+    }
+
+    /**
+     * Set the number of domain and range axioms.
+     * @param domainRanges The number of domain and range axioms.
+     * @return This generator.
+     */
+    public OntologyGenerator domainRanges(int domainRanges) {
+        this.domainRanges = requireNonNegative(domainRanges, "domainRanges");
+        return this;
+    }
+
+    /**
+     * Generate an ontology with the current settings.
+     * @return A new ontology in its own ontology manager.
+     * @throws OWLOntologyCreationException If the ontology could not be created.
+     */
+    public OWLOntology generate() throws OWLOntologyCreationException {
+        Random random = new Random(this.seed);
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory df = manager.getOWLDataFactory();
+        OWLOntology ontology = manager.createOntology(IRI.create(NAMESPACE.substring(0, NAMESPACE.length() - 1)));
+        List<OWLAxiom> axioms = new ArrayList<>();
+
+        // concept hierarchy
+        OWLClass[][] classes = new OWLClass[this.depth][this.width];
+        for (int l = 0; l < this.depth; l++) {
+            for (int k = 0; k < this.width; k++) {
+                classes[l][k] = df.getOWLClass(IRI.create(NAMESPACE + conceptName(l * this.width + k)));
+                axioms.add(df.getOWLDeclarationAxiom(classes[l][k]));
+                if (l > 0) {
+                    axioms.add(df.getOWLSubClassOfAxiom(classes[l][k], classes[l - 1][random.nextInt(this.width)]));
+                }
+            }
+        }
+
+        OWLObjectProperty[] props = new OWLObjectProperty[this.properties];
+        for (int i = 0; i < this.properties; i++) {
+            props[i] = df.getOWLObjectProperty(IRI.create(NAMESPACE + propertyName(i)));
+            axioms.add(df.getOWLDeclarationAxiom(props[i]));
+        }
+
+        // role hierarchy
+        for (int i = 0; i < this.subProperties; i++) {
+            axioms.add(df.getOWLSubObjectPropertyOfAxiom(role(props, random), role(props, random)));
+        }
+
+        // existential axioms
+        for (int i = 0; i < this.existentials; i++) {
+            OWLClass c = randomClass(classes, random);
+            OWLClassExpression some = df.getOWLObjectSomeValuesFrom(role(props, random), df.getOWLThing());
+            axioms.add(random.nextBoolean() ? df.getOWLSubClassOfAxiom(c, some) : df.getOWLSubClassOfAxiom(some, c));
+        }
+
+        // domain and range axioms
+        for (int i = 0; i < this.domainRanges; i++) {
+            OWLObjectProperty p = props[random.nextInt(this.properties)];
+            OWLClass c = randomClass(classes, random);
+            axioms.add(i % 2 == 0 ? df.getOWLObjectPropertyDomainAxiom(p, c) : df.getOWLObjectPropertyRangeAxiom(p, c));
+        }
+
+        manager.addAxioms(ontology, axioms.stream());
+        return ontology;
+    }
+
+    /**
+     * Get the name of the i-th generated concept.
+     * @param i The index of the concept.
+     * @return The name, which is valid in the query syntax.
+     */
+    public static String conceptName(int i) {
+        return "C_" + letters(i);
+    }
+
+    /**
+     * Get the name of the i-th generated property.
+     * @param i The index of the property.
+     * @return The name, which is valid in the query syntax.
+     */
+    public static String propertyName(int i) {
+        return "r_" + letters(i);
+    }
+
+    /**
+     * Encode a number in letters only (a, b, ..., z, ba, bb, ...), since names in the query syntax must not contain
+     * digits.
+     */
+    static String letters(int i) {
+        StringBuilder s = new StringBuilder();
+        do {
+            s.append((char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return s.reverse().toString();
+    }
+
+    private OWLObjectPropertyExpression role(OWLObjectProperty[] props, Random random) {
+        OWLObjectProperty p = props[random.nextInt(props.length)];
+        return random.nextDouble() < this.inverseRatio ? p.getInverseProperty() : p;
+    }
+
+    private static OWLClass randomClass(OWLClass[][] classes, Random random) {
+        OWLClass[] level = classes[random.nextInt(classes.length)];
+        return level[random.nextInt(level.length)];
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be positive, got " + value);
+        }
+        return value;
+    }
+
+    private static int requireNonNegative(int value, String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative, got " + value);
+        }
+        return value;
+    }
+}
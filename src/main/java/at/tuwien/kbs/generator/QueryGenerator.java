@@ -0,0 +1,178 @@
+package at.tuwien.kbs.generator;
+
+import at.tuwien.kbs.structure.ontology.Ontology;
+
+import java.util.*;
+
+/**
+ * A generator of synthetic queries in the syntax of the grammar Q over the signature of an ontology.
+ * The generated queries are connected: every role and arbitrary length atom connects a new variable to a variable
+ * of the previous atoms, concept atoms are placed on random variables.
+ * The generator is deterministic: the same settings, signature and seed always yield the same query.
+ */
+public class QueryGenerator {
+
+    private final Random random;
+
+    private final List<String> concepts;
+
+    private final List<String> properties;
+
+    private int conceptAtoms = 2;
+
+    private int roleAtoms = 2;
+
+    private int pathAtoms = 1;
+
+    private int answerVariables = 1;
+
+    private int disjuncts = 1;
+
+    private double inverseRatio = 0.2;
+
+    /**
+     * Initialize a new generator with the default settings.
+     * @param ontology The ontology that provides the concept and role names.
+     * @param seed The seed of the random choices.
+     */
+    public QueryGenerator(Ontology ontology, long seed) {
+        this.random = new Random(seed);
+        // sorted, such that the choices do not depend on the iteration order of the maps
+        this.concepts = new ArrayList<>(new TreeSet<>(ontology.getClassMap().keySet()));
+        this.properties = new ArrayList<>(new TreeSet<>(ontology.getPropertyMap().keySet()));
+    }
+
+    /**
+     * Set the number of concept atoms.
+     * @param conceptAtoms The number of concept atoms.
+     * @return This generator.
+     */
+    public QueryGenerator conceptAtoms(int conceptAtoms) {
+        this.conceptAtoms = requireNonNegative(conceptAtoms, "conceptAtoms");
+        return this;
+    }
+
+    /**
+     * Set the number of role atoms.
+     * @param roleAtoms The number of role atoms.
+     * @return This generator.
+     */
+    public QueryGenerator roleAtoms(int roleAtoms) {
+        this.roleAtoms = requireNonNegative(roleAtoms, "roleAtoms");
+        return this;
+    }
+
+    /**
+     * Set the number of arbitrary length atoms.
+     * @param pathAtoms The number of arbitrary length atoms.
+     * @return This generator.
+     */
+    public QueryGenerator pathAtoms(int pathAtoms) {
+        this.pathAtoms = requireNonNegative(pathAtoms, "pathAtoms");
+        return this;
+    }
+
+    /**
+     * Set the number of answer variables, at most the number of variables of the query are used.
+     * @param answerVariables The number of answer variables.
+     * @return This generator.
+     */
+    public QueryGenerator answerVariables(int answerVariables) {
+        this.answerVariables = requireNonNegative(answerVariables, "answerVariables");
+        return this;
+    }
+
+    /**
+     * Set the maximal number of concept or role names in the disjunction of an atom.
+     * @param disjuncts The maximal number of names per atom, at least 1.
+     * @return This generator.
+     */
+    public QueryGenerator disjuncts(int disjuncts) {
+        if (disjuncts < 1) {
+            throw new IllegalArgumentException("disjuncts must be positive, got " + disjuncts);
+        }
+        this.disjuncts = disjuncts;
+        return this;
+    }
+
+    /**
+     * Set the ratio of inverse properties in role atoms.
+     * @param inverseRatio The ratio, between 0 and 1.
+     * @return This generator.
+     */
+    public QueryGenerator inverseRatio(double inverseRatio) {
+        if (inverseRatio < 0 || inverseRatio > 1) {
+            throw new IllegalArgumentException("inverseRatio must be between 0 and 1, got " + inverseRatio);
+        }
+        this.inverseRatio = inverseRatio;
+        return this;
+    }
+
+    /**
+     * Generate the next query with the current settings.
+     * @return The query in string format, according to the grammar Q.
+     */
+    public String generate() {
+        if (this.conceptAtoms + this.roleAtoms + this.pathAtoms == 0) {
+            throw new IllegalStateException("A query needs at least one atom");
+        }
+        if (this.conceptAtoms > 0 && this.concepts.isEmpty() ||
+                this.roleAtoms + this.pathAtoms > 0 && this.properties.isEmpty()) {
+            throw new IllegalStateException("The ontology does not have the names for the atoms");
+        }
+        List<String> atoms = new ArrayList<>();
+        int variables = 1;
+
+        // binary atoms in random order, each one extends the query by a new variable
+        List<Boolean> paths = new ArrayList<>();
+        for (int i = 0; i < this.roleAtoms + this.pathAtoms; i++) {
+            paths.add(i >= this.roleAtoms);
+        }
+        Collections.shuffle(paths, this.random);
+        for (boolean path : paths) {
+            String from = variable(this.random.nextInt(variables));
+            String to = variable(variables++);
+            if (this.random.nextBoolean()) {
+                String tmp = from;
+                from = to;
+                to = tmp;
+            }
+            atoms.add(path ? disjunction(this.properties, false) + "*(" + from + "," + to + ")" :
+                    disjunction(this.properties, true) + "(" + from + "," + to + ")");
+        }
+
+        for (int i = 0; i < this.conceptAtoms; i++) {
+            atoms.add(disjunction(this.concepts, false) + "(" + variable(this.random.nextInt(variables)) + ")");
+        }
+
+        List<String> head = new ArrayList<>();
+        for (int i = 0; i < Math.min(this.answerVariables, variables); i++) {
+            head.add(variable(i));
+        }
+        return "q(" + String.join(",", head) + "):-" + String.join(",", atoms);
+    }
+
+    /**
+     * Choose a disjunction of distinct names, e.g. A or (A|B).
+     */
+    private String disjunction(List<String> names, boolean inverses) {
+        int size = Math.min(1 + this.random.nextInt(this.disjuncts), names.size());
+        Set<String> chosen = new LinkedHashSet<>();
+        while (chosen.size() < size) {
+            String name = names.get(this.random.nextInt(names.size()));
+            chosen.add(inverses && this.random.nextDouble() < this.inverseRatio ? name + "-" : name);
+        }
+        return size == 1 ? chosen.iterator().next() : "(" + String.join("|", chosen) + ")";
+    }
+
+    private static String variable(int i) {
+        return "x" + OntologyGenerator.letters(i);
+    }
+
+    private static int requireNonNegative(int value, String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative, got " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,30 @@
+package at.tuwien.kbs.logic;
+
+import at.tuwien.kbs.structure.query.Query;
+
+import java.util.Set;
+
+/**
+ * An interface that describes the functions of a query containment check.
+ */
+public interface Containment {
+
+    /**
+     * Check if a query is contained in another one, i.e. if every answer of the first query is also an answer of
+     * the second query over every database.
+     *
+     * @param query The (more specific) query.
+     * @param other The (more general) query.
+     * @return True if query is contained in other, False otherwise.
+     */
+    public boolean isContained(Query query, Query other);
+
+    /**
+     * Remove all queries from a union of queries that are contained in another query of the union.
+     * Of several equivalent queries, one is kept.
+     *
+     * @param queries The union of queries.
+     * @return The subset of the queries that are not contained in any other query of the union.
+     */
+    public Set<Query> minimize(Set<Query> queries);
+}
@@ -4,6 +4,7 @@ import at.tuwien.kbs.structure.ontology.Ontology;
 import at.tuwien.kbs.structure.query.Query;
 
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * An interface describing the functions a rewriter must implement.
@@ -20,6 +21,31 @@ public interface Rewriter {
      */
     public Set<Query> rewrite(Query query, Ontology ontology);
 
+    /**
+     * Rewrite a query as {@link #rewrite(Query, Ontology)}, but stop once a limit of the budget is exceeded.
+     *
+     * @param query The input query.
+     * @param ontology The ontology.
+     * @param budget The limits of the rewriting.
+     * @return The queries found until the rewriting ended or was stopped, and the limit that stopped it.
+     */
+    public RewritingResult rewrite(Query query, Ontology ontology, RewritingBudget budget);
+
+    /**
+     * Rewrite a query as {@link #rewrite(Query, Ontology, RewritingBudget)}, but pass each rewriting to a consumer
+     * once it is found instead of returning all of them at the end. Only the canonical forms of the queries found so
+     * far are kept to skip duplicates.
+     * The rewritings are not minimized, since a query is only known to be subsumed once all rewritings are found.
+     *
+     * @param query The input query.
+     * @param ontology The ontology.
+     * @param budget The limits of the rewriting.
+     * @param consumer The consumer of the rewritings, called by the thread that started the rewriting.
+     * @return The limit that stopped the rewriting, or null if it ran to the end.
+     */
+    public RewritingBudget.Limit rewrite(Query query, Ontology ontology, RewritingBudget budget,
+                                         Consumer<Query> consumer);
+
     /**
      * Get a fresh variable name, which has not occurred in any query yet.
      *
@@ -27,4 +53,11 @@ public interface Rewriter {
      */
     public String getFreshVariableName();
 
+    /**
+     * Add a listener that is notified of the progress of the following rewritings.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(RewritingListener listener);
+
 }
@@ -0,0 +1,154 @@
+package at.tuwien.kbs.logic;
+
+import java.time.Duration;
+
+/**
+ * The limits of a rewriting: the number of queries, the number of rounds, the time and the share of the heap in use.
+ * A rewriter checks the budget before it expands a query, and stops with the queries found so far once a limit is
+ * exceeded, see {@link RewritingResult}.
+ * A budget can also be cancelled from another thread, which stops all rewritings that use it.
+ * All limits are off by default.
+ */
+public class RewritingBudget {
+
+    /**
+     * The limits that can stop a rewriting.
+     */
+    public enum Limit {
+        /**
+         * The maximal number of queries has been found.
+         */
+        QUERIES,
+        /**
+         * The maximal number of rounds has been run.
+         */
+        ROUNDS,
+        /**
+         * The time is up.
+         */
+        TIMEOUT,
+        /**
+         * The share of the heap in use exceeds the watermark.
+         */
+        HEAP,
+        /**
+         * The budget has been cancelled.
+         */
+        CANCELLED
+    }
+
+    private int maxQueries = Integer.MAX_VALUE;
+
+    private int maxRounds = Integer.MAX_VALUE;
+
+    private long timeoutNanos = Long.MAX_VALUE;
+
+    private double heapWatermark = 1;
+
+    private volatile boolean cancelled;
+
+    /**
+     * Get a budget without limits.
+     * @return A new budget without limits.
+     */
+    public static RewritingBudget unlimited() {
+        return new RewritingBudget();
+    }
+
+    /**
+     * Set the maximal number of queries of the result.
+     * @param maxQueries The maximal number of queries, at least 1 (the input query).
+     * @return This budget.
+     */
+    public RewritingBudget maxQueries(int maxQueries) {
+        if (maxQueries < 1) {
+            throw new IllegalArgumentException("maxQueries must be positive, got " + maxQueries);
+        }
+        this.maxQueries = maxQueries;
+        return this;
+    }
+
+    /**
+     * Set the maximal number of rounds.
+     * @param maxRounds The maximal number of rounds.
+     * @return This budget.
+     */
+    public RewritingBudget maxRounds(int maxRounds) {
+        if (maxRounds < 0) {
+            throw new IllegalArgumentException("maxRounds must not be negative, got " + maxRounds);
+        }
+        this.maxRounds = maxRounds;
+        return this;
+    }
+
+    /**
+     * Set the time a rewriting may take, measured from its start.
+     * @param timeout The time.
+     * @return This budget.
+     */
+    public RewritingBudget timeout(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("timeout must not be negative, got " + timeout);
+        }
+        this.timeoutNanos = timeout.toNanos();
+        return this;
+    }
+
+    /**
+     * Set the share of the maximal heap size that may be in use. The share includes garbage that has not been
+     * collected yet, so the watermark should leave room for it.
+     * @param heapWatermark The share, between 0 and 1.
+     * @return This budget.
+     */
+    public RewritingBudget heapWatermark(double heapWatermark) {
+        if (heapWatermark <= 0 || heapWatermark > 1) {
+            throw new IllegalArgumentException("heapWatermark must be in (0, 1], got " + heapWatermark);
+        }
+        this.heapWatermark = heapWatermark;
+        return this;
+    }
+
+    /**
+     * Cancel the rewritings that use this budget. They stop before they expand the next query.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Get the maximal number of queries of the result.
+     * @return The maximal number of queries.
+     */
+    public int getMaxQueries() {
+        return maxQueries;
+    }
+
+    /**
+     * Get the maximal number of rounds.
+     * @return The maximal number of rounds.
+     */
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    /**
+     * Check the limits that do not depend on the progress of the rewriting: cancellation, time and heap.
+     * @param startNanos The start of the rewriting, see {@link System#nanoTime()}.
+     * @return The exceeded limit, or null if the rewriting can go on.
+     */
+    public Limit check(long startNanos) {
+        if (this.cancelled) {
+            return Limit.CANCELLED;
+        }
+        if (System.nanoTime() - startNanos > this.timeoutNanos) {
+            return Limit.TIMEOUT;
+        }
+        if (this.heapWatermark < 1) {
+            Runtime runtime = Runtime.getRuntime();
+            if (runtime.totalMemory() - runtime.freeMemory() > this.heapWatermark * runtime.maxMemory()) {
+                return Limit.HEAP;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+package at.tuwien.kbs.logic;
+
+import at.tuwien.kbs.structure.query.Query;
+
+/**
+ * An interface for observers of the progress of a rewriting, e.g. to collect metrics.
+ * A rewriting runs in rounds: in every round, the rules are applied to the queries of the frontier, and the queries
+ * that have not been found before form the frontier of the next round.
+ * All methods do nothing by default. A listener of a rewriter that expands queries in parallel is called from
+ * several threads at the same time.
+ */
+public interface RewritingListener {
+
+    /**
+     * Called when a rewriting starts.
+     *
+     * @param query The input query, saturated and with the unbound variables marked.
+     */
+    default void rewritingStarted(Query query) {
+    }
+
+    /**
+     * Called when a round starts.
+     *
+     * @param round The number of the round, starting at 1.
+     * @param frontier The number of queries that are expanded in the round.
+     */
+    default void roundStarted(int round, int frontier) {
+    }
+
+    /**
+     * Called when a rule has been applied to a query of the frontier.
+     *
+     * @param rule The rule.
+     * @param produced The number of queries the rule produced, including the ones that are found again.
+     * @param nanos The time the rule took.
+     */
+    default void ruleApplied(RewritingRule rule, int produced, long nanos) {
+    }
+
+    /**
+     * Called when a round is finished.
+     *
+     * @param round The number of the round.
+     * @param generated The number of queries generated from the frontier, where every query is counted once per
+     *                  query of the frontier it is obtained from.
+     * @param added The number of queries that had not been found before, i.e. the size of the next frontier.
+     */
+    default void roundFinished(int round, int generated, int added) {
+    }
+
+    /**
+     * Called when a rewriting is finished.
+     *
+     * @param rewritings The number of queries of the result.
+     * @param nanos The time the rewriting took.
+     */
+    default void rewritingFinished(int rewritings, long nanos) {
+    }
+}
@@ -0,0 +1,51 @@
+package at.tuwien.kbs.logic;
+
+import at.tuwien.kbs.structure.query.Query;
+
+import java.util.Set;
+
+/**
+ * The result of a rewriting with a {@link RewritingBudget}.
+ * An incomplete result holds the queries found until a limit was exceeded. Each of them is a rewriting of the input
+ * query, so evaluating them yields certain answers, but not necessarily all of them.
+ */
+public final class RewritingResult {
+
+    private final Set<Query> queries;
+
+    private final RewritingBudget.Limit exceeded;
+
+    /**
+     * Initialize a new result.
+     * @param queries The rewritten queries.
+     * @param exceeded The limit that stopped the rewriting, or null if it ran to the end.
+     */
+    public RewritingResult(Set<Query> queries, RewritingBudget.Limit exceeded) {
+        this.queries = queries;
+        this.exceeded = exceeded;
+    }
+
+    /**
+     * Get the rewritten queries.
+     * @return The queries.
+     */
+    public Set<Query> getQueries() {
+        return queries;
+    }
+
+    /**
+     * Check whether the rewriting ran to the end.
+     * @return True if the result holds all rewritings, false if a limit stopped the rewriting.
+     */
+    public boolean isComplete() {
+        return this.exceeded == null;
+    }
+
+    /**
+     * Get the limit that stopped the rewriting.
+     * @return The limit, or null if the result is complete.
+     */
+    public RewritingBudget.Limit getExceeded() {
+        return exceeded;
+    }
+}
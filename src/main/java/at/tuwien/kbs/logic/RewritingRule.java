@@ -0,0 +1,46 @@
+package at.tuwien.kbs.logic;
+
+/**
+ * The rules of the rewriting algorithm.
+ */
+public enum RewritingRule {
+
+    /**
+     * (a) replace an atom by applying an axiom of the ontology.
+     */
+    REPLACE('a'),
+
+    /**
+     * (b) reduce two atoms with the same concepts or roles by unifying them.
+     */
+    REDUCE('b'),
+
+    /**
+     * (c) concatenate a binary atom to an arbitrary length atom.
+     */
+    CONCATENATE('c'),
+
+    /**
+     * (d) merge two binary atoms that share roles.
+     */
+    MERGE('d'),
+
+    /**
+     * (e) drop an arbitrary length atom with an unbound variable.
+     */
+    DROP('e');
+
+    private final char label;
+
+    RewritingRule(char label) {
+        this.label = label;
+    }
+
+    /**
+     * Get the label of the rule in the paper.
+     * @return The label, from a to e.
+     */
+    public char getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,128 @@
+package at.tuwien.kbs.logic.impl;
+
+import at.tuwien.kbs.structure.ontology.Vocabulary;
+import at.tuwien.kbs.structure.query.*;
+
+import java.util.*;
+
+/**
+ * An index of the atoms in the body of a query, used to generate only the pairs of atoms for which the rules
+ * (b) reduce, (c) concatenate and (d) merge can be applied.
+ * The candidates of an atom are returned in the order of the body.
+ */
+class AtomIndex {
+
+    private final Map<BitSet, List<Atom>> byConcepts = new HashMap<>();
+
+    private final Map<BitSet, List<Atom>> byRoles = new HashMap<>();
+
+    private final Map<BitSet, List<Atom>> byArbitraryLengthRoles = new HashMap<>();
+
+    private final Map<Term, List<ArbitraryLengthRoles>> arbitraryByLeft = new HashMap<>();
+
+    private final Map<Term, List<ArbitraryLengthRoles>> arbitraryByRight = new HashMap<>();
+
+    private final Map<Integer, List<Binary>> binaryByRole = new HashMap<>();
+
+    /**
+     * The position of each atom in the body.
+     */
+    private final Map<Atom, Integer> positions = new HashMap<>();
+
+    /**
+     * Build the index of a query.
+     * @param query The query.
+     */
+    AtomIndex(Query query) {
+        for (Atom a : query.getBody()) {
+            this.positions.putIfAbsent(a, this.positions.size());
+            if (a instanceof Concepts) {
+                add(this.byConcepts, ((Concepts) a).getConceptIds(), a);
+            } else {
+                Binary b = (Binary) a;
+                if (a instanceof Roles) {
+                    add(this.byRoles, b.getRoleIds(), a);
+                } else {
+                    ArbitraryLengthRoles r = (ArbitraryLengthRoles) a;
+                    add(this.byArbitraryLengthRoles, r.getRoleIds(), a);
+                    add(this.arbitraryByLeft, r.getLeft(), r);
+                    add(this.arbitraryByRight, r.getRight(), r);
+                }
+                BitSet roles = b.getRoleIds();
+                for (int i = roles.nextSetBit(0); i >= 0; i = roles.nextSetBit(i + 1)) {
+                    add(this.binaryByRole, i, b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the atoms that can be unified with an atom by rule (b): atoms of the same kind with the same concepts or
+     * roles, or the inverse roles in case of role atoms.
+     * @param atom The atom.
+     * @return The candidate atoms, excluding the atom itself.
+     */
+    List<Atom> reducible(Atom atom) {
+        Set<Atom> candidates = new HashSet<>();
+        if (atom instanceof Concepts) {
+            candidates.addAll(get(this.byConcepts, ((Concepts) atom).getConceptIds()));
+        } else if (atom instanceof Roles) {
+            BitSet roles = ((Roles) atom).getRoleIds();
+            candidates.addAll(get(this.byRoles, roles));
+            candidates.addAll(get(this.byRoles, Vocabulary.inverse(roles)));
+        } else {
+            candidates.addAll(get(this.byArbitraryLengthRoles, ((Binary) atom).getRoleIds()));
+        }
+        candidates.remove(atom);
+        return sorted(candidates);
+    }
+
+    /**
+     * Get the arbitrary length atoms that an atom can be concatenated to by rule (c): atoms that share a term at
+     * the start or the end with the atom (or its inverse).
+     * @param atom The binary atom.
+     * @return The candidate atoms, excluding the atom itself.
+     */
+    List<ArbitraryLengthRoles> concatenable(Binary atom) {
+        Set<ArbitraryLengthRoles> candidates = new HashSet<>();
+        for (Term t : Arrays.asList(atom.getLeft(), atom.getRight())) {
+            candidates.addAll(get(this.arbitraryByLeft, t));
+            candidates.addAll(get(this.arbitraryByRight, t));
+        }
+        candidates.remove(atom);
+        return sorted(candidates);
+    }
+
+    /**
+     * Get the binary atoms that an atom can be merged with by rule (d): atoms that share at least one role with the
+     * atom (or its inverse, in case of a role atom).
+     * @param atom The binary atom.
+     * @return The candidate atoms, excluding the atom itself.
+     */
+    List<Binary> mergeable(Binary atom) {
+        Set<Binary> candidates = new HashSet<>();
+        BitSet roles = atom.getRoleIds();
+        for (int i = roles.nextSetBit(0); i >= 0; i = roles.nextSetBit(i + 1)) {
+            candidates.addAll(get(this.binaryByRole, i));
+            if (atom instanceof Roles) {
+                candidates.addAll(get(this.binaryByRole, Vocabulary.inverse(i)));
+            }
+        }
+        candidates.remove(atom);
+        return sorted(candidates);
+    }
+
+    private <A extends Atom> List<A> sorted(Set<A> atoms) {
+        List<A> list = new ArrayList<>(atoms);
+        list.sort(Comparator.comparing(this.positions::get));
+        return list;
+    }
+
+    private static <K, A> void add(Map<K, List<A>> index, K key, A atom) {
+        index.computeIfAbsent(key, k -> new ArrayList<>()).add(atom);
+    }
+
+    private static <K, A> List<A> get(Map<K, List<A>> index, K key) {
+        return index.getOrDefault(key, Collections.emptyList());
+    }
+}
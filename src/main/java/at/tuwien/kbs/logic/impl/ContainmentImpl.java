@@ -0,0 +1,210 @@
+package at.tuwien.kbs.logic.impl;
+
+import at.tuwien.kbs.logic.Containment;
+import at.tuwien.kbs.structure.ontology.Vocabulary;
+import at.tuwien.kbs.structure.query.*;
+
+import java.util.*;
+
+/**
+ * Query containment by homomorphisms between the query bodies.
+ * A query q is contained in a query p if there is a homomorphism from p to q that maps the head of p onto the head
+ * of q, where an atom of p can be mapped onto an atom of q with the same or fewer disjuncts:
+ * <ul>
+ *     <li>A(t) onto B(h(t)) if the concepts of B are a subset of the concepts of A,</li>
+ *     <li>R(s,t) onto S(h(s),h(t)) or S(h(t),h(s)) if the roles of S (or their inverses) are a subset of R, and</li>
+ *     <li>R*(s,t) onto any path from h(s) to h(t) in q whose atoms only use roles of R, including the empty
+ *     path.</li>
+ * </ul>
+ * Every occurrence of an unbound variable is a term of its own.
+ */
+public class ContainmentImpl implements Containment {
+
+    @Override
+    public boolean isContained(Query query, Query other) {
+        if (query.getHead().size() != other.getHead().size()) {
+            return false;
+        }
+        Homomorphism h = new Homomorphism(other, query);
+        // the head is mapped position by position
+        for (int i = 0; i < other.getHead().size(); i++) {
+            if (!h.bind(other.getHead().get(i), query.getHead().get(i))) {
+                return false;
+            }
+        }
+        return h.search(0);
+    }
+
+    @Override
+    public Set<Query> minimize(Set<Query> queries) {
+        // smaller queries tend to be more general, so they are checked first;
+        // ties are ordered by canonical form such that the same query of several equivalent ones is kept
+        List<Query> sorted = new ArrayList<>(queries);
+        sorted.sort(Comparator.comparingInt((Query q) -> q.getBody().size()).thenComparing(Query::getCanonicalForm));
+
+        List<Query> kept = new ArrayList<>();
+        for (Query q : sorted) {
+            if (kept.stream().anyMatch(k -> isContained(q, k))) {
+                continue;
+            }
+            kept.removeIf(k -> isContained(k, q));
+            kept.add(q);
+        }
+        return new HashSet<>(kept);
+    }
+
+    /**
+     * An atom with the terms replaced by keys, such that every occurrence of an unbound variable has its own key.
+     */
+    private static final class Pattern {
+
+        private final Atom atom;
+
+        private final BitSet ids;
+
+        private final Object left;
+
+        private final Object right;
+
+        private Pattern(Atom atom) {
+            this.atom = atom;
+            if (atom instanceof Concepts) {
+                this.ids = ((Concepts) atom).getConceptIds();
+                this.left = key(((Concepts) atom).getTerm());
+                this.right = null;
+            } else {
+                this.ids = ((Binary) atom).getRoleIds();
+                this.left = key(((Binary) atom).getLeft());
+                this.right = key(((Binary) atom).getRight());
+            }
+        }
+
+        private static Object key(Term t) {
+            return t instanceof UnboundVariable ? new Object() : t;
+        }
+    }
+
+    /**
+     * Backtracking search for a homomorphism from the atoms of one query to the atoms of another query.
+     */
+    private static final class Homomorphism {
+
+        private final List<Pattern> source = new ArrayList<>();
+
+        private final List<Pattern> target = new ArrayList<>();
+
+        /**
+         * The terms (keys) of the target query.
+         */
+        private final Set<Object> targetTerms = new LinkedHashSet<>();
+
+        private final Map<Object, Object> mapping = new HashMap<>();
+
+        private Homomorphism(Query from, Query to) {
+            from.getBody().forEach(a -> this.source.add(new Pattern(a)));
+            to.getBody().forEach(a -> this.target.add(new Pattern(a)));
+            for (Pattern p : this.target) {
+                this.targetTerms.add(p.left);
+                if (p.right != null) {
+                    this.targetTerms.add(p.right);
+                }
+            }
+            // the arbitrary length atoms are mapped last, when most of their terms are bound already
+            this.source.sort(Comparator.comparingInt(p -> p.atom instanceof ArbitraryLengthRoles ? 1 : 0));
+        }
+
+        private boolean bind(Object term, Object image) {
+            Object current = this.mapping.putIfAbsent(term, image);
+            return current == null || current.equals(image);
+        }
+
+        /**
+         * Try to map the source atoms from position i onwards.
+         */
+        private boolean search(int i) {
+            if (i == this.source.size()) {
+                return true;
+            }
+            Pattern p = this.source.get(i);
+            if (p.atom instanceof Concepts) {
+                for (Pattern t : this.target) {
+                    if (t.atom instanceof Concepts && Vocabulary.containsAll(p.ids, t.ids) &&
+                            tryMap(i, p.left, t.left, null, null)) {
+                        return true;
+                    }
+                }
+            } else if (p.atom instanceof Roles) {
+                for (Pattern t : this.target) {
+                    if (t.atom instanceof Roles) {
+                        if (Vocabulary.containsAll(p.ids, t.ids) && tryMap(i, p.left, t.left, p.right, t.right)) {
+                            return true;
+                        }
+                        if (Vocabulary.containsAll(p.ids, Vocabulary.inverse(t.ids)) &&
+                                tryMap(i, p.left, t.right, p.right, t.left)) {
+                            return true;
+                        }
+                    }
+                }
+            } else {
+                Object from = this.mapping.get(p.left);
+                Collection<Object> starts = from != null ? Collections.singleton(from) : this.targetTerms;
+                for (Object start : starts) {
+                    for (Object end : reachable(start, p.ids)) {
+                        if (tryMap(i, p.left, start, p.right, end)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Map up to two source terms and continue with the next atom, undoing the mapping if that fails.
+         */
+        private boolean tryMap(int i, Object term1, Object image1, Object term2, Object image2) {
+            boolean new1 = !this.mapping.containsKey(term1);
+            if (!bind(term1, image1)) {
+                return false;
+            }
+            boolean new2 = term2 != null && !this.mapping.containsKey(term2);
+            if (term2 == null || bind(term2, image2)) {
+                if (search(i + 1)) {
+                    return true;
+                }
+            }
+            if (new2) {
+                this.mapping.remove(term2);
+            }
+            if (new1) {
+                this.mapping.remove(term1);
+            }
+            return false;
+        }
+
+        /**
+         * Get the target terms that are reachable from a target term by a path that only uses the given roles.
+         */
+        private Set<Object> reachable(Object start, BitSet roles) {
+            Set<Object> visited = new LinkedHashSet<>(Collections.singleton(start));
+            Deque<Object> queue = new ArrayDeque<>(visited);
+            while (!queue.isEmpty()) {
+                Object current = queue.poll();
+                for (Pattern t : this.target) {
+                    if (t.atom instanceof Concepts) {
+                        continue;
+                    }
+                    if (t.left.equals(current) && Vocabulary.containsAll(roles, t.ids) && visited.add(t.right)) {
+                        queue.add(t.right);
+                    }
+                    // a role atom can also be traversed backwards, using the inverse roles
+                    if (t.atom instanceof Roles && t.right.equals(current) &&
+                            Vocabulary.containsAll(roles, Vocabulary.inverse(t.ids)) && visited.add(t.left)) {
+                        queue.add(t.left);
+                    }
+                }
+            }
+            return visited;
+        }
+    }
+}
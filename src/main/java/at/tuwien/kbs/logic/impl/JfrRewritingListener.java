@@ -0,0 +1,150 @@
+package at.tuwien.kbs.logic.impl;
+
+import at.tuwien.kbs.logic.RewritingListener;
+import at.tuwien.kbs.logic.RewritingRule;
+import at.tuwien.kbs.structure.query.Query;
+import jdk.jfr.*;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A listener that emits Java Flight Recorder events: one event per rewriting, one per round and one per rule and
+ * round, with the number of queries the rule produced in the round and the time it took.
+ * The events are only recorded while a recording is running, e.g. with {@code -XX:StartFlightRecording}, otherwise
+ * the listener only updates a few counters.
+ * A listener observes one rewriting at a time, rewriters that run concurrently need listeners of their own.
+ */
+public class JfrRewritingListener implements RewritingListener {
+
+    @Name("at.tuwien.kbs.Rewriting")
+    @Label("Rewriting")
+    @Category({"OMQ-PG", "Rewriting"})
+    @Description("The rewriting of a query")
+    static final class RewritingEvent extends Event {
+
+        @Label("Query")
+        String query;
+
+        @Label("Rounds")
+        int rounds;
+
+        @Label("Rewritings")
+        int rewritings;
+    }
+
+    @Name("at.tuwien.kbs.RewritingRound")
+    @Label("Rewriting Round")
+    @Category({"OMQ-PG", "Rewriting"})
+    @Description("The expansion of the frontier of a rewriting")
+    static final class RoundEvent extends Event {
+
+        @Label("Round")
+        int round;
+
+        @Label("Frontier")
+        int frontier;
+
+        @Label("Generated")
+        int generated;
+
+        @Label("Added")
+        int added;
+    }
+
+    @Name("at.tuwien.kbs.RewritingRule")
+    @Label("Rewriting Rule")
+    @Category({"OMQ-PG", "Rewriting"})
+    @Description("The applications of a rule in a round of a rewriting")
+    static final class RuleEvent extends Event {
+
+        @Label("Round")
+        int round;
+
+        @Label("Rule")
+        String rule;
+
+        @Label("Produced")
+        long produced;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+
+    private final LongAdder[] produced = new LongAdder[RewritingRule.values().length];
+
+    private final LongAdder[] nanos = new LongAdder[RewritingRule.values().length];
+
+    private RewritingEvent rewriting;
+
+    private RoundEvent round;
+
+    /**
+     * Initialize a new listener.
+     */
+    public JfrRewritingListener() {
+        for (int i = 0; i < this.produced.length; i++) {
+            this.produced[i] = new LongAdder();
+            this.nanos[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public synchronized void rewritingStarted(Query query) {
+        this.rewriting = new RewritingEvent();
+        if (this.rewriting.isEnabled()) {
+            this.rewriting.query = query.toString();
+        }
+        this.rewriting.begin();
+    }
+
+    @Override
+    public synchronized void roundStarted(int round, int frontier) {
+        this.round = new RoundEvent();
+        this.round.round = round;
+        this.round.frontier = frontier;
+        this.round.begin();
+        for (int i = 0; i < this.produced.length; i++) {
+            this.produced[i].reset();
+            this.nanos[i].reset();
+        }
+    }
+
+    @Override
+    public void ruleApplied(RewritingRule rule, int produced, long nanos) {
+        this.produced[rule.ordinal()].add(produced);
+        this.nanos[rule.ordinal()].add(nanos);
+    }
+
+    @Override
+    public synchronized void roundFinished(int round, int generated, int added) {
+        this.round.end();
+        if (this.round.shouldCommit()) {
+            this.round.generated = generated;
+            this.round.added = added;
+            this.round.commit();
+        }
+        RewritingRule[] rules = RewritingRule.values();
+        for (int i = 0; i < rules.length; i++) {
+            RuleEvent event = new RuleEvent();
+            if (event.shouldCommit()) {
+                event.round = round;
+                event.rule = rules[i].name().toLowerCase(Locale.ROOT);
+                event.produced = this.produced[i].sum();
+                event.time = this.nanos[i].sum();
+                event.commit();
+            }
+        }
+        this.rewriting.rounds = round;
+    }
+
+    @Override
+    public synchronized void rewritingFinished(int rewritings, long nanos) {
+        this.rewriting.end();
+        if (this.rewriting.shouldCommit()) {
+            this.rewriting.rewritings = rewritings;
+            this.rewriting.commit();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package at.tuwien.kbs.logic.impl;
+
+import at.tuwien.kbs.logic.Containment;
+import at.tuwien.kbs.logic.RewritingBudget;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.query.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A rewriter that expands the queries of a frontier in parallel, on a fork/join pool.
+ * The rules are the same as for {@link RewriterImpl}, the frontiers are processed one after the other.
+ * <p>
+ * In deterministic mode, the result does not depend on the scheduling of the threads: the queries of a frontier
+ * are merged in the order of their canonical form, fresh variables are named by the query they are introduced
+ * into and the result is returned in the order of the canonical form.
+ */
+public class ParallelRewriterImpl extends RewriterImpl {
+
+    private final int parallelism;
+
+    private final boolean deterministic;
+
+    private final AtomicLong variableCounter = new AtomicLong();
+
+    /**
+     * The query that is expanded by the current thread, used to name fresh variables in deterministic mode.
+     */
+    private final ThreadLocal<Query> expanding = new ThreadLocal<>();
+
+    /**
+     * Initialize a parallel rewriter that uses all available processors.
+     */
+    public ParallelRewriterImpl() {
+        this(Runtime.getRuntime().availableProcessors(), false, null);
+    }
+
+    /**
+     * Initialize a parallel rewriter.
+     *
+     * @param parallelism The number of threads.
+     * @param deterministic True if the result must not depend on the scheduling of the threads.
+     * @param containment The containment check to remove subsumed rewritings, or null to keep all rewritings.
+     */
+    public ParallelRewriterImpl(int parallelism, boolean deterministic, Containment containment) {
+        super(containment);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The queries found in a round are passed to the consumer once the round is finished, by the calling thread.
+     */
+    @Override
+    protected RewritingBudget.Limit search(Query initial, Ontology ontology, RewritingBudget budget,
+                                           Consumer<Query> consumer) {
+        Set<String> visited = ConcurrentHashMap.newKeySet();
+        visited.add(initial.getCanonicalForm());
+        consumer.accept(initial);
+        List<Query> frontier = Collections.singletonList(initial);
+        Budget b = new Budget(budget, visited.size());
+
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            int round = 0;
+            while (!frontier.isEmpty() && b.exceeded.get() == null) {
+                if (round == budget.getMaxRounds()) {
+                    b.exceeded.set(RewritingBudget.Limit.ROUNDS);
+                    break;
+                }
+                List<Query> current = frontier;
+                roundStarted(++round, current.size());
+                AtomicInteger generated = new AtomicInteger();
+                // parallel streams that are started from a task of the pool run on that pool
+                frontier = this.deterministic ?
+                        pool.submit(() -> expandDeterministic(current, ontology, visited, generated, b)).join() :
+                        pool.submit(() -> current.parallelStream()
+                                .flatMap(qp -> b.check() ? expand(qp, ontology).stream() : Stream.<Query>empty())
+                                .peek(q -> generated.incrementAndGet())
+                                // only queries that have not been visited yet are expanded in the next round
+                                .filter(q -> b.add(visited, q))
+                                .collect(Collectors.toList())).join();
+                roundFinished(round, generated.get(), frontier.size());
+                frontier.forEach(consumer);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return b.exceeded.get();
+    }
+
+    @Override
+    protected Set<Query> finish(Set<Query> rewritings) {
+        if (!this.deterministic) {
+            return super.finish(rewritings);
+        }
+        List<Query> sorted = new ArrayList<>(rewritings);
+        sorted.sort(Comparator.comparing(Query::getCanonicalForm));
+        return super.finish(new LinkedHashSet<>(sorted));
+    }
+
+    /**
+     * Expand the queries of a frontier in parallel and merge the results sequentially, in a fixed order.
+     */
+    private List<Query> expandDeterministic(List<Query> frontier, Ontology ontology, Set<String> visited,
+                                            AtomicInteger generated, Budget b) {
+        List<List<Query>> expansions = frontier.parallelStream()
+                .map(qp -> {
+                    if (!b.check()) {
+                        return Collections.<Query>emptyList();
+                    }
+                    this.expanding.set(qp);
+                    try {
+                        List<Query> expansion = new ArrayList<>(expand(qp, ontology));
+                        expansion.sort(Comparator.comparing(Query::getCanonicalForm));
+                        return expansion;
+                    } finally {
+                        this.expanding.remove();
+                    }
+                })
+                .collect(Collectors.toList());
+
+        List<Query> next = new ArrayList<>();
+        for (List<Query> expansion : expansions) {
+            generated.addAndGet(expansion.size());
+            for (Query q : expansion) {
+                if (b.add(visited, q)) {
+                    next.add(q);
+                }
+            }
+        }
+        next.sort(Comparator.comparing(Query::getCanonicalForm));
+        return next;
+    }
+
+    /**
+     * The state of the budget of a rewriting, shared by the threads.
+     */
+    private final class Budget {
+
+        private final RewritingBudget budget;
+
+        private final AtomicReference<RewritingBudget.Limit> exceeded = new AtomicReference<>();
+
+        /**
+         * The number of queries that have been added or are being added, at most the maximal number of queries.
+         */
+        private final AtomicInteger reserved;
+
+        private Budget(RewritingBudget budget, int queries) {
+            this.budget = budget;
+            this.reserved = new AtomicInteger(queries);
+        }
+
+        /**
+         * Check whether the next query can be expanded.
+         */
+        private boolean check() {
+            if (this.exceeded.get() != null) {
+                return false;
+            }
+            RewritingBudget.Limit limit = ParallelRewriterImpl.this.check(this.budget);
+            if (limit != null) {
+                this.exceeded.compareAndSet(null, limit);
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Add a query to the visited queries, unless it has been visited already or the maximal number of queries
+         * has been reached.
+         * @return True if the query has been added.
+         */
+        private boolean add(Set<String> visited, Query q) {
+            if (visited.contains(q.getCanonicalForm())) {
+                return false;
+            }
+            // a place is reserved before the query is added, such that concurrent threads never exceed the limit
+            if (this.reserved.incrementAndGet() > this.budget.getMaxQueries()) {
+                this.reserved.decrementAndGet();
+                this.exceeded.compareAndSet(null, RewritingBudget.Limit.QUERIES);
+                return false;
+            }
+            if (visited.add(q.getCanonicalForm())) {
+                return true;
+            }
+            this.reserved.decrementAndGet();
+            return false;
+        }
+    }
+
+    @Override
+    public String getFreshVariableName() {
+        Query query = this.expanding.get();
+        if (query == null) {
+            return "v" + this.variableCounter.incrementAndGet();
+        }
+        // every rule introduces at most one fresh variable into a query, so the first name that does not occur
+        // in the expanded query is fresh for all queries obtained from it
+        Set<String> names = new HashSet<>();
+        for (Variable v : query.getHead()) {
+            names.add(v.getName());
+        }
+        for (Atom a : query.getBody()) {
+            if (a instanceof Concepts) {
+                names.add(((Concepts) a).getTerm().getName());
+            } else {
+                names.add(((Binary) a).getLeft().getName());
+                names.add(((Binary) a).getRight().getName());
+            }
+        }
+        int i = 1;
+        while (names.contains("v" + i)) {
+            i++;
+        }
+        return "v" + i;
+    }
+}
@@ -1,75 +1,296 @@
 package at.tuwien.kbs.logic.impl;
 
+import at.tuwien.kbs.logic.Containment;
 import at.tuwien.kbs.logic.Rewriter;
+import at.tuwien.kbs.logic.RewritingBudget;
+import at.tuwien.kbs.logic.RewritingListener;
+import at.tuwien.kbs.logic.RewritingResult;
+import at.tuwien.kbs.logic.RewritingRule;
 import at.tuwien.kbs.logic.Unifier;
 import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.Vocabulary;
 import at.tuwien.kbs.structure.query.*;
 import at.tuwien.kbs.structure.query.impl.*;
 import org.semanticweb.owlapi.model.OWLAxiom;
-import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class RewriterImpl implements Rewriter {
 
     private int variable_counter = 0;
 
+    /**
+     * Canonical atoms of the current rewriting, such that the queries share their atoms.
+     */
+    private InterningFactory factory = new InterningFactory();
+
+    /**
+     * The containment check used to remove subsumed rewritings, null if they are kept.
+     */
+    private final Containment containment;
+
+    /**
+     * The listeners that are notified of the progress of the rewritings.
+     */
+    private final List<RewritingListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The start time of the current rewriting.
+     */
+    private long startTime;
+
+    /**
+     * Initialize a rewriter that returns all rewritings.
+     */
+    public RewriterImpl() {
+        this(null);
+    }
+
+    /**
+     * Initialize a rewriter that removes the rewritings that are contained in another rewriting.
+     * @param containment The containment check, or null to keep all rewritings.
+     */
+    public RewriterImpl(Containment containment) {
+        this.containment = containment;
+    }
+
     @Override
     public Set<Query> rewrite(Query query, Ontology ontology) {
-        // structure as in the paper
-        Set<Query> Q = new HashSet<>(Collections.singleton(tau(saturate(query, ontology))));
-        Set<Query> Qp = null;
-
-        while (!Q.equals(Qp)) {
-            Qp = new HashSet<>(Q);
-            for (Query qp: Qp) {
-                // (a) apply axioms, if possible
-                for (Atom a: qp.getBody()) {
-                    for (OWLAxiom i: ontology.getAxioms()) {
-                        if (a.applicable(i)) {
-                            Q.add(tau(replace(qp, a, ontology, i)));
-                        }
-                    }
+        return rewrite(query, ontology, RewritingBudget.unlimited()).getQueries();
+    }
+
+    @Override
+    public RewritingResult rewrite(Query query, Ontology ontology, RewritingBudget budget) {
+        Set<Query> rewritings = new LinkedHashSet<>();
+        RewritingBudget.Limit exceeded = search(start(query, ontology), ontology, budget, rewritings::add);
+        return new RewritingResult(finish(rewritings), exceeded);
+    }
+
+    @Override
+    public RewritingBudget.Limit rewrite(Query query, Ontology ontology, RewritingBudget budget,
+                                         Consumer<Query> consumer) {
+        AtomicInteger rewritings = new AtomicInteger();
+        RewritingBudget.Limit exceeded = search(start(query, ontology), ontology, budget, q -> {
+            rewritings.incrementAndGet();
+            consumer.accept(q);
+        });
+        finished(rewritings.get());
+        return exceeded;
+    }
+
+    /**
+     * Apply the rules until no new queries are found or a limit of the budget is exceeded.
+     *
+     * @param initial The saturated input query, see {@link #start(Query, Ontology)}.
+     * @param ontology The ontology.
+     * @param budget The limits of the rewriting.
+     * @param consumer The consumer of the queries, which is passed each query once, starting with the input query.
+     * @return The limit that stopped the rewriting, or null if it ran to the end.
+     */
+    protected RewritingBudget.Limit search(Query initial, Ontology ontology, RewritingBudget budget,
+                                           Consumer<Query> consumer) {
+        // structure as in the paper, but evaluated semi-naively: the rules are only applied to the queries that
+        // were found in the previous round (the frontier), since all other queries have been expanded before.
+        // queries are identified by their canonical form, such that queries that only differ in the names of the
+        // fresh variables are kept (and expanded) once.
+        Set<String> visited = new HashSet<>();
+        visited.add(initial.getCanonicalForm());
+        consumer.accept(initial);
+        Set<Query> frontier = Collections.singleton(initial);
+
+        RewritingBudget.Limit exceeded = null;
+        int round = 0;
+        while (!frontier.isEmpty() && exceeded == null) {
+            if (round == budget.getMaxRounds()) {
+                exceeded = RewritingBudget.Limit.ROUNDS;
+                break;
+            }
+            roundStarted(++round, frontier.size());
+            int generated = 0;
+            Set<Query> next = new HashSet<>();
+            for (Query qp: frontier) {
+                exceeded = check(budget);
+                if (exceeded != null) {
+                    break;
                 }
-                // (b) unify atoms, if possible
-                for (Atom atom1: qp.getBody()) {
-                    for (Atom atom2: qp.getBody()) {
-                        Q.add(tau(reduce(qp, atom1, atom2)));
+                for (Query q: expand(qp, ontology)) {
+                    generated++;
+                    // only queries that have not been visited yet are expanded in the next round
+                    if (visited.size() >= budget.getMaxQueries() && !visited.contains(q.getCanonicalForm())) {
+                        exceeded = RewritingBudget.Limit.QUERIES;
+                        break;
+                    }
+                    if (visited.add(q.getCanonicalForm())) {
+                        next.add(q);
+                        consumer.accept(q);
                     }
                 }
+                if (exceeded != null) {
+                    break;
+                }
+            }
+            roundFinished(round, generated, next.size());
+            frontier = next;
+        }
+        return exceeded;
+    }
 
-                // TODO make these loops more efficient with filtering?
-                // (c) concatenate, if possible
-                for (Atom atom1: qp.getBody()) {
-                    for (Atom atom2: qp.getBody()) {
-                        if(atom1 instanceof Binary && atom2 instanceof ArbitraryLengthRoles && !atom1.equals(atom2)) {
-                            Q.add(tau(concatenate(qp, (Binary) atom1, (ArbitraryLengthRoles) atom2)));
-                        }
-                    }
+    /**
+     * Prepare a new rewriting of a query.
+     *
+     * @param query The input query.
+     * @param ontology The ontology.
+     * @return The saturated input query, with unbound variables marked as such.
+     */
+    protected Query start(Query query, Ontology ontology) {
+        this.startTime = System.nanoTime();
+        this.factory = new InterningFactory();
+        Query initial = tau(saturate(query, ontology));
+        this.listeners.forEach(l -> l.rewritingStarted(initial));
+        return initial;
+    }
+
+    /**
+     * Finish a rewriting, removing the subsumed queries if a containment check is set.
+     *
+     * @param rewritings All queries of the rewriting.
+     * @return The queries that are returned by the rewriter.
+     */
+    protected Set<Query> finish(Set<Query> rewritings) {
+        Set<Query> result = this.containment != null ? this.containment.minimize(rewritings) : rewritings;
+        finished(result.size());
+        return result;
+    }
+
+    /**
+     * Notify the listeners that the current rewriting is finished.
+     *
+     * @param rewritings The number of rewritings.
+     */
+    private void finished(int rewritings) {
+        long nanos = System.nanoTime() - this.startTime;
+        this.listeners.forEach(l -> l.rewritingFinished(rewritings, nanos));
+    }
+
+    /**
+     * Check the limits of a budget that do not depend on the progress of the current rewriting.
+     *
+     * @param budget The budget.
+     * @return The exceeded limit, or null if the rewriting can go on.
+     */
+    protected RewritingBudget.Limit check(RewritingBudget budget) {
+        return budget.check(this.startTime);
+    }
+
+    /**
+     * Notify the listeners that a round starts.
+     *
+     * @param round The number of the round, starting at 1.
+     * @param frontier The number of queries that are expanded in the round.
+     */
+    protected void roundStarted(int round, int frontier) {
+        this.listeners.forEach(l -> l.roundStarted(round, frontier));
+    }
+
+    /**
+     * Notify the listeners that a round is finished.
+     *
+     * @param round The number of the round.
+     * @param generated The number of queries generated from the frontier.
+     * @param added The number of queries that had not been found before.
+     */
+    protected void roundFinished(int round, int generated, int added) {
+        this.listeners.forEach(l -> l.roundFinished(round, generated, added));
+    }
+
+    /**
+     * Notify the listeners that a rule has been applied to a query.
+     *
+     * @return The current time, i.e. the start time of the next rule.
+     */
+    private long ruleApplied(RewritingRule rule, int produced, long start) {
+        long now = System.nanoTime();
+        for (RewritingListener l : this.listeners) {
+            l.ruleApplied(rule, produced, now - start);
+        }
+        return now;
+    }
+
+    /**
+     * Apply the rules (a) - (e) once to a query.
+     *
+     * @param qp The query to be expanded.
+     * @param ontology The ontology.
+     * @return The set of queries that can be obtained from qp by applying one of the rules.
+     */
+    protected Set<Query> expand(Query qp, Ontology ontology) {
+        Set<Query> Q = new HashSet<>();
+        long time = System.nanoTime();
+        int produced = 0;
+        // (a) apply axioms, if possible
+        for (Atom a: qp.getBody()) {
+            for (OWLAxiom i: a.getCandidateAxioms(ontology)) {
+                if (a.applicable(i)) {
+                    Q.add(tau(replace(qp, a, ontology, i)));
+                    produced++;
                 }
+            }
+        }
+        time = ruleApplied(RewritingRule.REPLACE, produced, time);
+        produced = 0;
+        // only pairs of atoms that are compatible for the rules (b) - (d) are generated, all other pairs would
+        // yield the query itself
+        AtomIndex index = new AtomIndex(qp);
+        // (b) unify atoms, if possible
+        for (Atom atom1: qp.getBody()) {
+            for (Atom atom2: index.reducible(atom1)) {
+                Q.add(tau(reduce(qp, atom1, atom2)));
+                produced++;
+            }
+        }
+        time = ruleApplied(RewritingRule.REDUCE, produced, time);
+        produced = 0;
 
-                // (d) merge atoms, if possible
-                for (Atom atom1: qp.getBody()) {
-                    for (Atom atom2: qp.getBody()) {
-                        if (atom1 instanceof Binary && atom2 instanceof Binary && !atom1.equals(atom2)) {
-                            Q.addAll(merge(qp, (Binary) atom1, (Binary) atom2).stream()
-                                    .map(this::tau)
-                                    .collect(Collectors.toSet()));
-                        }
-                    }
+        // (c) concatenate, if possible
+        for (Atom atom1: qp.getBody()) {
+            if (atom1 instanceof Binary) {
+                for (ArbitraryLengthRoles atom2: index.concatenable((Binary) atom1)) {
+                    Q.add(tau(concatenate(qp, (Binary) atom1, atom2)));
+                    produced++;
                 }
+            }
+        }
+        time = ruleApplied(RewritingRule.CONCATENATE, produced, time);
+        produced = 0;
 
-                // (e) drop atoms, if possible
-                for (Atom atom: qp.getBody()) {
-                    if (atom instanceof ArbitraryLengthRoles) {
-                        Q.add(tau(drop(qp, (ArbitraryLengthRoles) atom)));
-                    }
+        // (d) merge atoms, if possible
+        for (Atom atom1: qp.getBody()) {
+            if (atom1 instanceof Binary) {
+                for (Binary atom2: index.mergeable((Binary) atom1)) {
+                    Set<Query> merges = merge(qp, (Binary) atom1, atom2);
+                    Q.addAll(merges.stream()
+                            .map(this::tau)
+                            .collect(Collectors.toSet()));
+                    produced += merges.size();
                 }
             }
         }
+        time = ruleApplied(RewritingRule.MERGE, produced, time);
+        produced = 0;
 
-        return Qp;
+        // (e) drop atoms, if possible
+        for (Atom atom: qp.getBody()) {
+            if (atom instanceof ArbitraryLengthRoles) {
+                Q.add(tau(drop(qp, (ArbitraryLengthRoles) atom)));
+                produced++;
+            }
+        }
+        ruleApplied(RewritingRule.DROP, produced, time);
+        return Q;
     }
 
     private Query tau(Query query) {
@@ -105,10 +326,10 @@ public class RewriterImpl implements Rewriter {
                 if (t instanceof Variable) {  // contains variable
                     if ((variableCount.get((Variable) t) == 1) &&
                             !query.getHead().contains((Variable) t)) { // unbound variable
-                        t = new UnboundVariableImpl(t.getName());  // replace term
+                        t = InterningFactory.unboundVariable(t.getName());  // replace term
                     }
                 }
-                body.add(new ConceptsImpl(b.getConceptNames(), t)); // add to new query
+                body.add(this.factory.intern(new ConceptsImpl(b.getConceptIds(), t))); // add to new query
             }
             if (a instanceof Binary) { // roles, arb.length atoms
                 Binary b = (Binary) a;
@@ -117,16 +338,16 @@ public class RewriterImpl implements Rewriter {
                 if (left instanceof Variable) {
                     if ((variableCount.get((Variable) left) == 1) &&
                             !query.getHead().contains((Variable) left)) { // unbound variable
-                        left = new UnboundVariableImpl(left.getName()); // replace term
+                        left = InterningFactory.unboundVariable(left.getName()); // replace term
                     }
                 }
                 if (right instanceof Variable) {
                     if ((variableCount.get((Variable) right) == 1) &&
                             !query.getHead().contains((Variable) right)) { // unbound variable
-                        right = new UnboundVariableImpl(right.getName()); // replace term
+                        right = InterningFactory.unboundVariable(right.getName()); // replace term
                     }
                 }
-                body.add(b.replaceTerms(left, right));
+                body.add(this.factory.intern(b.replaceTerms(left, right)));
             }
         }
         // return query with unbound variables marked as such
@@ -151,7 +372,7 @@ public class RewriterImpl implements Rewriter {
         if (atom1 instanceof Concepts && atom2 instanceof Concepts) {  // concepts
             Concepts b1 = (Concepts) atom1;
             Concepts b2 = (Concepts) atom2;
-            if (b1.getConceptNames().equals(b2.getConceptNames())) {  // same set of concepts
+            if (b1.getConceptIds().equals(b2.getConceptIds())) {  // same set of concepts
                 // compute unifier, return result of applying the unifier to q
                 Unifier unifier = new UnifierImpl(Collections.singletonList(b1.getTerm()),
                         Collections.singletonList(b2.getTerm()));
@@ -160,7 +381,7 @@ public class RewriterImpl implements Rewriter {
         } else if (atom1 instanceof Roles && atom2 instanceof Roles) {  // Roles
             Roles b1 = (Roles) atom1;
             Roles b2 = (Roles) atom2;
-            if (b1.getRoles().equals(b2.getRoles())) {
+            if (b1.getRoleIds().equals(b2.getRoleIds())) {
                 // compute unifier, return result of applying the unifier to q
                 Unifier unifier = new UnifierImpl(Arrays.asList(b1.getLeft(), b1.getRight()),
                         Arrays.asList(b2.getLeft(), b2.getRight()));
@@ -170,7 +391,7 @@ public class RewriterImpl implements Rewriter {
                 // in this case, inverting means that we switch the left and right variable
                 // and invert all the roles in the set of roles.
                 Roles b3 = b1.getInverse();
-                if (b3.getRoles().equals(b2.getRoles())) {
+                if (b3.getRoleIds().equals(b2.getRoleIds())) {
                     // no need to create a copy of the query, an inverse is the same as the original atom
                     // compute unifier, return result of applying the unifier to q
                     Unifier unifier = new UnifierImpl(Arrays.asList(b3.getLeft(), b3.getRight()),
@@ -181,7 +402,7 @@ public class RewriterImpl implements Rewriter {
         } else if (atom1 instanceof ArbitraryLengthRoles && atom2 instanceof ArbitraryLengthRoles) {
             ArbitraryLengthRoles b1 = (ArbitraryLengthRoles) atom1;
             ArbitraryLengthRoles b2 = (ArbitraryLengthRoles) atom2;
-            if (b1.getRoles().equals(b2.getRoles())) {
+            if (b1.getRoleIds().equals(b2.getRoleIds())) {
                 // compute unifier, return result of applying the unifier to q
                 Unifier unifier = new UnifierImpl(Arrays.asList(b1.getLeft(), b1.getRight()),
                         Arrays.asList(b2.getLeft(), b2.getRight()));
@@ -199,7 +420,7 @@ public class RewriterImpl implements Rewriter {
         Binary r1;
         Binary r2;
         if (atom1 instanceof Roles) {
-            if (atom2.getRoles().containsAll(atom1.getRoles())) {  // roles of atom 1 subset of roles of atom 2
+            if (Vocabulary.containsAll(atom2.getRoleIds(), atom1.getRoleIds())) {  // roles of atom 1 subset of roles of atom 2
                 // check terms
                 if (atom1.getLeft().equals(atom2.getLeft())) {  // append to front
                     return concatenateRoleToFront(qp, atom1, atom2);
@@ -208,7 +429,7 @@ public class RewriterImpl implements Rewriter {
                 }
             } else {  // check the inverse
                 atom1 = ((Roles) atom1).getInverse();  // check the inverse
-                if (atom2.getRoles().containsAll(atom1.getRoles())) {  // roles of atom 1 subset of roles of atom 2
+                if (Vocabulary.containsAll(atom2.getRoleIds(), atom1.getRoleIds())) {  // roles of atom 1 subset of roles of atom 2
                     if (atom1.getLeft().equals(atom2.getLeft())) {  // append to front
                         return concatenateRoleToFront(qp, atom1, atom2);
                     } else if (atom1.getRight().equals(atom2.getRight())) {  // append to back
@@ -217,17 +438,17 @@ public class RewriterImpl implements Rewriter {
                 }
             }
         } else {  // atom1 is also an ArbitraryLengthRole
-            if (atom2.getRoles().containsAll(atom1.getRoles())) { // roles of atom1 subset of roles of atom2
+            if (Vocabulary.containsAll(atom2.getRoleIds(), atom1.getRoleIds())) { // roles of atom1 subset of roles of atom2
                 // check vars
                 if (atom1.getLeft().equals(atom2.getLeft())) {  // append to front
                     // remove atoms
                     qp.getBody().remove(atom1);
                     qp.getBody().remove(atom2);
                     // generate new atoms
-                    r1 = new ArbitraryLengthRolesImpl(atom1.getRoles(), new VariableImpl(atom1.getLeft().getName()),
-                            new VariableImpl(atom1.getRight().getName()));
-                    r2 = new ArbitraryLengthRolesImpl(atom2.getRoles(), new VariableImpl(atom1.getRight().getName()),
-                            new VariableImpl(atom2.getRight().getName()));
+                    r1 = new ArbitraryLengthRolesImpl(atom1.getRoleIds(), InterningFactory.variable(atom1.getLeft().getName()),
+                            InterningFactory.variable(atom1.getRight().getName()));
+                    r2 = new ArbitraryLengthRolesImpl(atom2.getRoleIds(), InterningFactory.variable(atom1.getRight().getName()),
+                            InterningFactory.variable(atom2.getRight().getName()));
                     // add atoms to query body
                     qp.getBody().add(r1);
                     qp.getBody().add(r2);
@@ -238,10 +459,10 @@ public class RewriterImpl implements Rewriter {
                     qp.getBody().remove(atom1);
                     qp.getBody().remove(atom2);
                     // generate new atoms
-                    r1 = new ArbitraryLengthRolesImpl(atom1.getRoles(), new VariableImpl(atom1.getLeft().getName()),
-                            new VariableImpl(atom1.getRight().getName()));
-                    r2 = new ArbitraryLengthRolesImpl(atom2.getRoles(), new VariableImpl(atom2.getLeft().getName()),
-                            new VariableImpl(atom1.getLeft().getName()));
+                    r1 = new ArbitraryLengthRolesImpl(atom1.getRoleIds(), InterningFactory.variable(atom1.getLeft().getName()),
+                            InterningFactory.variable(atom1.getRight().getName()));
+                    r2 = new ArbitraryLengthRolesImpl(atom2.getRoleIds(), InterningFactory.variable(atom2.getLeft().getName()),
+                            InterningFactory.variable(atom1.getLeft().getName()));
                     // add atoms to query body
                     qp.getBody().add(r1);
                     qp.getBody().add(r2);
@@ -259,10 +480,10 @@ public class RewriterImpl implements Rewriter {
         qp.getBody().remove(atom1);
         qp.getBody().remove(atom2);
         // generate new atoms
-        Roles r1 = new RolesImpl(atom1.getRoles(), new VariableImpl(atom1.getLeft().getName()),
-                new VariableImpl(atom1.getRight().getName()));
-        ArbitraryLengthRoles r2 = new ArbitraryLengthRolesImpl(atom2.getRoles(), new VariableImpl(atom1.getRight().getName()),
-                new VariableImpl(atom2.getRight().getName()));
+        Roles r1 = new RolesImpl(atom1.getRoleIds(), InterningFactory.variable(atom1.getLeft().getName()),
+                InterningFactory.variable(atom1.getRight().getName()));
+        ArbitraryLengthRoles r2 = new ArbitraryLengthRolesImpl(atom2.getRoleIds(), InterningFactory.variable(atom1.getRight().getName()),
+                InterningFactory.variable(atom2.getRight().getName()));
         // add atoms to query body
         qp.getBody().add(r1);
         qp.getBody().add(r2);
@@ -275,10 +496,10 @@ public class RewriterImpl implements Rewriter {
         qp.getBody().remove(atom1);
         qp.getBody().remove(atom2);
         // generate new atoms
-        Roles r1 = new RolesImpl(atom1.getRoles(), new VariableImpl(atom1.getLeft().getName()),
-                new VariableImpl(atom1.getRight().getName()));
-        ArbitraryLengthRoles r2 = new ArbitraryLengthRolesImpl(atom2.getRoles(), new VariableImpl(atom2.getLeft().getName()),
-                new VariableImpl(atom1.getLeft().getName()));
+        Roles r1 = new RolesImpl(atom1.getRoleIds(), InterningFactory.variable(atom1.getLeft().getName()),
+                InterningFactory.variable(atom1.getRight().getName()));
+        ArbitraryLengthRoles r2 = new ArbitraryLengthRolesImpl(atom2.getRoleIds(), InterningFactory.variable(atom2.getLeft().getName()),
+                InterningFactory.variable(atom1.getLeft().getName()));
         // add atoms to query body
         qp.getBody().add(r1);
         qp.getBody().add(r2);
@@ -287,16 +508,16 @@ public class RewriterImpl implements Rewriter {
     }
 
     private Set<Query> merge(Query query, Binary atom1, Binary atom2) {
-        Set<OWLObjectPropertyExpression> intersection;
+        BitSet intersection;
         Set<Query> merges = new HashSet<>();
         Binary r1;
         Binary r2;
         Unifier unifier;
         if (atom1 instanceof Roles) {
             // compute first intersection
-            intersection = new HashSet<>(atom1.getRoles());
-            intersection.retainAll(atom2.getRoles());
-            if (intersection.size() > 0) {
+            intersection = (BitSet) atom1.getRoleIds().clone();
+            intersection.and(atom2.getRoleIds());
+            if (!intersection.isEmpty()) {
                 // do the terms of a1 and a2 unify?
                 unifier = new UnifierImpl(Arrays.asList(atom1.getLeft(), atom1.getRight()),
                         Arrays.asList(atom2.getLeft(), atom2.getRight()));
@@ -318,9 +539,9 @@ public class RewriterImpl implements Rewriter {
             }
             // compute second intersection on the inverse of atom1
             atom1 = ((Roles) atom1).getInverse();
-            intersection = new HashSet<>(atom1.getRoles());
-            intersection.retainAll(atom2.getRoles());
-            if (intersection.size() > 0) {
+            intersection = (BitSet) atom1.getRoleIds().clone();
+            intersection.and(atom2.getRoleIds());
+            if (!intersection.isEmpty()) {
                 // do the terms of atom1 and atom2 unify?
                 unifier = new UnifierImpl(Arrays.asList(atom1.getLeft(), atom1.getRight()),
                         Arrays.asList(atom2.getLeft(), atom2.getRight()));
@@ -341,9 +562,9 @@ public class RewriterImpl implements Rewriter {
                 }
             }
         } else {  // arbitrary length atom - only directed roles
-            intersection = new HashSet<>(atom1.getRoles());
-            intersection.retainAll(atom2.getRoles());
-            if (intersection.size() > 0) {
+            intersection = (BitSet) atom1.getRoleIds().clone();
+            intersection.and(atom2.getRoleIds());
+            if (!intersection.isEmpty()) {
                 // do the terms of atom1 and atom2 unify?
                 unifier = new UnifierImpl(Arrays.asList(atom1.getLeft(), atom1.getRight()),
                         Arrays.asList(atom2.getLeft(), atom2.getRight()));
@@ -396,4 +617,9 @@ public class RewriterImpl implements Rewriter {
     public String getFreshVariableName() {
         return "v" + ++this.variable_counter;
     }
+
+    @Override
+    public void addListener(RewritingListener listener) {
+        this.listeners.add(listener);
+    }
 }
@@ -0,0 +1,164 @@
+package at.tuwien.kbs.logic.impl;
+
+import at.tuwien.kbs.logic.RewritingListener;
+import at.tuwien.kbs.logic.RewritingRule;
+import at.tuwien.kbs.structure.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A listener that collects counters and timers of rewritings: the number of queries each rule produced and the time
+ * it took, and the size of the frontier, the number of generated queries and the number of new queries per round.
+ * The metrics of all observed rewritings are summed up. The counters of the rules are thread-safe, such that the
+ * metrics can be collected from a parallel rewriter.
+ */
+public class RewritingMetrics implements RewritingListener {
+
+    private final LongAdder[] produced = new LongAdder[RewritingRule.values().length];
+
+    private final LongAdder[] nanos = new LongAdder[RewritingRule.values().length];
+
+    private final List<long[]> rounds = new ArrayList<>();
+
+    private String query;
+
+    private long rewritings;
+
+    private long rewritingNanos;
+
+    /**
+     * Initialize empty metrics.
+     */
+    public RewritingMetrics() {
+        for (int i = 0; i < this.produced.length; i++) {
+            this.produced[i] = new LongAdder();
+            this.nanos[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public synchronized void rewritingStarted(Query query) {
+        this.query = query.toString();
+    }
+
+    @Override
+    public synchronized void roundStarted(int round, int frontier) {
+        this.rounds.add(new long[]{frontier, 0, 0});
+    }
+
+    @Override
+    public void ruleApplied(RewritingRule rule, int produced, long nanos) {
+        this.produced[rule.ordinal()].add(produced);
+        this.nanos[rule.ordinal()].add(nanos);
+    }
+
+    @Override
+    public synchronized void roundFinished(int round, int generated, int added) {
+        long[] r = this.rounds.get(this.rounds.size() - 1);
+        r[1] = generated;
+        r[2] = added;
+    }
+
+    @Override
+    public synchronized void rewritingFinished(int rewritings, long nanos) {
+        this.rewritings += rewritings;
+        this.rewritingNanos += nanos;
+    }
+
+    /**
+     * Get the number of queries a rule produced.
+     * @param rule The rule.
+     * @return The number of queries, including the ones that were found before.
+     */
+    public long getProduced(RewritingRule rule) {
+        return this.produced[rule.ordinal()].sum();
+    }
+
+    /**
+     * Get the time spent in a rule.
+     * @param rule The rule.
+     * @return The time in nanoseconds, summed up over all threads.
+     */
+    public long getNanos(RewritingRule rule) {
+        return this.nanos[rule.ordinal()].sum();
+    }
+
+    /**
+     * Get the number of rounds.
+     * @return The number of rounds.
+     */
+    public synchronized int getRounds() {
+        return this.rounds.size();
+    }
+
+    /**
+     * Get the number of generated queries that had been found before.
+     * @return The number of duplicates.
+     */
+    public synchronized long getDuplicates() {
+        return this.rounds.stream().mapToLong(r -> r[1] - r[2]).sum();
+    }
+
+    /**
+     * Write the metrics as a JSON object, e.g.
+     * <pre>
+     * {"query": "...", "rewritings": 12, "millis": 3.5, "rounds": 2, "generated": 20, "duplicates": 9,
+     *  "rules": {"replace": {"rule": "a", "produced": 5, "millis": 0.7}, ...},
+     *  "frontiers": [{"round": 1, "frontier": 1, "generated": 6, "added": 6}, ...]}
+     * </pre>
+     * where the time of a rule is summed up over all threads.
+     * @return The metrics in JSON format.
+     */
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"query\": ").append(this.query != null ? string(this.query) : "null").append(",\n");
+        json.append("  \"rewritings\": ").append(this.rewritings).append(",\n");
+        json.append("  \"millis\": ").append(millis(this.rewritingNanos)).append(",\n");
+        json.append("  \"rounds\": ").append(this.rounds.size()).append(",\n");
+        json.append("  \"generated\": ").append(this.rounds.stream().mapToLong(r -> r[1]).sum()).append(",\n");
+        json.append("  \"duplicates\": ").append(getDuplicates()).append(",\n");
+        json.append("  \"rules\": {\n");
+        RewritingRule[] rules = RewritingRule.values();
+        for (int i = 0; i < rules.length; i++) {
+            json.append("    ").append(string(rules[i].name().toLowerCase(Locale.ROOT))).append(": {")
+                    .append("\"rule\": ").append(string(String.valueOf(rules[i].getLabel())))
+                    .append(", \"produced\": ").append(getProduced(rules[i]))
+                    .append(", \"millis\": ").append(millis(getNanos(rules[i])))
+                    .append(i < rules.length - 1 ? "},\n" : "}\n");
+        }
+        json.append("  },\n");
+        json.append("  \"frontiers\": [");
+        for (int i = 0; i < this.rounds.size(); i++) {
+            long[] r = this.rounds.get(i);
+            json.append(i > 0 ? ",\n    " : "\n    ")
+                    .append("{\"round\": ").append(i + 1)
+                    .append(", \"frontier\": ").append(r[0])
+                    .append(", \"generated\": ").append(r[1])
+                    .append(", \"added\": ").append(r[2]).append('}');
+        }
+        json.append(this.rounds.isEmpty() ? "]\n" : "\n  ]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String string(String s) {
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -6,12 +6,15 @@ import at.tuwien.kbs.structure.query.*;
 import at.tuwien.kbs.structure.query.impl.QueryImpl;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 public class UnifierImpl implements Unifier {
     private final List<Substitution> substitutions;
 
+    /**
+     * The resolved substitution, mapping every substituted term to the representative of its class.
+     */
+    private final Map<Term, Term> resolved;
+
     /**
      * Initialize a new Unifier object.
      * Precondition for correctness: The input lists have equal length.
@@ -21,54 +24,65 @@ public class UnifierImpl implements Unifier {
      * @param t2 List of terms to be unified.
      */
     public UnifierImpl(List<Term> t1, List<Term> t2) {
-        this.substitutions = IntStream.range(0, Math.min(t1.size(), t2.size()))
-                .mapToObj(i -> new SubstitutionImpl(t1.get(i), t2.get(i)))
-                .collect(Collectors.toList());
         // compute most general unifier
-        most_general_unifier();
+        this.resolved = most_general_unifier(t1, t2);
+        this.substitutions = new ArrayList<>(this.resolved.size());
+        this.resolved.forEach((in, out) -> this.substitutions.add(new SubstitutionImpl(in, out)));
     }
 
     /**
-     * Compute the most general unifier of the list of substitutions.
+     * Compute the most general unifier of two lists of terms with union-find.
+     * The representative of a class of terms is a bound term, if the class contains one, and otherwise the term on
+     * the right side of the pair that merged the classes last.
+     *
+     * @param t1 List of terms to be unified.
+     * @param t2 List of terms to be unified.
+     * @return The map from every term that is substituted to the representative of its class, in the order in
+     * which the terms occur in the lists.
      */
-    private void most_general_unifier() {
-        boolean action = true;
-        while (action) {
-            action = false;
-            // delete equal pairs
-            Iterator<Substitution> itr = this.substitutions.iterator();
-            while (itr.hasNext()) {
-                Substitution sub = itr.next();
-                if (sub.getIn().equals(sub.getOut())) {
-                    itr.remove();
-                    action = true;
-                }
+    private static Map<Term, Term> most_general_unifier(List<Term> t1, List<Term> t2) {
+        int n = Math.min(t1.size(), t2.size());
+        // terms in the order of their first occurrence
+        Map<Term, Term> parent = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            parent.putIfAbsent(t1.get(i), t1.get(i));
+            parent.putIfAbsent(t2.get(i), t2.get(i));
+        }
+        for (int i = 0; i < n; i++) {
+            Term root1 = find(parent, t1.get(i));
+            Term root2 = find(parent, t2.get(i));
+            if (root1.equals(root2)) {
+                continue;
             }
-            // replace where out is an unbound variable and in is not
-            for (Substitution sub : this.substitutions) {
-                if (sub.getOut() instanceof UnboundVariable && !(sub.getIn() instanceof UnboundVariable)) {
-                    Term tmp = sub.getOut();
-                    sub.setOut(sub.getIn());
-                    sub.setIn(tmp);
-                    action = true;
-                }
+            // the root of a class is bound if the class contains a bound term
+            if (root2 instanceof UnboundVariable && !(root1 instanceof UnboundVariable)) {
+                parent.put(root2, root1);
+            } else {
+                parent.put(root1, root2);
             }
-            // perform substitution on other pairs
-            for (Substitution sub : this.substitutions) {
-                for (Substitution sub1 : this.substitutions) {
-                    if (!sub1.equals(sub)) {
-                        if (sub1.getIn().equals(sub.getIn())) {
-                            sub1.setIn(sub.getOut());
-                            action = true;
-                        }
-                        if (sub1.getOut().equals(sub.getIn())) {
-                            sub1.setOut(sub.getOut());
-                            action = true;
-                        }
-                    }
-                }
+        }
+        Map<Term, Term> resolved = new LinkedHashMap<>();
+        for (Term t : parent.keySet()) {
+            Term root = find(parent, t);
+            if (!root.equals(t)) {
+                resolved.put(t, root);
             }
         }
+        return resolved;
+    }
+
+    private static Term find(Map<Term, Term> parent, Term t) {
+        Term root = t;
+        while (!parent.get(root).equals(root)) {
+            root = parent.get(root);
+        }
+        // path compression
+        while (!t.equals(root)) {
+            Term next = parent.get(t);
+            parent.put(t, root);
+            t = next;
+        }
+        return root;
     }
 
     /**
@@ -78,24 +92,18 @@ public class UnifierImpl implements Unifier {
      * @return A query q' where the substitutions have been applied to the query.
      */
     public Query apply(Query query) {
-        if (this.substitutions.size() == 0) {
+        if (this.resolved.isEmpty()) {
             return query;
         }
-        // apply substitutions to head
-        List<Variable> head = new LinkedList<>(query.getHead());
-        ListIterator<Variable> it = head.listIterator();
-        while (it.hasNext()) {
-            Variable v = it.next();
-            for (Substitution sub : this.substitutions) {
-                if (v.equals(sub.getIn())) {
-                    it.set((Variable) sub.getOut());
-                }
-            }
+        // apply substitutions to head, head variables are bound, so they are only substituted by bound variables
+        List<Variable> head = new LinkedList<>();
+        for (Variable v : query.getHead()) {
+            head.add((Variable) this.resolved.getOrDefault(v, v));
         }
         // apply substitutions to body
         Set<Atom> body = new HashSet<>();
         for (Atom a : query.getBody()) {
-            body.add(a.applySubstitution(this.substitutions));
+            body.add(a.applySubstitution(this.resolved));
         }
         return new QueryImpl(head, body);
     }
@@ -0,0 +1,227 @@
+package at.tuwien.kbs.server;
+
+import at.tuwien.kbs.cache.CachedRewriting;
+import at.tuwien.kbs.cache.RewritingCache;
+import at.tuwien.kbs.logic.Rewriter;
+import at.tuwien.kbs.logic.RewritingBudget;
+import at.tuwien.kbs.logic.RewritingResult;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.translation.Translator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * An HTTP server that keeps ontologies loaded and rewrites queries on request, such that the start-up of the JVM,
+ * the loading of the ontologies and the warm-up of the JIT are only paid once.
+ * <p>
+ * Queries are posted in the syntax of the grammar Q to {@code /rewrite}, the response is the translated query as
+ * plain text. The ontology is selected by its name with the parameter {@code ontology}, it can be omitted if only
+ * one ontology is loaded. If a limit of the budget stops the rewriting, the partial translation is returned with the
+ * header {@code X-Rewriting-Incomplete} set to the exceeded limit, e.g.
+ * <pre>
+ * curl --data 'q(x):-r(x,y)' 'http://localhost:8080/rewrite?ontology=university'
+ * </pre>
+ * {@code GET /ontologies} lists the names of the loaded ontologies, one per line.
+ */
+public class RewritingServer {
+
+    private final Map<String, Ontology> ontologies;
+
+    private final Supplier<Rewriter> rewriters;
+
+    private final Translator translator;
+
+    private final RewritingCache cache;
+
+    private final String configuration;
+
+    private final int workers;
+
+    private final RewritingBudget budget;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * Initialize a new server.
+     *
+     * @param ontologies The ontologies by name.
+     * @param rewriters Creates a rewriter for each request, since rewriters keep state while rewriting.
+     * @param translator The translator, it must be thread-safe.
+     * @param cache The cache of rewritings, or null to rewrite every request.
+     * @param configuration A description of the settings of the rewriters and the translator, see
+     *                      {@link RewritingCache#key}.
+     * @param workers The number of threads that handle requests.
+     * @param budget The limits of every rewriting, such that a single query cannot occupy the server.
+     */
+    public RewritingServer(Map<String, Ontology> ontologies, Supplier<Rewriter> rewriters, Translator translator,
+                           RewritingCache cache, String configuration, int workers, RewritingBudget budget) {
+        if (ontologies.isEmpty()) {
+            throw new IllegalArgumentException("At least one ontology is needed");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be positive, got " + workers);
+        }
+        this.ontologies = new TreeMap<>(ontologies);
+        this.rewriters = rewriters;
+        this.translator = translator;
+        this.cache = cache;
+        this.configuration = configuration;
+        this.workers = workers;
+        this.budget = budget;
+        // computed once up front, instead of by the first request
+        this.ontologies.values().forEach(Ontology::getFingerprint);
+    }
+
+    /**
+     * Start listening for requests.
+     *
+     * @param address The address to listen on, port 0 picks a free port.
+     * @throws IOException If the server cannot be bound to the address.
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newFixedThreadPool(this.workers);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/rewrite", this::handleRewrite);
+        this.server.createContext("/ontologies", this::handleOntologies);
+        this.server.start();
+    }
+
+    /**
+     * Get the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Stop the server, requests that are being handled are given one second to finish.
+     */
+    public void stop() {
+        this.server.stop(1);
+        this.executor.shutdown();
+    }
+
+    /**
+     * Rewrite and translate a query, the result is only cached if it is complete.
+     *
+     * @param ontology The ontology.
+     * @param queryString The query in string format, according to the grammar Q.
+     * @param exceeded Receives the limit that stopped the rewriting, if any.
+     * @return The rewriting.
+     */
+    private CachedRewriting rewrite(Ontology ontology, String queryString,
+                                    AtomicReference<RewritingBudget.Limit> exceeded) {
+        // the names come from the clients, unknown names must not add classes to the vocabulary
+        Query query = new QueryParserImpl(ontology, true).parse(queryString);
+
+        String key = null;
+        if (this.cache != null) {
+            key = this.cache.key(ontology, query, this.configuration);
+            CachedRewriting rewriting = this.cache.get(key);
+            if (rewriting != null) {
+                return rewriting;
+            }
+        }
+
+        RewritingResult result = this.rewriters.get().rewrite(query, ontology, this.budget);
+        CachedRewriting rewriting = CachedRewriting.of(result.getQueries(),
+                this.translator.translate(query.getHead(), result.getQueries()));
+        if (!result.isComplete()) {
+            exceeded.set(result.getExceeded());
+        } else if (this.cache != null) {
+            this.cache.put(key, rewriting);
+        }
+        return rewriting;
+    }
+
+    private void handleRewrite(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Queries must be posted");
+                return;
+            }
+            String name = parameters(exchange).get("ontology");
+            Ontology ontology;
+            if (name != null) {
+                ontology = this.ontologies.get(name);
+            } else {
+                ontology = this.ontologies.size() == 1 ? this.ontologies.values().iterator().next() : null;
+            }
+            if (ontology == null) {
+                respond(exchange, 404, name != null ? "Unknown ontology " + name :
+                        "The parameter ontology is needed, the loaded ontologies are " + this.ontologies.keySet());
+                return;
+            }
+
+            String queryString = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            CachedRewriting rewriting;
+            AtomicReference<RewritingBudget.Limit> exceeded = new AtomicReference<>();
+            try {
+                rewriting = rewrite(ontology, queryString.trim(), exceeded);
+            } catch (RuntimeException e) {
+                // unknown names in the query end up here
+                respond(exchange, 400, "The query could not be rewritten: " + e);
+                return;
+            }
+            if (exceeded.get() != null) {
+                exchange.getResponseHeaders().set("X-Rewriting-Incomplete", exceeded.get().name());
+            }
+            respond(exchange, 200, rewriting.getTranslation());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleOntologies(HttpExchange exchange) throws IOException {
+        try {
+            respond(exchange, 200, String.join("\n", this.ontologies.keySet()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Decode the parameters of the query string of the request URI.
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int i = parameter.indexOf('=');
+                if (i > 0) {
+                    parameters.put(URLDecoder.decode(parameter.substring(0, i), StandardCharsets.UTF_8),
+                            URLDecoder.decode(parameter.substring(i + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+}
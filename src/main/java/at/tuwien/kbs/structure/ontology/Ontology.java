@@ -1,6 +1,7 @@
 package at.tuwien.kbs.structure.ontology;
 
 import org.semanticweb.owlapi.model.*;
+import java.util.BitSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -15,7 +16,13 @@ public interface Ontology {
      */
     public Map<String, OWLClass> getClassMap();
 
-
+    /**
+     * Get the class with a simple name. A name that does not occur in the ontology is mapped to a new class, which is
+     * not added to the ontology. The method is thread-safe.
+     * @param name The simple class name.
+     * @return The class of the ontology with the name, or the class that has the name as IRI.
+     */
+    public OWLClass lookupClass(String name);
 
     /**
      * Get the object property map.
@@ -35,7 +42,82 @@ public interface Ontology {
      */
     public Set<OWLAxiom> getAxioms();
 
+    /**
+     * Get a content hash of the logical axioms of the ontology.
+     * Two ontologies with the same logical axioms have the same fingerprint, independent of the file they were
+     * loaded from and of the order of the axioms; declarations, e.g. of classes added by {@link #addClass}, are
+     * ignored.
+     * @return The SHA-256 hash of the logical axioms in hexadecimal notation.
+     */
+    public String getFingerprint();
+
+    /**
+     * Get the named subclasses of a class, i.e. the reflexive-transitive closure of the subclass axioms.
+     * @param c The class.
+     * @return Set of classes B such that B \ISA c follows from the subclass axioms, including c.
+     */
+    public Set<OWLClassExpression> getSubConcepts(OWLClassExpression c);
+
+    /**
+     * Get the ids of the named subclasses of a class, see {@link Vocabulary}. The returned set must not be modified.
+     * @param c The id of the class.
+     * @return Set of ids of the classes B such that B \ISA c follows from the subclass axioms, including c.
+     */
+    public BitSet getSubConcepts(int c);
+
+    /**
+     * Get the sub-roles of a property or inverse property, i.e. the reflexive-transitive closure of the
+     * sub-property and inverse property axioms.
+     * @param r The property or inverse property.
+     * @return Set of (inverse) properties R such that R \ISA r follows from the ontology, including r.
+     */
+    public Set<OWLObjectPropertyExpression> getSubRoles(OWLObjectPropertyExpression r);
+
+    /**
+     * Get the ids of the sub-roles of a property or inverse property, see {@link Vocabulary}.
+     * The returned set must not be modified.
+     * @param r The id of the property or inverse property.
+     * @return Set of ids of the (inverse) properties R such that R \ISA r follows from the ontology, including r.
+     */
+    public BitSet getSubRoles(int r);
+
+    /**
+     * Get the sub-properties of a property, i.e. the reflexive-transitive closure of the sub-property axioms only.
+     * Used for arbitrary length atoms, which do not admit inverses.
+     * @param r The property.
+     * @return Set of properties R such that R \ISA r follows from the sub-property axioms, including r.
+     */
+    public Set<OWLObjectPropertyExpression> getSubProperties(OWLObjectPropertyExpression r);
+
+    /**
+     * Get the ids of the sub-properties of a property, see {@link Vocabulary}. The returned set must not be modified.
+     * @param r The id of the property.
+     * @return Set of ids of the properties R such that R \ISA r follows from the sub-property axioms, including r.
+     */
+    public BitSet getSubProperties(int r);
+
+    /**
+     * Get the subclass, domain and range axioms that have the class on the right-hand side.
+     * @param c The class.
+     * @return Set of axioms of the form B \ISA c or \exists R \ISA c.
+     */
+    public Set<OWLAxiom> getAxiomsForClass(OWLClass c);
+
+    /**
+     * Get the subclass, domain and range axioms that have the existential restriction on the property on the
+     * right-hand side.
+     * @param p The property.
+     * @return Set of axioms of the form B \ISA \exists p or \exists R \ISA \exists p.
+     */
+    public Set<OWLAxiom> getAxiomsForProperty(OWLObjectPropertyExpression p);
+
 
+    /**
+     * Add a declaration of a class with the name as IRI to the ontology. The ontology is modified, so this must not
+     * happen concurrently with other calls; see {@link #lookupClass} for a thread-safe lookup.
+     * @param name The name of the class.
+     * @return The declared class.
+     */
     public OWLClass addClass(String name);
 
 }
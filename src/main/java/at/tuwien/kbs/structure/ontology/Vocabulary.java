@@ -0,0 +1,226 @@
+package at.tuwien.kbs.structure.ontology;
+
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLObjectInverseOf;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dense integer encoding of the classes and properties that occur in queries and ontologies.
+ * Sets of concepts and roles are represented as {@link BitSet}s over these ids.
+ * A property p is encoded as an even id 2k and its inverse p- as the odd id 2k+1, such that the inverse of a role
+ * is obtained by flipping the lowest bit of its id.
+ * The vocabulary is shared by all ontologies and queries, ids are never reassigned.
+ */
+public final class Vocabulary {
+
+    private static final Vocabulary INSTANCE = new Vocabulary();
+
+    /**
+     * Mask of the even bits in a word of a role set.
+     */
+    private static final long EVEN_BITS = 0x5555555555555555L;
+
+    private final Map<OWLClassExpression, Integer> classIds = new ConcurrentHashMap<>();
+
+    private final Map<OWLObjectProperty, Integer> propertyIds = new ConcurrentHashMap<>();
+
+    /**
+     * The classes, indexed by their id.
+     */
+    private volatile OWLClassExpression[] classes = new OWLClassExpression[64];
+
+    /**
+     * The named properties, indexed by their id divided by two.
+     */
+    private volatile OWLObjectProperty[] properties = new OWLObjectProperty[64];
+
+    private Vocabulary() {
+    }
+
+    /**
+     * Get the vocabulary.
+     * @return The vocabulary shared by all ontologies and queries.
+     */
+    public static Vocabulary getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the id of a class, assigning a new id if the class has not been encoded before.
+     * @param c The class.
+     * @return The id of the class.
+     */
+    public int getClassId(OWLClassExpression c) {
+        Integer id = this.classIds.get(c);
+        return id != null ? id : registerClass(c);
+    }
+
+    private synchronized int registerClass(OWLClassExpression c) {
+        Integer id = this.classIds.get(c);
+        if (id != null) {
+            return id;
+        }
+        int next = this.classIds.size();
+        if (next == this.classes.length) {
+            this.classes = Arrays.copyOf(this.classes, 2 * next);
+        }
+        this.classes[next] = c;
+        this.classIds.put(c, next);
+        return next;
+    }
+
+    /**
+     * Get the class with the given id.
+     * @param id The id of the class.
+     * @return The class.
+     */
+    public OWLClassExpression getClass(int id) {
+        return this.classes[id];
+    }
+
+    /**
+     * Get the id of a property or inverse property, assigning a new id if the property has not been encoded
+     * before.
+     * @param r The property or inverse property.
+     * @return The id of the role, even for properties and odd for inverse properties.
+     */
+    public int getRoleId(OWLObjectPropertyExpression r) {
+        OWLObjectProperty p = r.getNamedProperty();
+        Integer id = this.propertyIds.get(p);
+        int base = 2 * (id != null ? id : registerProperty(p));
+        return (r instanceof OWLObjectInverseOf) ? base + 1 : base;
+    }
+
+    private synchronized int registerProperty(OWLObjectProperty p) {
+        Integer id = this.propertyIds.get(p);
+        if (id != null) {
+            return id;
+        }
+        int next = this.propertyIds.size();
+        if (next == this.properties.length) {
+            this.properties = Arrays.copyOf(this.properties, 2 * next);
+        }
+        this.properties[next] = p;
+        this.propertyIds.put(p, next);
+        return next;
+    }
+
+    /**
+     * Get the role with the given id.
+     * @param id The id of the role.
+     * @return The property, or its inverse if the id is odd.
+     */
+    public OWLObjectPropertyExpression getRole(int id) {
+        OWLObjectProperty p = this.properties[id >> 1];
+        return (id & 1) == 1 ? p.getInverseProperty() : p;
+    }
+
+    /**
+     * Get the number of class ids that have been assigned.
+     * @return Upper bound (exclusive) of the class ids.
+     */
+    public int getClassCount() {
+        return this.classIds.size();
+    }
+
+    /**
+     * Get the number of role ids that have been assigned, counting properties and their inverses.
+     * @return Upper bound (exclusive) of the role ids.
+     */
+    public int getRoleCount() {
+        return 2 * this.propertyIds.size();
+    }
+
+    /**
+     * Encode a set of classes.
+     * @param concepts The classes.
+     * @return The set of ids of the classes.
+     */
+    public BitSet encodeClasses(Collection<? extends OWLClassExpression> concepts) {
+        BitSet ids = new BitSet();
+        for (OWLClassExpression c : concepts) {
+            ids.set(getClassId(c));
+        }
+        return ids;
+    }
+
+    /**
+     * Decode a set of class ids.
+     * @param ids The set of ids.
+     * @return The set of classes.
+     */
+    public Set<OWLClassExpression> decodeClasses(BitSet ids) {
+        Set<OWLClassExpression> concepts = new HashSet<>();
+        for (int i = ids.nextSetBit(0); i >= 0; i = ids.nextSetBit(i + 1)) {
+            concepts.add(getClass(i));
+        }
+        return concepts;
+    }
+
+    /**
+     * Encode a set of properties and inverse properties.
+     * @param roles The roles.
+     * @return The set of ids of the roles.
+     */
+    public BitSet encodeRoles(Collection<? extends OWLObjectPropertyExpression> roles) {
+        BitSet ids = new BitSet();
+        for (OWLObjectPropertyExpression r : roles) {
+            ids.set(getRoleId(r));
+        }
+        return ids;
+    }
+
+    /**
+     * Decode a set of role ids.
+     * @param ids The set of ids.
+     * @return The set of properties and inverse properties.
+     */
+    public Set<OWLObjectPropertyExpression> decodeRoles(BitSet ids) {
+        Set<OWLObjectPropertyExpression> roles = new HashSet<>();
+        for (int i = ids.nextSetBit(0); i >= 0; i = ids.nextSetBit(i + 1)) {
+            roles.add(getRole(i));
+        }
+        return roles;
+    }
+
+    /**
+     * Get the id of the inverse of a role.
+     * @param id The id of the role.
+     * @return The id of the inverse role.
+     */
+    public static int inverse(int id) {
+        return id ^ 1;
+    }
+
+    /**
+     * Invert all roles of a set of role ids by swapping every pair of adjacent bits.
+     * @param ids The set of role ids.
+     * @return A new set that contains the inverses of the roles.
+     */
+    public static BitSet inverse(BitSet ids) {
+        long[] words = ids.toLongArray();
+        for (int i = 0; i < words.length; i++) {
+            words[i] = ((words[i] & EVEN_BITS) << 1) | ((words[i] >>> 1) & EVEN_BITS);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Check if a set of ids is a subset of another one.
+     * @param set The superset.
+     * @param subset The subset.
+     * @return True if every id in subset is also in set, False otherwise.
+     */
+    public static boolean containsAll(BitSet set, BitSet subset) {
+        for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+            if (!set.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,6 +1,7 @@
 package at.tuwien.kbs.structure.ontology.impl;
 
 import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.Vocabulary;
 import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.*;
@@ -8,8 +9,13 @@ import org.semanticweb.owlapi.profiles.OWL2QLProfile;
 import org.semanticweb.owlapi.profiles.OWLProfileReport;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Set;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +36,35 @@ public class OntologyImpl implements Ontology {
      * A Map that maps simple role names to the properties in the ontology.
      */
     private HashMap<String, OWLObjectProperty> propertyMap;
+    /**
+     * The axioms of the ontology.
+     */
+    private Set<OWLAxiom> axioms;
+    /**
+     * A Map that maps each class to the axioms that have the class on the right-hand side.
+     */
+    private Map<OWLClass, Set<OWLAxiom>> classAxiomIndex;
+    /**
+     * A Map that maps each property R to the axioms that have \exists R on the right-hand side.
+     */
+    private Map<OWLObjectPropertyExpression, Set<OWLAxiom>> propertyAxiomIndex;
+    /**
+     * A bitset matrix that maps each class id to the ids of its reflexive-transitive closure of named subclasses.
+     */
+    private BitSet[] subConcepts;
+    /**
+     * A bitset matrix that maps each role id to the ids of its reflexive-transitive closure of sub-roles,
+     * taking inverse properties into account.
+     */
+    private BitSet[] subRoles;
+    /**
+     * A bitset matrix that maps each role id to the ids of its reflexive-transitive closure of sub-properties.
+     */
+    private BitSet[] subProperties;
+    /**
+     * The cached fingerprint of the logical axioms, null if it has not been computed yet.
+     */
+    private String fingerprint;
 
     /**
      * Initialize a new Ontology Wrapper from a file.
@@ -38,25 +73,46 @@ public class OntologyImpl implements Ontology {
      * @throws NotOWL2QLException If the ontology is not in OWL2 QL.
      */
     public OntologyImpl(String path) throws OWLOntologyCreationException, NotOWL2QLException {
-        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-        OWLOntology ontology = manager.loadOntologyFromOntologyDocument(new File(path));
+        this(OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(new File(path)));
+    }
+
+    /**
+     * Initialize a new Ontology Wrapper from an ontology that has been loaded or created with the OWL API.
+     * @param ontology The ontology, it is modified when classes are added.
+     * @throws NotOWL2QLException If the ontology is not in OWL2 QL.
+     */
+    public OntologyImpl(OWLOntology ontology) throws NotOWL2QLException {
         OWLProfileReport report = new OWL2QLProfile().checkOntology(ontology);
         if (!report.isInProfile()) {
             throw new NotOWL2QLException();
         }
         this.ontology = ontology;
-        this.manager = manager;
+        this.manager = ontology.getOWLOntologyManager();
         generateClassMap();
         generatePropertyMap();
+        generateAxiomIndex();
+        generateHierarchy();
     }
 
 
+    @Override
+    public OWLClass lookupClass(String name) {
+        OWLClass c = this.classMap.get(name);
+        if (c != null) {
+            return c;
+        }
+        // classes are equal by their IRI, so unknown classes need not be kept
+        return OWLManager.getOWLDataFactory().getOWLClass(IRI.create(name));
+    }
+
+    @Override
     public OWLClass addClass(String name) {
 
         OWLDataFactory df = OWLManager.getOWLDataFactory();
         OWLEntity entity = df.getOWLEntity(EntityType.CLASS, IRI.create(name));
         OWLAxiom declare = df.getOWLDeclarationAxiom(entity);
         manager.addAxiom(this.ontology,declare);
+        this.axioms.add(declare);
 
         return (OWLClass) entity;
     }
@@ -84,6 +140,149 @@ public class OntologyImpl implements Ontology {
         }
     }
 
+    /**
+     * Generate the index of the axioms that can be applied in the rewriting, i.e. the subclass, domain and range
+     * axioms, by the class or the existential restriction on their right-hand side.
+     */
+    private void generateAxiomIndex() {
+        this.axioms = new HashSet<>(this.ontology.getAxioms());
+        this.classAxiomIndex = new HashMap<>();
+        this.propertyAxiomIndex = new HashMap<>();
+        for (OWLAxiom a : this.axioms) {
+            if (a instanceof OWLSubClassOfAxiom) {
+                indexAxiom(a, ((OWLSubClassOfAxiom) a).getSuperClass());
+            } else if (a instanceof OWLObjectPropertyDomainAxiom) {
+                indexAxiom(a, ((OWLObjectPropertyDomainAxiom) a).getDomain());
+            } else if (a instanceof OWLObjectPropertyRangeAxiom) {
+                indexAxiom(a, ((OWLObjectPropertyRangeAxiom) a).getRange());
+            }
+        }
+    }
+
+    /**
+     * Add an axiom to the index under the class expression on its right-hand side.
+     *
+     * @param a The axiom.
+     * @param rhs The right-hand side of the axiom, either A or \exists R.
+     */
+    private void indexAxiom(OWLAxiom a, OWLClassExpression rhs) {
+        if (rhs instanceof OWLClass) {
+            this.classAxiomIndex.computeIfAbsent((OWLClass) rhs, k -> new HashSet<>()).add(a);
+        } else if (rhs instanceof OWLObjectSomeValuesFrom) {
+            this.propertyAxiomIndex.computeIfAbsent(((OWLObjectSomeValuesFrom) rhs).getProperty(),
+                    k -> new HashSet<>()).add(a);
+        }
+    }
+
+    /**
+     * Generate the reflexive-transitive closures of the concept and role hierarchies.
+     */
+    private void generateHierarchy() {
+        Vocabulary vocabulary = Vocabulary.getInstance();
+        Set<OWLClassExpression> classes = new HashSet<>(this.ontology.getClassesInSignature());
+        this.subConcepts = matrix(closure(classes, c -> this.ontology.getSubClassAxiomsForSuperClass(c.asOWLClass())
+                .stream()
+                .map(OWLSubClassOfAxiom::getSubClass)
+                .filter(cls -> cls instanceof OWLClass)
+                .collect(Collectors.toSet())), vocabulary::getClassId, vocabulary::encodeClasses);
+
+        Set<OWLObjectPropertyExpression> properties = new HashSet<>();
+        for (OWLObjectProperty p : this.ontology.getObjectPropertiesInSignature()) {
+            properties.add(p);
+            properties.add(p.getInverseProperty());
+        }
+        this.subRoles = matrix(closure(properties, r -> {
+            Set<OWLObjectPropertyExpression> sub = new HashSet<>();
+            // R1 \ISA R
+            this.ontology.getObjectSubPropertyAxiomsForSuperProperty(r)
+                    .forEach(a -> sub.add(a.getSubProperty()));
+            // R1 \ISA R-
+            this.ontology.getObjectSubPropertyAxiomsForSuperProperty(r.getInverseProperty())
+                    .forEach(a -> sub.add(a.getSubProperty().getInverseProperty()));
+            // inverses
+            // use the named property (in case of inverse), and add the inverse of the inverse in case
+            // r is an inverse itself.
+            this.ontology.getInverseObjectPropertyAxioms(r.getNamedProperty())
+                    .stream()
+                    .map(a -> a.getPropertiesMinus(r.getNamedProperty()))
+                    .flatMap(Collection::stream)
+                    .forEach(p -> sub.add((r instanceof OWLObjectInverseOf) ? p : p.getInverseProperty()));
+            return sub;
+        }), vocabulary::getRoleId, vocabulary::encodeRoles);
+        this.subProperties = matrix(closure(properties, r -> this.ontology.getObjectSubPropertyAxiomsForSuperProperty(r)
+                .stream()
+                .map(OWLSubObjectPropertyOfAxiom::getSubProperty)
+                .collect(Collectors.toSet())), vocabulary::getRoleId, vocabulary::encodeRoles);
+    }
+
+    /**
+     * Encode the closures of a relation as a bitset matrix over the ids in the {@link Vocabulary}.
+     *
+     * @param closures The closures.
+     * @param id The function that maps a node to its id.
+     * @param encode The function that maps a set of nodes to their ids.
+     * @param <T> The type of nodes.
+     * @return An array that contains at the id of each node the ids of its closure.
+     */
+    private static <T> BitSet[] matrix(Map<T, Set<T>> closures, ToIntFunction<T> id, Function<Set<T>, BitSet> encode) {
+        Map<Integer, BitSet> rows = new HashMap<>();
+        for (Map.Entry<T, Set<T>> e : closures.entrySet()) {
+            rows.put(id.applyAsInt(e.getKey()), encode.apply(e.getValue()));
+        }
+        BitSet[] matrix = new BitSet[rows.keySet().stream().mapToInt(i -> i + 1).max().orElse(0)];
+        rows.forEach((i, row) -> matrix[i] = row);
+        return matrix;
+    }
+
+    /**
+     * Get a row of a bitset matrix, the row of nodes without entry only contains the node itself.
+     *
+     * @param matrix The bitset matrix.
+     * @param i The id of the node.
+     * @return The row of the node.
+     */
+    private static BitSet row(BitSet[] matrix, int i) {
+        if (i < matrix.length && matrix[i] != null) {
+            return matrix[i];
+        }
+        BitSet row = new BitSet();
+        row.set(i);
+        return row;
+    }
+
+    /**
+     * Compute the reflexive-transitive closure of a relation for a set of start nodes.
+     *
+     * @param nodes The nodes for which the closure is computed.
+     * @param step The relation, mapping a node to its direct successors.
+     * @param <T> The type of nodes.
+     * @return A Map from each node (and each node reachable from it) to the set of nodes reachable from it.
+     */
+    private static <T> Map<T, Set<T>> closure(Set<T> nodes, Function<T, Set<T>> step) {
+        Map<T, Set<T>> direct = new HashMap<>();
+        Map<T, Set<T>> closures = new HashMap<>();
+        Deque<T> pending = new ArrayDeque<>(nodes);
+        while (!pending.isEmpty()) {
+            T node = pending.pop();
+            if (closures.containsKey(node)) {
+                continue;
+            }
+            // breadth-first search over the relation
+            Set<T> reachable = new HashSet<>(Collections.singleton(node));
+            Deque<T> queue = new ArrayDeque<>(reachable);
+            while (!queue.isEmpty()) {
+                for (T next : direct.computeIfAbsent(queue.pop(), step)) {
+                    if (reachable.add(next)) {
+                        queue.add(next);
+                        pending.add(next);
+                    }
+                }
+            }
+            closures.put(node, Collections.unmodifiableSet(reachable));
+        }
+        return closures;
+    }
+
     /**
      * Get the class map
      * @return Map of simple class names and their OWLClasses
@@ -113,6 +312,71 @@ public class OntologyImpl implements Ontology {
 
     @Override
     public Set<OWLAxiom> getAxioms() {
-        return this.ontology.getAxioms();
+        return Collections.unmodifiableSet(this.axioms);
+    }
+
+    @Override
+    public String getFingerprint() {
+        if (this.fingerprint == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not supported", e);
+            }
+            // the axioms are hashed in a fixed order, since the order of the OWL API sets is not specified
+            this.ontology.logicalAxioms()
+                    .map(OWLAxiom::toString)
+                    .sorted()
+                    .forEach(a -> {
+                        digest.update(a.getBytes(StandardCharsets.UTF_8));
+                        digest.update((byte) '\n');
+                    });
+            this.fingerprint = String.format("%064x", new BigInteger(1, digest.digest()));
+        }
+        return this.fingerprint;
+    }
+
+    @Override
+    public Set<OWLClassExpression> getSubConcepts(OWLClassExpression c) {
+        Vocabulary vocabulary = Vocabulary.getInstance();
+        return vocabulary.decodeClasses(getSubConcepts(vocabulary.getClassId(c)));
+    }
+
+    @Override
+    public BitSet getSubConcepts(int c) {
+        return row(this.subConcepts, c);
+    }
+
+    @Override
+    public Set<OWLObjectPropertyExpression> getSubRoles(OWLObjectPropertyExpression r) {
+        Vocabulary vocabulary = Vocabulary.getInstance();
+        return vocabulary.decodeRoles(getSubRoles(vocabulary.getRoleId(r)));
+    }
+
+    @Override
+    public BitSet getSubRoles(int r) {
+        return row(this.subRoles, r);
+    }
+
+    @Override
+    public Set<OWLObjectPropertyExpression> getSubProperties(OWLObjectPropertyExpression r) {
+        Vocabulary vocabulary = Vocabulary.getInstance();
+        return vocabulary.decodeRoles(getSubProperties(vocabulary.getRoleId(r)));
+    }
+
+    @Override
+    public BitSet getSubProperties(int r) {
+        return row(this.subProperties, r);
+    }
+
+    @Override
+    public Set<OWLAxiom> getAxiomsForClass(OWLClass c) {
+        return this.classAxiomIndex.getOrDefault(c, Collections.emptySet());
+    }
+
+    @Override
+    public Set<OWLAxiom> getAxiomsForProperty(OWLObjectPropertyExpression p) {
+        return this.propertyAxiomIndex.getOrDefault(p, Collections.emptySet());
     }
 }
@@ -7,12 +7,18 @@ import at.tuwien.kbs.structure.ontology.Ontology;
 import at.tuwien.kbs.structure.parser.QueryParser;
 import at.tuwien.kbs.structure.query.*;
 import at.tuwien.kbs.structure.query.impl.*;
-import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
 import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
@@ -21,21 +27,68 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * A parser for queries of the grammar Q. The parser is thread-safe: each thread reuses its own lexer and parser, the
+ * generated recognizers share their DFA cache, and the visitor has no state but the ontology, which is only read.
+ * <p>
+ * Queries are parsed in two stages: first with SLL prediction, which is faster and suffices for all queries that are
+ * valid, and only if that fails again with full LL prediction, which reports the syntax errors.
+ * <p>
+ * A strict parser rejects the names that do not occur in the ontology, such that queries from untrusted sources
+ * cannot add classes to the {@link at.tuwien.kbs.structure.ontology.Vocabulary}.
+ */
 public class QueryParserImpl extends QBaseVisitor<Object> implements QueryParser {
 
+    /**
+     * The parser of the current thread, reading the tokens of its lexer.
+     */
+    private static final ThreadLocal<QParser> PARSERS = ThreadLocal.withInitial(() ->
+            new QParser(new CommonTokenStream(new QLexer(CharStreams.fromString("")))));
+
+    private static final ANTLRErrorStrategy BAIL = new BailErrorStrategy();
+
     private final Ontology ontology;
 
+    private final boolean strict;
+
     public QueryParserImpl(Ontology ontology) {
+        this(ontology, false);
+    }
+
+    /**
+     * Initialize a parser.
+     * @param ontology The ontology the names in the queries are looked up in.
+     * @param strict True if names that do not occur in the ontology are rejected with an
+     *               {@link IllegalArgumentException}, false if they are mapped to new classes.
+     */
+    public QueryParserImpl(Ontology ontology, boolean strict) {
         this.ontology = ontology;
+        this.strict = strict;
     }
 
     public Query parse(String queryString) {
         // parse query
-        CharStream cs = CharStreams.fromString(queryString);
-        QLexer lexer = new QLexer(cs);
-        QParser parser = new QParser(new CommonTokenStream(lexer));
-
-        ParseTree tree = parser.query();
+        QParser parser = PARSERS.get();
+        CommonTokenStream tokens = (CommonTokenStream) parser.getTokenStream();
+        QLexer lexer = (QLexer) tokens.getTokenSource();
+        lexer.setInputStream(CharStreams.fromString(queryString));
+        tokens.setTokenSource(lexer);
+
+        ParseTree tree;
+        try {
+            parser.setTokenStream(tokens);
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(BAIL);
+            parser.removeErrorListeners();
+            tree = parser.query();
+        } catch (ParseCancellationException e) {
+            tokens.seek(0);
+            parser.setTokenStream(tokens);
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            tree = parser.query();
+        }
 
 //        System.out.println(tree.toStringTree(parser));
 
@@ -84,7 +137,7 @@ public class QueryParserImpl extends QBaseVisitor<Object> implements QueryParser
      */
     @Override
     public Object visitVariable(QParser.VariableContext ctx) {
-        return new VariableImpl(ctx.WORD().toString());
+        return InterningFactory.variable(ctx.WORD().toString());
     }
 
     /**
@@ -243,7 +296,7 @@ public class QueryParserImpl extends QBaseVisitor<Object> implements QueryParser
      */
     @Override
     public Object visitRolename(QParser.RolenameContext ctx) {
-        return this.ontology.getPropertyMap().get((String) this.visitWords(ctx.words()));
+        return property((String) this.visitWords(ctx.words()));
     }
 
     /**
@@ -254,9 +307,15 @@ public class QueryParserImpl extends QBaseVisitor<Object> implements QueryParser
      */
     @Override
     public Object visitInverse(QParser.InverseContext ctx) {
-        return this.ontology.getPropertyMap()
-                .get((String) this.visitWords(ctx.words()))
-                .getInverseProperty();
+        return property((String) this.visitWords(ctx.words())).getInverseProperty();
+    }
+
+    private OWLObjectProperty property(String name) {
+        OWLObjectProperty p = this.ontology.getPropertyMap().get(name);
+        if (p == null && this.strict) {
+            throw new IllegalArgumentException("Unknown role " + name);
+        }
+        return p;
     }
 
     /**
@@ -286,12 +345,14 @@ public class QueryParserImpl extends QBaseVisitor<Object> implements QueryParser
 
         String nameOfObject = (String) this.visitWords(ctx.words());
 
-        OWLClass foundClass  = this.ontology.getClassMap().get(nameOfObject);
-
-
-        if (foundClass == null) {
-            return this.ontology.addClass(nameOfObject);
+        if (this.strict) {
+            OWLClass c = this.ontology.getClassMap().get(nameOfObject);
+            if (c == null) {
+                throw new IllegalArgumentException("Unknown concept " + nameOfObject);
+            }
+            return c;
         }
-        return foundClass;
+        // unknown names are kept apart from the ontology, which is shared by the threads
+        return this.ontology.lookupClass(nameOfObject);
     }
 }
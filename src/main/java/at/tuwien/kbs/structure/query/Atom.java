@@ -9,6 +9,8 @@ import org.semanticweb.owlapi.model.OWLAxiom;
  * An interface that represents an atom in the query body.
  */
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface Atom {
 
@@ -29,6 +31,15 @@ public interface Atom {
      */
     boolean applicable(OWLAxiom i);
 
+    /**
+     * Get the axioms of the ontology that might be applicable to the atom.
+     * Every axiom of the ontology for which applicable returns True is contained in this set.
+     *
+     * @param o The ontology.
+     * @return Set of candidate axioms.
+     */
+    Set<OWLAxiom> getCandidateAxioms(Ontology o);
+
     /**
      * Generate the atom that can be obtained from this atom by applying the axiom to it.
      * Applicable _must_ have been called before and returned True.
@@ -46,4 +57,13 @@ public interface Atom {
      * @return Atom with terms substituted according to the substitution.
      */
     Atom applySubstitution(List<Substitution> substitutions);
+
+    /**
+     * Apply a resolved substitution to this atom, i.e. a substitution that maps every term directly to its final
+     * term.
+     *
+     * @param substitution The substitution as a map from terms to the terms they are substituted with.
+     * @return Atom with terms substituted according to the substitution, the atom itself if no term changes.
+     */
+    Atom applySubstitution(Map<Term, Term> substitution);
 }
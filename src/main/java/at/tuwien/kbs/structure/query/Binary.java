@@ -2,6 +2,7 @@ package at.tuwien.kbs.structure.query;
 
 import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
 
+import java.util.BitSet;
 import java.util.Set;
 
 /**
@@ -38,4 +39,12 @@ public interface Binary extends Atom {
      * @return The set of roles in the atom.
      */
     Set<OWLObjectPropertyExpression> getRoles();
+
+    /**
+     * Get the ids of the roles in the atom, see {@link at.tuwien.kbs.structure.ontology.Vocabulary}.
+     * The returned set must not be modified.
+     *
+     * @return The set of role ids in the atom.
+     */
+    BitSet getRoleIds();
 }
@@ -2,6 +2,7 @@ package at.tuwien.kbs.structure.query;
 
 import org.semanticweb.owlapi.model.OWLClassExpression;
 
+import java.util.BitSet;
 import java.util.Set;
 
 /**
@@ -15,4 +16,11 @@ public interface Concepts extends Unary {
      */
     Set<OWLClassExpression> getConceptNames();
 
+    /**
+     * Get the ids of the concepts contained in the atom, see {@link at.tuwien.kbs.structure.ontology.Vocabulary}.
+     * The returned set must not be modified.
+     * @return The set of concept ids.
+     */
+    BitSet getConceptIds();
+
 }
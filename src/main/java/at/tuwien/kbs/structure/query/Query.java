@@ -30,4 +30,33 @@ public interface Query {
      */
     List<Variable> getHead();
 
+    /**
+     * Get the canonical form of the query.
+     * Two queries have the same canonical form iff they are equal up to renaming the variables that are not in the
+     * head, e.g. the fresh variables introduced during the rewriting.
+     * The form is computed once, the query must not be modified afterwards.
+     *
+     * @return The canonical form of the query.
+     */
+    String getCanonicalForm();
+
+    /**
+     * Get the canonical form of the query with the concepts and roles written by their IRIs.
+     * Unlike {@link #getCanonicalForm()}, the form does not depend on the ids assigned by the vocabulary, so it
+     * identifies the query across runs, e.g. as the key of a persistent cache.
+     *
+     * @return The canonical form of the query, independent of the vocabulary ids.
+     */
+    String getNamedCanonicalForm();
+
+    /**
+     * Get the query with its variables renamed canonically, the head variables by their position in the head and the
+     * others as in {@link #getNamedCanonicalForm()}. Queries that are equal up to a renaming that keeps the positions
+     * of the head variables are renamed into equal queries with equal variable names, e.g. such that their
+     * translations are equal strings.
+     *
+     * @return The renamed query.
+     */
+    Query getCanonicalQuery();
+
 }
@@ -8,8 +8,9 @@ import at.tuwien.kbs.logic.Substitution;
 public interface Term {
 
     /**
-     * Get a copy of the term with the same properties.
-     * @return This term as a new object.
+     * Get a term with the same properties.
+     * Terms are immutable, so implementations may return the term itself.
+     * @return A term equal to this term.
      */
     Term getFresh();
 
@@ -3,28 +3,49 @@ package at.tuwien.kbs.structure.query.impl;
 import at.tuwien.kbs.logic.Rewriter;
 import at.tuwien.kbs.logic.Substitution;
 import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.Vocabulary;
 import at.tuwien.kbs.structure.query.ArbitraryLengthRoles;
 import at.tuwien.kbs.structure.query.Atom;
 import at.tuwien.kbs.structure.query.Binary;
 import at.tuwien.kbs.structure.query.Term;
 import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
-import org.semanticweb.owlapi.model.OWLSubObjectPropertyOfAxiom;
 
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class ArbitraryLengthRolesImpl implements ArbitraryLengthRoles {
 
-    private final Set<OWLObjectPropertyExpression> roles;
+    /**
+     * The ids of the roles in the {@link Vocabulary}.
+     */
+    private BitSet roles;
 
     private final Term left;
 
     private final Term right;
 
+    /**
+     * The class of the atoms equal to this atom, see {@link InterningFactory#equalityClass(Atom, int)}, or null if
+     * it has not been looked up yet.
+     */
+    private Object equalityClass;
+
     public ArbitraryLengthRolesImpl(Set<OWLObjectPropertyExpression> roles, Term left, Term right) {
+        this(Vocabulary.getInstance().encodeRoles(roles), left, right);
+    }
+
+    /**
+     * Initialize a new arbitrary length atom from the ids of the roles.
+     * @param roles The ids of the roles in this atom, the set must not be modified afterwards.
+     * @param left The left {@link Term}.
+     * @param right The right {@link Term}.
+     */
+    public ArbitraryLengthRolesImpl(BitSet roles, Term left, Term right) {
         this.roles = roles;
         this.left = left;
         this.right = right;
@@ -32,11 +53,18 @@ public class ArbitraryLengthRolesImpl implements ArbitraryLengthRoles {
 
     @Override
     public int hashCode() {
-        int hash = 3;
-        hash = 53 * hash + (this.roles != null ? this.roles.hashCode() : 0);
-        hash = 53 * hash + (this.left != null ? this.left.hashCode() : 0);
-        hash = 53 * hash + (this.right != null ? this.right.hashCode() : 0);
-        return hash;
+        return equalityClass().hashCode();
+    }
+
+    private Object equalityClass() {
+        if (this.equalityClass == null) {
+            int hash = 3;
+            hash = 53 * hash + (this.roles != null ? this.roles.hashCode() : 0);
+            hash = 53 * hash + Terms.hash(this.left);
+            hash = 53 * hash + Terms.hash(this.right);
+            this.equalityClass = InterningFactory.equalityClass(this, hash);
+        }
+        return this.equalityClass;
     }
 
     @Override
@@ -49,20 +77,17 @@ public class ArbitraryLengthRolesImpl implements ArbitraryLengthRoles {
             return false;
         }
 
-        ArbitraryLengthRolesImpl r = (ArbitraryLengthRolesImpl) obj;
-
-        // needs toString on the terms because two atoms are equivalent if they have the unbound
-        // variables in the same positions
-        return this.roles.equals(r.roles) && this.left.toString().equals(r.left.toString())
-                && this.right.toString().equals(r.right.toString());
+        // equal atoms share their class
+        return this.equalityClass() == ((ArbitraryLengthRolesImpl) obj).equalityClass();
     }
 
     @Override
     public String toString() {
         String rolestring = this.roles.stream()
-                .map(p -> p.getNamedProperty().getIRI().getFragment()) // remember, no inverses allowed/possible here
+                // remember, no inverses allowed/possible here
+                .mapToObj(p -> Vocabulary.getInstance().getRole(p).getNamedProperty().getIRI().getFragment())
                 .collect(Collectors.joining("|"));
-        if (this.roles.size() > 1) {
+        if (this.roles.cardinality() > 1) {
             rolestring = '(' + rolestring + ')';
         }
         return rolestring + "*(" + this.left.toString() + "," + this.right.toString() + ')';
@@ -70,21 +95,17 @@ public class ArbitraryLengthRolesImpl implements ArbitraryLengthRoles {
 
     @Override
     public void saturate(Ontology o) {
-        Set<OWLObjectPropertyExpression> subroles = new HashSet<>();
-        // get the object property object for each role in this path element
+        BitSet subroles = new BitSet();
         // note: all the object properties occurring in the query must be in the ontology signature
         // for _arbitrary length atoms_, saturation only for role names! (guaranteed no inverses).
-        // exhaustively apply the subrole axioms
-        while (!subroles.equals(this.roles)) {
-            subroles = new HashSet<>(this.roles);
-            // iterate over all the axioms for the roles that have r on the right side
-            for (OWLObjectPropertyExpression r : subroles) {
-                this.roles.addAll(o.getOntology().getObjectSubPropertyAxiomsForSuperProperty(r)
-                        .stream()
-                        .map(OWLSubObjectPropertyOfAxiom::getSubProperty)
-                        .collect(Collectors.toSet()));
-            }
+        // the ontology holds the closure of the subrole axioms for the roles that have r on the right side
+        for (int r = this.roles.nextSetBit(0); r >= 0; r = this.roles.nextSetBit(r + 1)) {
+            subroles.or(o.getSubProperties(r));
         }
+        // a new set, since the old one may be shared with other atoms
+        subroles.or(this.roles);
+        this.roles = subroles;
+        this.equalityClass = null;
     }
 
     @Override
@@ -92,30 +113,40 @@ public class ArbitraryLengthRolesImpl implements ArbitraryLengthRoles {
         return false;
     }
 
+    @Override
+    public Set<OWLAxiom> getCandidateAxioms(Ontology o) {
+        return Collections.emptySet();
+    }
+
     @Override
     public Atom replace(OWLAxiom i, Rewriter rewriter) {
         // TODO maybe throw exception here? should never happen.
-        return new ArbitraryLengthRolesImpl(new HashSet<>(this.roles), this.getLeft(), this.getRight());
+        return new ArbitraryLengthRolesImpl((BitSet) this.roles.clone(), this.getLeft(), this.getRight());
     }
 
     @Override
     public Term getLeft() {
-        return this.left.getFresh();
+        return this.left;
     }
 
     @Override
     public Term getRight() {
-        return this.right.getFresh();
+        return this.right;
     }
 
     @Override
     public Set<OWLObjectPropertyExpression> getRoles() {
+        return Vocabulary.getInstance().decodeRoles(this.roles);
+    }
+
+    @Override
+    public BitSet getRoleIds() {
         return this.roles;
     }
 
     @Override
     public Binary replaceTerms(Term left, Term right) {
-        return new ArbitraryLengthRolesImpl(new HashSet<>(this.roles), left, right);
+        return new ArbitraryLengthRolesImpl((BitSet) this.roles.clone(), left, right);
     }
 
     @Override
@@ -127,6 +158,16 @@ public class ArbitraryLengthRolesImpl implements ArbitraryLengthRoles {
             left = left.applySubstitution(sub);
             right = right.applySubstitution(sub);
         }
-        return new ArbitraryLengthRolesImpl(new HashSet<>(this.roles), left, right);
+        return new ArbitraryLengthRolesImpl((BitSet) this.roles.clone(), left, right);
+    }
+
+    @Override
+    public Atom applySubstitution(Map<Term, Term> substitution) {
+        Term left = substitution.getOrDefault(this.left, this.left);
+        Term right = substitution.getOrDefault(this.right, this.right);
+        if (left == this.left && right == this.right) {
+            return this;
+        }
+        return new ArbitraryLengthRolesImpl((BitSet) this.roles.clone(), left, right);
     }
 }
@@ -0,0 +1,462 @@
+package at.tuwien.kbs.structure.query.impl;
+
+import at.tuwien.kbs.structure.ontology.Vocabulary;
+import at.tuwien.kbs.structure.query.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Computes the canonical form of a query, such that two queries have the same canonical form iff they are equal up
+ * to a renaming of the bound variables that are not in the head.
+ * Head variables keep their names and unbound variables are anonymous anyway, the remaining variables are labelled
+ * by colour refinement on the variable graph of the query; ties are broken by trying every choice and keeping the
+ * smallest resulting form (as in canonical graph labelling).
+ * <p>
+ * Two leaves of the search with the same form differ by an automorphism of the query. As in nauty, the search then
+ * returns to the node where the paths of the leaves part, whose subtrees are images of each other, and skips the
+ * choices that are in the orbit of an earlier choice under the automorphisms that fix the path of a node. A query
+ * with k interchangeable variables is thus labelled with about k leaves instead of k!.
+ */
+final class CanonicalLabelling {
+
+    private final Query query;
+
+    private final List<Atom> atoms;
+
+    /**
+     * True if concepts and roles are written by their IRIs instead of their ids.
+     */
+    private final boolean named;
+
+    /**
+     * The first position of each head variable in the head if head variables are labelled by their position, else
+     * null.
+     */
+    private final Map<Term, Integer> positions;
+
+    /**
+     * The variables that are renamed, i.e. bound variables that are not in the head.
+     */
+    private final List<Term> variables = new ArrayList<>();
+
+    /**
+     * The position of each variable in {@link #variables}, by which the colourings are indexed.
+     */
+    private final Map<Term, Integer> index = new HashMap<>();
+
+    /**
+     * The variables individualized on the way to the current node of the search.
+     */
+    private final int[] path;
+
+    /**
+     * The automorphisms found so far, as permutations of the variables.
+     */
+    private final List<int[]> automorphisms = new ArrayList<>();
+
+    private String first;
+
+    private int[] firstColours;
+
+    private int[] firstPath;
+
+    private String best;
+
+    /**
+     * The colouring of the variables that yields the best form.
+     */
+    private int[] bestColours;
+
+    private int[] bestPath;
+
+    private CanonicalLabelling(Query query, boolean named, boolean positional) {
+        this.query = query;
+        this.named = named;
+        this.positions = positional ? new HashMap<>() : null;
+        if (positional) {
+            for (int i = 0; i < query.getHead().size(); i++) {
+                this.positions.putIfAbsent(query.getHead().get(i), i);
+            }
+        }
+        this.atoms = new ArrayList<>(query.getBody());
+        Set<Term> seen = new HashSet<>();
+        for (Atom a : this.atoms) {
+            for (Term t : terms(a)) {
+                if (t instanceof Variable && !query.getHead().contains(t) && seen.add(t)) {
+                    this.index.put(t, this.variables.size());
+                    this.variables.add(t);
+                }
+            }
+        }
+        this.path = new int[this.variables.size()];
+    }
+
+    /**
+     * Compute the canonical form of a query.
+     * @param query The query.
+     * @return A string that identifies the query up to renaming of its non-head variables.
+     */
+    static String canonicalForm(Query query) {
+        return canonicalForm(query, false);
+    }
+
+    /**
+     * Compute the canonical form of a query, with the concepts and roles written by their IRIs, such that the form
+     * does not depend on the order in which the {@link Vocabulary} assigned the ids, e.g. in another run.
+     * @param query The query.
+     * @return A string that identifies the query up to renaming of its non-head variables.
+     */
+    static String namedCanonicalForm(Query query) {
+        return canonicalForm(query, true);
+    }
+
+    private static String canonicalForm(Query query, boolean named) {
+        return labelling(query, named, false).best;
+    }
+
+    /**
+     * Rename the variables canonically: head variables to h1, h2, ... by their first position in the head, bound
+     * variables to v1, v2, ... by their colour in the named canonical form, where head variables are labelled by
+     * their position, and unbound variables to u1, u2, ... in the order of their atoms in that form. Two queries
+     * that are equal up to a renaming that keeps the positions of the head variables are renamed into equal queries,
+     * with equal variable names; e.g. q(x,x):-r(x,x) and q(y,y):-r(y,y), which rewritings of q(x,y) can both be.
+     * @param query The query.
+     * @return The renamed query.
+     */
+    static Query canonicalQuery(Query query) {
+        CanonicalLabelling labelling = labelling(query, true, true);
+        Map<Term, Term> renaming = new HashMap<>();
+        labelling.positions.forEach((v, i) -> renaming.put(v, InterningFactory.variable("h" + (i + 1))));
+        // the colouring is discrete, its colours are 0, ..., n-1
+        for (int i = 0; i < labelling.variables.size(); i++) {
+            renaming.put(labelling.variables.get(i), InterningFactory.variable("v" + (labelling.bestColours[i] + 1)));
+        }
+        List<Atom> atoms = new ArrayList<>(labelling.atoms);
+        atoms.sort(Comparator.comparing(a -> labelling.render(a, labelling.bestColours)));
+        int unbound = 0;
+        for (Atom a : atoms) {
+            for (Term t : terms(a)) {
+                if (t instanceof UnboundVariable) {
+                    renaming.put(t, InterningFactory.unboundVariable("u" + ++unbound));
+                }
+            }
+        }
+        Set<Atom> body = new HashSet<>();
+        for (Atom a : labelling.atoms) {
+            Atom renamed = a.applySubstitution(renaming);
+            if (a instanceof Roles && labelling.backward((Binary) a, labelling.bestColours)) {
+                // a role atom is written in the direction of its form
+                Binary b = (Binary) renamed;
+                renamed = new RolesImpl(Vocabulary.inverse(b.getRoleIds()), b.getRight(), b.getLeft());
+            }
+            body.add(renamed);
+        }
+        List<Variable> head = new ArrayList<>();
+        for (Variable v : query.getHead()) {
+            head.add((Variable) renaming.get(v));
+        }
+        return new QueryImpl(head, body);
+    }
+
+    private static CanonicalLabelling labelling(Query query, boolean named, boolean positional) {
+        CanonicalLabelling labelling = new CanonicalLabelling(query, named, positional);
+        labelling.search(labelling.refine(new int[labelling.variables.size()]), 0);
+        return labelling;
+    }
+
+    /**
+     * Individualize the variables of the first colour class with more than one variable, one after the other, and
+     * continue the search on the refined colouring. Discrete colourings are the leaves of the search.
+     *
+     * @param colours The colouring of the node, with the colours 0, ..., k-1.
+     * @param depth The number of variables individualized on the way to the node.
+     * @return The depth of the node at which the search continues, less than the depth of the node if the rest of
+     *         its subtree is the image of a subtree that has been searched.
+     */
+    private int search(int[] colours, int depth) {
+        int n = colours.length;
+        int[] sizes = new int[n];
+        for (int c : colours) {
+            sizes[c]++;
+        }
+        int cell = 0;
+        while (cell < n && sizes[cell] <= 1) {
+            cell++;
+        }
+        if (cell == n) {
+            return leaf(colours, depth);
+        }
+
+        int[] orbits = null;
+        List<Integer> tried = new ArrayList<>();
+        for (int v = 0; v < n; v++) {
+            if (colours[v] != cell) {
+                continue;
+            }
+            if (orbits == null) {
+                orbits = orbits(depth);
+            }
+            boolean skip = false;
+            for (int u : tried) {
+                skip |= find(orbits, u) == find(orbits, v);
+            }
+            if (skip) {
+                continue;
+            }
+            tried.add(v);
+            // v keeps its colour, the rest of the cell is moved behind it
+            int[] individualized = new int[n];
+            for (int w = 0; w < n; w++) {
+                individualized[w] = 2 * colours[w] + (colours[w] == cell && w != v ? 1 : 0);
+            }
+            this.path[depth] = v;
+            int automorphisms = this.automorphisms.size();
+            int next = search(refine(individualized), depth + 1);
+            if (next < depth) {
+                return next;
+            }
+            if (this.automorphisms.size() > automorphisms) {
+                orbits = null;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Keep the form of a leaf if it is the best so far. A leaf with the form of the first or the best leaf yields an
+     * automorphism, and the search returns to the node where the paths of the two leaves part.
+     */
+    private int leaf(int[] colours, int depth) {
+        String form = render(colours);
+        if (this.first == null) {
+            this.first = form;
+            this.firstColours = colours;
+            this.firstPath = Arrays.copyOf(this.path, depth);
+            this.best = form;
+            this.bestColours = colours;
+            this.bestPath = this.firstPath;
+            return depth;
+        }
+        if (form.equals(this.first)) {
+            return automorphism(this.firstColours, colours, this.firstPath, depth);
+        }
+        if (form.equals(this.best)) {
+            return automorphism(this.bestColours, colours, this.bestPath, depth);
+        }
+        if (form.compareTo(this.best) < 0) {
+            this.best = form;
+            this.bestColours = colours;
+            this.bestPath = Arrays.copyOf(this.path, depth);
+        }
+        return depth;
+    }
+
+    /**
+     * Record the automorphism that maps the variables of a leaf to the variables of the same colour in another leaf.
+     *
+     * @return The depth of the node where the paths of the leaves part.
+     */
+    private int automorphism(int[] from, int[] to, int[] fromPath, int depth) {
+        int n = from.length;
+        int[] byColour = new int[n];
+        for (int v = 0; v < n; v++) {
+            byColour[to[v]] = v;
+        }
+        int[] automorphism = new int[n];
+        for (int v = 0; v < n; v++) {
+            automorphism[v] = byColour[from[v]];
+        }
+        this.automorphisms.add(automorphism);
+        int common = 0;
+        while (common < depth && common < fromPath.length && fromPath[common] == this.path[common]) {
+            common++;
+        }
+        return common;
+    }
+
+    /**
+     * Compute the orbits of the variables under the automorphisms that fix the variables on the path to a node,
+     * which map the children of the node to each other.
+     *
+     * @return A union-find forest of the variables, whose trees are the orbits.
+     */
+    private int[] orbits(int depth) {
+        int[] orbits = new int[this.variables.size()];
+        Arrays.setAll(orbits, v -> v);
+        for (int[] automorphism : this.automorphisms) {
+            boolean fixes = true;
+            for (int i = 0; i < depth; i++) {
+                fixes &= automorphism[this.path[i]] == this.path[i];
+            }
+            if (fixes) {
+                for (int v = 0; v < orbits.length; v++) {
+                    orbits[find(orbits, v)] = find(orbits, automorphism[v]);
+                }
+            }
+        }
+        return orbits;
+    }
+
+    private static int find(int[] orbits, int v) {
+        while (orbits[v] != v) {
+            orbits[v] = orbits[orbits[v]];
+            v = orbits[v];
+        }
+        return v;
+    }
+
+    /**
+     * Refine a colouring until it is stable: two variables keep the same colour only if they occur in atoms with
+     * the same concepts/roles and the same colours of the other terms.
+     */
+    private int[] refine(int[] colours) {
+        int classes = (int) Arrays.stream(colours).distinct().count();
+        int n = colours.length;
+        while (true) {
+            String[] signatures = new String[n];
+            for (int v = 0; v < n; v++) {
+                List<String> occurrences = new ArrayList<>();
+                for (Atom a : this.atoms) {
+                    occurrences.addAll(occurrences(a, this.variables.get(v), colours));
+                }
+                Collections.sort(occurrences);
+                signatures[v] = String.format("%08d", colours[v]) + occurrences;
+            }
+            List<String> sorted = new ArrayList<>(new TreeSet<>(Arrays.asList(signatures)));
+            int[] refined = new int[n];
+            for (int v = 0; v < n; v++) {
+                refined[v] = Collections.binarySearch(sorted, signatures[v]);
+            }
+            if (sorted.size() == classes) {
+                return refined;
+            }
+            classes = sorted.size();
+            colours = refined;
+        }
+    }
+
+    /**
+     * Describe the occurrences of a variable in an atom, from the point of view of the variable.
+     */
+    private List<String> occurrences(Atom a, Term v, int[] colours) {
+        List<String> occurrences = new ArrayList<>();
+        if (a instanceof Concepts) {
+            if (((Concepts) a).getTerm().equals(v)) {
+                occurrences.add("C" + concepts(((Concepts) a).getConceptIds()));
+            }
+        } else if (a instanceof Roles) {
+            // a role atom is equal to its inverse, so v is always put on the left
+            Binary b = (Binary) a;
+            if (b.getLeft().equals(v)) {
+                occurrences.add("R" + roles(b.getRoleIds()) + label(b.getRight(), colours));
+            }
+            if (b.getRight().equals(v)) {
+                occurrences.add("R" + roles(Vocabulary.inverse(b.getRoleIds())) + label(b.getLeft(), colours));
+            }
+        } else {
+            Binary b = (Binary) a;
+            if (b.getLeft().equals(v)) {
+                occurrences.add("L>" + roles(b.getRoleIds()) + label(b.getRight(), colours));
+            }
+            if (b.getRight().equals(v)) {
+                occurrences.add("L<" + roles(b.getRoleIds()) + label(b.getLeft(), colours));
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * Write the query with the variables renamed by their (discrete) colour.
+     */
+    private String render(int[] colours) {
+        List<String> body = new ArrayList<>();
+        for (Atom a : this.atoms) {
+            body.add(render(a, colours));
+        }
+        Collections.sort(body);
+        StringBuilder form = new StringBuilder("q(");
+        for (Variable v : this.query.getHead()) {
+            form.append(this.positions != null ? "@" + this.positions.get(v) : v.getName()).append(',');
+        }
+        form.append("):-");
+        body.forEach(form::append);
+        return form.toString();
+    }
+
+    /**
+     * Write an atom with the variables renamed by their colour.
+     */
+    private String render(Atom a, int[] colours) {
+        if (a instanceof Concepts) {
+            return "C" + concepts(((Concepts) a).getConceptIds()) + label(((Concepts) a).getTerm(), colours);
+        } else if (a instanceof Roles) {
+            Binary b = (Binary) a;
+            String forward = "R" + roles(b.getRoleIds()) + label(b.getLeft(), colours) + label(b.getRight(), colours);
+            String backward = "R" + roles(Vocabulary.inverse(b.getRoleIds())) + label(b.getRight(), colours) +
+                    label(b.getLeft(), colours);
+            return forward.compareTo(backward) <= 0 ? forward : backward;
+        }
+        Binary b = (Binary) a;
+        return "L" + roles(b.getRoleIds()) + label(b.getLeft(), colours) + label(b.getRight(), colours);
+    }
+
+    /**
+     * Check whether a role atom is written backwards in the form, i.e. as the inverse roles from right to left.
+     */
+    private boolean backward(Binary b, int[] colours) {
+        String forward = "R" + roles(b.getRoleIds()) + label(b.getLeft(), colours) + label(b.getRight(), colours);
+        String backward = "R" + roles(Vocabulary.inverse(b.getRoleIds())) + label(b.getRight(), colours) +
+                label(b.getLeft(), colours);
+        return forward.compareTo(backward) > 0;
+    }
+
+    /**
+     * Write a set of concepts, by ids or by sorted IRIs.
+     */
+    private String concepts(BitSet ids) {
+        if (!this.named) {
+            return ids.toString();
+        }
+        return ids.stream()
+                .mapToObj(c -> Vocabulary.getInstance().getClass(c).toString())
+                .sorted()
+                .collect(Collectors.joining("|", "{", "}"));
+    }
+
+    /**
+     * Write a set of roles, by ids or by sorted IRIs, where inverse roles are marked by a trailing -.
+     */
+    private String roles(BitSet ids) {
+        if (!this.named) {
+            return ids.toString();
+        }
+        return ids.stream()
+                .mapToObj(r -> Vocabulary.getInstance().getRole(r).getNamedProperty().toString() +
+                        ((r & 1) == 1 ? "-" : ""))
+                .sorted()
+                .collect(Collectors.joining("|", "{", "}"));
+    }
+
+    /**
+     * Label a term: head variables by name or position, unbound variables anonymously and all others by their
+     * colour. The labels cannot collide, since names of variables consist of letters and digits only.
+     */
+    private String label(Term t, int[] colours) {
+        if (t instanceof UnboundVariable) {
+            return "(_)";
+        }
+        if (this.positions != null && this.positions.containsKey(t)) {
+            return "(@" + this.positions.get(t) + ")";
+        }
+        Integer v = this.index.get(t);
+        return v != null ? "(#" + colours[v] + ")" : "(" + t.getName() + ")";
+    }
+
+    private static List<Term> terms(Atom a) {
+        if (a instanceof Concepts) {
+            return Collections.singletonList(((Concepts) a).getTerm());
+        }
+        return Arrays.asList(((Binary) a).getLeft(), ((Binary) a).getRight());
+    }
+}
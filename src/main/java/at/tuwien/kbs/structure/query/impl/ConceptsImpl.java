@@ -3,29 +3,49 @@ package at.tuwien.kbs.structure.query.impl;
 import at.tuwien.kbs.logic.Rewriter;
 import at.tuwien.kbs.logic.Substitution;
 import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.Vocabulary;
 import at.tuwien.kbs.structure.query.Atom;
 import at.tuwien.kbs.structure.query.Concepts;
 import at.tuwien.kbs.structure.query.Term;
 import at.tuwien.kbs.structure.query.UnboundVariable;
 import org.semanticweb.owlapi.model.*;
 
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class ConceptsImpl implements Concepts {
 
-    private final Set<OWLClassExpression> conceptNames;
+    /**
+     * The ids of the concept names in the {@link Vocabulary}.
+     */
+    private BitSet conceptNames;
 
     private final Term term;
 
+    /**
+     * The class of the atoms equal to this atom, see {@link InterningFactory#equalityClass(Atom, int)}, or null if
+     * it has not been looked up yet.
+     */
+    private Object equalityClass;
+
     public ConceptsImpl(Set<OWLClassExpression> conceptNames, Term term) {
+        this(Vocabulary.getInstance().encodeClasses(conceptNames), term);
+    }
+
+    /**
+     * Initialize a new Concepts object from the ids of the concept names.
+     * @param conceptNames The ids of the concept names, the set must not be modified afterwards.
+     * @param term The {@link Term}.
+     */
+    public ConceptsImpl(BitSet conceptNames, Term term) {
         this.conceptNames = conceptNames;
         this.term = term;
 
-        if (conceptNames.size() == 0) {
+        if (conceptNames.isEmpty()) {
             throw new RuntimeException();
         }
 
@@ -33,10 +53,17 @@ public class ConceptsImpl implements Concepts {
 
     @Override
     public int hashCode() {
-        int hash = 3;
-        hash = 53 * hash + (this.conceptNames != null ? this.conceptNames.hashCode() : 0);
-        hash = 53 * hash + (this.term != null ? this.term.hashCode() : 0);
-        return hash;
+        return equalityClass().hashCode();
+    }
+
+    private Object equalityClass() {
+        if (this.equalityClass == null) {
+            int hash = 3;
+            hash = 53 * hash + (this.conceptNames != null ? this.conceptNames.hashCode() : 0);
+            hash = 53 * hash + Terms.hash(this.term);
+            this.equalityClass = InterningFactory.equalityClass(this, hash);
+        }
+        return this.equalityClass;
     }
 
     @Override
@@ -49,19 +76,18 @@ public class ConceptsImpl implements Concepts {
             return false;
         }
 
-        ConceptsImpl c = (ConceptsImpl) obj;
-
-        return this.conceptNames.equals(c.conceptNames) && this.term.toString().equals(c.term.toString());
+        // equal atoms share their class
+        return this.equalityClass() == ((ConceptsImpl) obj).equalityClass();
     }
 
     @Override
     public String toString() {
 
         String conceptString = this.conceptNames.stream()
-                .map(p -> p.asOWLClass().getIRI().getFragment())
+                .mapToObj(p -> Vocabulary.getInstance().getClass(p).asOWLClass().getIRI().getFragment())
                 .collect(Collectors.joining("|"));
 
-        if (this.conceptNames.size() > 1) {
+        if (this.conceptNames.cardinality() > 1) {
             conceptString = '(' + conceptString + ')';
         }
         return conceptString + '(' + this.term.toString() + ')';
@@ -69,21 +95,15 @@ public class ConceptsImpl implements Concepts {
 
     @Override
     public void saturate(Ontology o) {
-        Set<OWLClassExpression> subclasses = new HashSet<>();
-        // get all the subclasses occurring in this concepts atom
-        // exhaustively apply the subclass axioms
-        while (!subclasses.equals(this.conceptNames)) {
-            subclasses = new HashSet<>(this.conceptNames);
-            // iterate over all the axioms that have c on the right-hand side
-            // and a class/conceptname on the left-hand side
-            for (OWLClassExpression c: subclasses) {
-                this.conceptNames.addAll(o.getOntology().getSubClassAxiomsForSuperClass((OWLClass) c)
-                        .stream()
-                        .map(OWLSubClassOfAxiom::getSubClass)
-                        .filter(cls -> cls instanceof OWLClass)
-                        .collect(Collectors.toSet()));
-            }
+        // the ontology holds the closure of the subclass axioms, the saturation is the union of the closures
+        BitSet subclasses = new BitSet();
+        for (int c = this.conceptNames.nextSetBit(0); c >= 0; c = this.conceptNames.nextSetBit(c + 1)) {
+            subclasses.or(o.getSubConcepts(c));
         }
+        // a new set, since the old one may be shared with other atoms
+        subclasses.or(this.conceptNames);
+        this.conceptNames = subclasses;
+        this.equalityClass = null;
     }
 
     @Override
@@ -91,21 +111,41 @@ public class ConceptsImpl implements Concepts {
         // for completeness, we assume that all atoms of this form are _always_ saturated!
         if (i instanceof OWLSubClassOfAxiom) {
             // for subclass axioms: if we already have the subclass in the atom, then no application
-            return this.conceptNames.contains(((OWLSubClassOfAxiom) i).getSuperClass()) &&
-                    !(this.conceptNames.contains(((OWLSubClassOfAxiom) i).getSubClass()));
+            return this.contains(((OWLSubClassOfAxiom) i).getSuperClass()) &&
+                    !(this.contains(((OWLSubClassOfAxiom) i).getSubClass()));
         }
         if (i instanceof OWLObjectPropertyDomainAxiom) {
-            return this.conceptNames.contains(((OWLObjectPropertyDomainAxiom) i).getDomain());
+            return this.contains(((OWLObjectPropertyDomainAxiom) i).getDomain());
         }
         if (i instanceof OWLObjectPropertyRangeAxiom) {
-            return this.conceptNames.contains(((OWLObjectPropertyRangeAxiom) i).getRange());
+            return this.contains(((OWLObjectPropertyRangeAxiom) i).getRange());
         }
         return false;
     }
 
+    /**
+     * Check if a class expression is one of the concept names of this atom.
+     *
+     * @param c The class expression.
+     * @return True if c is a concept name in this atom, False otherwise.
+     */
+    private boolean contains(OWLClassExpression c) {
+        return c instanceof OWLClass && this.conceptNames.get(Vocabulary.getInstance().getClassId(c));
+    }
+
+    @Override
+    public Set<OWLAxiom> getCandidateAxioms(Ontology o) {
+        // only axioms with one of the concept names on the right-hand side can be applicable
+        Set<OWLAxiom> candidates = new HashSet<>();
+        for (int c = this.conceptNames.nextSetBit(0); c >= 0; c = this.conceptNames.nextSetBit(c + 1)) {
+            candidates.addAll(o.getAxiomsForClass(Vocabulary.getInstance().getClass(c).asOWLClass()));
+        }
+        return candidates;
+    }
+
     @Override
     public Atom replace(OWLAxiom i, Rewriter rewriter) {
-        UnboundVariable newVar = new UnboundVariableImpl(rewriter.getFreshVariableName());
+        UnboundVariable newVar = InterningFactory.unboundVariable(rewriter.getFreshVariableName());
         OWLObjectPropertyExpression property;
         if (i instanceof OWLSubClassOfAxiom) {  // \exists R \ISA A
             // From the contract of replace, we know that applicable has to have been called beforehand.
@@ -121,17 +161,23 @@ public class ConceptsImpl implements Concepts {
             property = ((OWLObjectPropertyDomainAxiom) i).getProperty();
         }
         // return new roles atom
-        return new RolesImpl(new HashSet<>(Collections.singleton(property)),
-                this.getTerm(), newVar);
+        BitSet roles = new BitSet();
+        roles.set(Vocabulary.getInstance().getRoleId(property));
+        return new RolesImpl(roles, this.getTerm(), newVar);
     }
 
     @Override
     public Term getTerm() {
-        return this.term.getFresh();
+        return this.term;
     }
 
     @Override
     public Set<OWLClassExpression> getConceptNames() {
+        return Vocabulary.getInstance().decodeClasses(this.conceptNames);
+    }
+
+    @Override
+    public BitSet getConceptIds() {
         return this.conceptNames;
     }
 
@@ -141,6 +187,15 @@ public class ConceptsImpl implements Concepts {
         for (Substitution sub: substitutions) {
             t = t.applySubstitution(sub);
         }
-        return new ConceptsImpl(new HashSet<>(this.conceptNames), t);
+        return new ConceptsImpl((BitSet) this.conceptNames.clone(), t);
+    }
+
+    @Override
+    public Atom applySubstitution(Map<Term, Term> substitution) {
+        Term t = substitution.getOrDefault(this.term, this.term);
+        if (t == this.term) {
+            return this;
+        }
+        return new ConceptsImpl((BitSet) this.conceptNames.clone(), t);
     }
 }
@@ -0,0 +1,208 @@
+package at.tuwien.kbs.structure.query.impl;
+
+import at.tuwien.kbs.structure.ontology.Vocabulary;
+import at.tuwien.kbs.structure.query.*;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A factory that hash-conses terms and atoms, such that structurally identical terms and atoms share one object.
+ * Terms are interned globally (weakly, unused terms are garbage collected), atoms are interned per factory object,
+ * i.e. for as long as the factory is used, e.g. during one rewriting.
+ * Only atoms that will not be saturated anymore may be interned.
+ */
+public class InterningFactory {
+
+    private static final Interner<Term> TERMS = Interners.newWeakInterner();
+
+    /**
+     * The canonical objects of the classes of equal atoms, see {@link #equalityClass(Atom, int)}.
+     */
+    private static final Interner<EqualityClass> EQUALITY_CLASSES = Interners.newWeakInterner();
+
+    /**
+     * The canonical atoms, by their exact structure (including the names of unbound variables).
+     */
+    private final Map<AtomKey, Atom> atoms = new ConcurrentHashMap<>();
+
+    /**
+     * Get the canonical variable with a name.
+     * @param name The name of the variable.
+     * @return The {@link Variable}.
+     */
+    public static Variable variable(String name) {
+        return (Variable) TERMS.intern(new VariableImpl(name));
+    }
+
+    /**
+     * Get the canonical unbound variable with a name.
+     * @param name The name of the unbound variable.
+     * @return The {@link UnboundVariable}.
+     */
+    public static UnboundVariable unboundVariable(String name) {
+        return (UnboundVariable) TERMS.intern(new UnboundVariableImpl(name));
+    }
+
+    /**
+     * Get the canonical object of a term.
+     * @param term The term.
+     * @return The canonical term that is identical to the given term.
+     */
+    public static Term intern(Term term) {
+        return TERMS.intern(term);
+    }
+
+    /**
+     * Get the canonical object of an atom.
+     * Two atoms share a canonical object if they have the same type, the same concepts or roles and the same terms,
+     * where unbound variables are only identical if they have the same name.
+     *
+     * @param atom The atom.
+     * @return The canonical atom that is identical to the given atom.
+     */
+    public Atom intern(Atom atom) {
+        return this.atoms.computeIfAbsent(new AtomKey(atom), k -> k.atom);
+    }
+
+    /**
+     * Get the canonical object of the class of atoms that are equal to an atom, i.e. that have the same type, the
+     * same concepts or roles and the same terms, where all unbound variables are equal and a roles atom is equal to
+     * its inverse. Two atoms are equal iff their classes are the same object, so atoms compare by reference once
+     * they have looked up their class. Unlike {@link #intern(Atom)}, the classes are global, and each one is kept for
+     * as long as an atom refers to it. An atom must look up its class again once it is saturated.
+     *
+     * @param atom The atom.
+     * @param hash The hash of the atom, which must be equal for equal atoms.
+     * @return The canonical object of the class of the atom.
+     */
+    static Object equalityClass(Atom atom, int hash) {
+        return EQUALITY_CLASSES.intern(new EqualityClass(atom, hash));
+    }
+
+    /**
+     * Get the number of distinct atoms interned by this factory.
+     * @return The number of canonical atoms.
+     */
+    public int size() {
+        return this.atoms.size();
+    }
+
+    /**
+     * A wrapper of an atom that compares the exact structure of atoms.
+     */
+    private static final class AtomKey {
+
+        private final Atom atom;
+
+        private final BitSet ids;
+
+        private final Term left;
+
+        private final Term right;
+
+        private final int hash;
+
+        private AtomKey(Atom atom) {
+            this.atom = atom;
+            if (atom instanceof Concepts) {
+                this.ids = ((Concepts) atom).getConceptIds();
+                this.left = intern(((Concepts) atom).getTerm());
+                this.right = null;
+            } else {
+                this.ids = ((Binary) atom).getRoleIds();
+                this.left = intern(((Binary) atom).getLeft());
+                this.right = intern(((Binary) atom).getRight());
+            }
+            int hash = atom.getClass().hashCode();
+            hash = 53 * hash + this.ids.hashCode();
+            hash = 53 * hash + System.identityHashCode(this.left);
+            hash = 53 * hash + System.identityHashCode(this.right);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+
+            if (!(obj instanceof AtomKey)) {
+                return false;
+            }
+
+            AtomKey k = (AtomKey) obj;
+
+            // the terms are canonical, so they can be compared by reference
+            return this.atom.getClass() == k.atom.getClass() && this.left == k.left && this.right == k.right
+                    && this.ids.equals(k.ids);
+        }
+    }
+
+    /**
+     * The class of atoms equal to an atom. The ids and terms of the atom are kept, since saturating the atom
+     * replaces its ids.
+     */
+    private static final class EqualityClass {
+
+        private final Class<?> type;
+
+        private final BitSet ids;
+
+        private final Term left;
+
+        private final Term right;
+
+        private final int hash;
+
+        private EqualityClass(Atom atom, int hash) {
+            this.type = atom.getClass();
+            if (atom instanceof Concepts) {
+                this.ids = ((Concepts) atom).getConceptIds();
+                this.left = ((Concepts) atom).getTerm();
+                this.right = null;
+            } else {
+                this.ids = ((Binary) atom).getRoleIds();
+                this.left = ((Binary) atom).getLeft();
+                this.right = ((Binary) atom).getRight();
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+
+            if (!(obj instanceof EqualityClass)) {
+                return false;
+            }
+
+            EqualityClass c = (EqualityClass) obj;
+            if (this.type != c.type || this.hash != c.hash) {
+                return false;
+            }
+
+            // two atoms are equivalent if they have the unbound variables in the same positions,
+            // or if one roles atom is the inverse of the other
+            return (Terms.equivalent(this.left, c.left) && (this.right == null || Terms.equivalent(this.right, c.right))
+                    && this.ids.equals(c.ids)) || (this.type == RolesImpl.class &&
+                    Terms.equivalent(this.right, c.left) && Terms.equivalent(this.left, c.right) &&
+                    Vocabulary.inverse(this.ids).equals(c.ids));
+        }
+    }
+}
@@ -15,6 +15,17 @@ public class QueryImpl implements Query {
 
     private final Set<Atom> body;
 
+    /**
+     * The cached canonical form, null if it has not been computed yet.
+     */
+    private String canonicalForm;
+
+    /**
+     * The cached hash code, 0 if it has not been computed yet.
+     * The body must not be modified once the query is used in a hash based collection.
+     */
+    private int hash;
+
     public QueryImpl(List<Variable> head, Set<Atom> body) {
         this.head = head;
         this.body = body;
@@ -22,10 +33,13 @@ public class QueryImpl implements Query {
 
     @Override
     public int hashCode() {
-        int hash = 3;
-        hash = 53 * hash + (this.head != null ? this.head.hashCode() : 0);
-        hash = 53 * hash + (this.body != null ? this.body.hashCode() : 0);
-        return hash;
+        if (this.hash == 0) {
+            int hash = 3;
+            hash = 53 * hash + (this.head != null ? this.head.hashCode() : 0);
+            hash = 53 * hash + (this.body != null ? this.body.hashCode() : 0);
+            this.hash = hash;
+        }
+        return this.hash;
     }
 
     @Override
@@ -40,12 +54,14 @@ public class QueryImpl implements Query {
 
         QueryImpl q = (QueryImpl) obj;
 
-        return this.body.equals(q.body) && this.head.equals(q.head);
+        return this.hashCode() == q.hashCode() && this.body.equals(q.body) && this.head.equals(q.head);
     }
 
     @Override
     public void saturate(Ontology o) {
         this.body.forEach(atom -> atom.saturate(o));
+        this.hash = 0;
+        this.canonicalForm = null;
     }
 
     @Override
@@ -58,6 +74,24 @@ public class QueryImpl implements Query {
         return head;
     }
 
+    @Override
+    public String getCanonicalForm() {
+        if (this.canonicalForm == null) {
+            this.canonicalForm = CanonicalLabelling.canonicalForm(this);
+        }
+        return this.canonicalForm;
+    }
+
+    @Override
+    public String getNamedCanonicalForm() {
+        return CanonicalLabelling.namedCanonicalForm(this);
+    }
+
+    @Override
+    public Query getCanonicalQuery() {
+        return CanonicalLabelling.canonicalQuery(this);
+    }
+
     @Override
     public String toString() {
         return "q(" +
@@ -3,6 +3,7 @@ package at.tuwien.kbs.structure.query.impl;
 import at.tuwien.kbs.logic.Rewriter;
 import at.tuwien.kbs.logic.Substitution;
 import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.Vocabulary;
 import at.tuwien.kbs.structure.query.*;
 import org.semanticweb.owlapi.model.*;
 
@@ -12,9 +13,9 @@ import java.util.stream.Collectors;
 public class RolesImpl implements Roles {
 
     /**
-     * The names of the roles.
+     * The ids of the roles in the {@link Vocabulary}.
      */
-    private final Set<OWLObjectPropertyExpression> roles;
+    private BitSet roles;
     /**
      * The term on the left.
      */
@@ -23,6 +24,11 @@ public class RolesImpl implements Roles {
      * The term on the right.
      */
     private final Term right;
+    /**
+     * The class of the atoms equal to this atom, see {@link InterningFactory#equalityClass(Atom, int)}, or null if
+     * it has not been looked up yet.
+     */
+    private Object equalityClass;
 
     /**
      * Initialize a new Role object.
@@ -31,6 +37,16 @@ public class RolesImpl implements Roles {
      * @param right The right {@link Term}.
      */
     public RolesImpl(Set<OWLObjectPropertyExpression> roles, Term left, Term right) {
+        this(Vocabulary.getInstance().encodeRoles(roles), left, right);
+    }
+
+    /**
+     * Initialize a new Role object from the ids of the roles.
+     * @param roles The ids of the roles/properties in this atom, the set must not be modified afterwards.
+     * @param left The left {@link Term}.
+     * @param right The right {@link Term}.
+     */
+    public RolesImpl(BitSet roles, Term left, Term right) {
         this.roles = roles;
         this.left = left;
         this.right = right;
@@ -38,14 +54,23 @@ public class RolesImpl implements Roles {
 
     @Override
     public int hashCode() {
-        return this.hashCodePart() * ((RolesImpl) this.getInverse()).hashCodePart();
+        return equalityClass().hashCode();
     }
 
-    private int hashCodePart() {
+    private Object equalityClass() {
+        if (this.equalityClass == null) {
+            // symmetric in the atom and its inverse, since both are equal
+            this.equalityClass = InterningFactory.equalityClass(this, hashCodePart(this.roles, this.left, this.right) *
+                    hashCodePart(Vocabulary.inverse(this.roles), this.right, this.left));
+        }
+        return this.equalityClass;
+    }
+
+    private static int hashCodePart(BitSet roles, Term left, Term right) {
         int hash = 3;
-        hash = 53 * hash + (this.roles != null ? this.roles.hashCode() : 0);
-        hash = 53 * hash + (this.left != null ? this.left.hashCode() : 0);
-        hash = 53 * hash + (this.right != null ? this.right.hashCode() : 0);
+        hash = 53 * hash + (roles != null ? roles.hashCode() : 0);
+        hash = 53 * hash + Terms.hash(left);
+        hash = 53 * hash + Terms.hash(right);
         return hash;
     }
 
@@ -59,23 +84,17 @@ public class RolesImpl implements Roles {
             return false;
         }
 
-        RolesImpl r = (RolesImpl) obj;
-
-        RolesImpl inv = (RolesImpl) this.getInverse();
-
-        // needs toString on the terms because two atoms are equivalent if they have the unbound
-        // variables in the same positions
-        return (this.roles.equals(r.roles) && this.left.toString().equals(r.left.toString())
-                && this.right.toString().equals(r.right.toString())) || (inv.roles.equals(r.roles) &&
-                inv.left.toString().equals(r.left.toString()) && inv.right.toString().equals(r.right.toString()));
+        // equal atoms share their class
+        return this.equalityClass() == ((RolesImpl) obj).equalityClass();
     }
 
     @Override
     public String toString() {
         String rolestring = this.roles.stream()
-                .map(p -> p.getNamedProperty().getIRI().getFragment() + ((p instanceof OWLObjectInverseOf) ? "-" : ""))
+                .mapToObj(p -> Vocabulary.getInstance().getRole(p).getNamedProperty().getIRI().getFragment() +
+                        ((p & 1) == 1 ? "-" : ""))
                 .collect(Collectors.joining("|"));
-        if (this.roles.size() > 1) {
+        if (this.roles.cardinality() > 1) {
             rolestring = '(' + rolestring + ')';
         }
         return rolestring + '(' + this.left.toString() + "," + this.right.toString() + ')';
@@ -83,33 +102,16 @@ public class RolesImpl implements Roles {
 
     @Override
     public void saturate(Ontology o) {
-        Set<OWLObjectPropertyExpression> subroles = new HashSet<>();
-        while (!subroles.equals(this.roles)) {
-            subroles = new HashSet<>(this.roles);
-            // iterate over all the axioms for the roles that have r or r- on the right side
-            for (OWLObjectPropertyExpression r : subroles) {
-                // R1 \ISA R
-                this.roles.addAll(o.getOntology().getObjectSubPropertyAxiomsForSuperProperty(r)
-                        .stream()
-                        .map(OWLSubObjectPropertyOfAxiom::getSubProperty)
-                        .collect(Collectors.toSet()));
-                // R1 \ISA R-
-                this.roles.addAll(o.getOntology().getObjectSubPropertyAxiomsForSuperProperty(r.getInverseProperty())
-                        .stream()
-                        .map(OWLSubObjectPropertyOfAxiom::getSubProperty)
-                        .map(OWLObjectPropertyExpression::getInverseProperty)
-                        .collect(Collectors.toSet()));
-                // inverses
-                // use the named property (in case of inverse), and add the inverse of the inverse in case
-                // r is an inverse itself.
-                this.roles.addAll(o.getOntology().getInverseObjectPropertyAxioms(r.getNamedProperty())
-                        .stream()
-                        .map(p -> p.getPropertiesMinus(r.getNamedProperty()))
-                        .flatMap(Collection::stream)
-                        .map(p -> (r instanceof OWLObjectInverseOf) ? p : p.getInverseProperty())
-                        .collect(Collectors.toSet()));
-            }
+        // the ontology holds the closure of the sub-role and inverse axioms for the roles that have r or r- on
+        // the right side, the saturation is the union of the closures
+        BitSet subroles = new BitSet();
+        for (int r = this.roles.nextSetBit(0); r >= 0; r = this.roles.nextSetBit(r + 1)) {
+            subroles.or(o.getSubRoles(r));
         }
+        // a new set, since the old one may be shared with other atoms
+        subroles.or(this.roles);
+        this.roles = subroles;
+        this.equalityClass = null;
     }
 
     @Override
@@ -118,12 +120,12 @@ public class RolesImpl implements Roles {
             OWLSubClassOfAxiom i = (OWLSubClassOfAxiom) I;
             if (i.getSuperClass() instanceof OWLObjectSomeValuesFrom) {
                 if (this.right instanceof UnboundVariable && // C \ISA \exists R, R(x,_)
-                        this.roles.contains(((OWLObjectSomeValuesFrom) i.getSuperClass()).getProperty())) {
+                        this.contains(((OWLObjectSomeValuesFrom) i.getSuperClass()).getProperty())) {
                     return true;
                 }
                 // C \ISA \exists R, R-(_,x)
                 return this.left instanceof UnboundVariable &&
-                        this.roles.contains(((OWLObjectSomeValuesFrom) i.getSuperClass())
+                        this.contains(((OWLObjectSomeValuesFrom) i.getSuperClass())
                                 .getProperty().getInverseProperty());
             }
         } else if (I instanceof OWLObjectPropertyDomainAxiom) { // exists r \ISA \exists R
@@ -143,14 +145,39 @@ public class RolesImpl implements Roles {
     private boolean domainOrRangeAxiomApplicable(OWLClassExpression i) {
         if (i instanceof OWLObjectSomeValuesFrom) {
             OWLObjectPropertyExpression property = ((OWLObjectSomeValuesFrom) i).getProperty();
-            if (this.right instanceof UnboundVariable && this.roles.contains(property)) {
+            if (this.right instanceof UnboundVariable && this.contains(property)) {
                 return true;
             }
-            return this.left instanceof UnboundVariable && this.roles.contains(property.getInverseProperty());
+            return this.left instanceof UnboundVariable && this.contains(property.getInverseProperty());
         }
         return false;
     }
 
+    /**
+     * Check if a property or inverse property is one of the roles of this atom.
+     *
+     * @param r The property or inverse property.
+     * @return True if r is a role in this atom, False otherwise.
+     */
+    private boolean contains(OWLObjectPropertyExpression r) {
+        return this.roles.get(Vocabulary.getInstance().getRoleId(r));
+    }
+
+    @Override
+    public Set<OWLAxiom> getCandidateAxioms(Ontology o) {
+        // only axioms with \exists R on the right-hand side can be applicable, where R(x,_) or R-(_,x)
+        Set<OWLAxiom> candidates = new HashSet<>();
+        for (int r = this.roles.nextSetBit(0); r >= 0; r = this.roles.nextSetBit(r + 1)) {
+            if (this.right instanceof UnboundVariable) {
+                candidates.addAll(o.getAxiomsForProperty(Vocabulary.getInstance().getRole(r)));
+            }
+            if (this.left instanceof UnboundVariable) {
+                candidates.addAll(o.getAxiomsForProperty(Vocabulary.getInstance().getRole(Vocabulary.inverse(r))));
+            }
+        }
+        return candidates;
+    }
+
     @Override
     public Atom replace(OWLAxiom i, Rewriter rewriter) {
         // note that both variables can be unbound, theoretically
@@ -163,14 +190,15 @@ public class RolesImpl implements Roles {
             // get the property on the right-hand side
             OWLObjectPropertyExpression rhs = ((OWLObjectSomeValuesFrom) ((OWLSubClassOfAxiom) i).getSuperClass()).getProperty();
             if (((OWLSubClassOfAxiom) i).getSubClass() instanceof OWLClass) { // A
-                OWLClass subclass = (OWLClass) ((OWLSubClassOfAxiom) i).getSubClass();
-                if (this.right instanceof UnboundVariable && this.roles.contains(rhs)) { // A \ISA \exists R, R(x,_)
+                BitSet subclass = new BitSet();
+                subclass.set(Vocabulary.getInstance().getClassId(((OWLSubClassOfAxiom) i).getSubClass()));
+                if (this.right instanceof UnboundVariable && this.contains(rhs)) { // A \ISA \exists R, R(x,_)
                     // return A(x)
-                    return new ConceptsImpl(new HashSet<>(Collections.singleton(subclass)), this.left.getFresh());
+                    return new ConceptsImpl(subclass, this.left);
                 }
                 // A \ISA \exists R, R-(_,y)
                 // return A(y)
-                return new ConceptsImpl(new HashSet<>(Collections.singleton(subclass)), this.right.getFresh());
+                return new ConceptsImpl(subclass, this.right);
             } else { // \exists R1 \ISA \exists R
                 OWLObjectSomeValuesFrom subclass = (OWLObjectSomeValuesFrom) ((OWLSubClassOfAxiom) i).getSubClass();
                 return applyDomainOrRangeAxiom(subclass.getProperty(), rhs);
@@ -190,38 +218,42 @@ public class RolesImpl implements Roles {
     }
 
     private Atom applyDomainOrRangeAxiom(OWLObjectPropertyExpression lhs, OWLObjectPropertyExpression rhs) {
-        if (this.roles.contains(rhs) && this.right instanceof UnboundVariable) {
-            return new RolesImpl(new HashSet<>(Collections.singleton(lhs)), this.getLeft(), this.getRight());
+        BitSet roles = new BitSet();
+        roles.set(Vocabulary.getInstance().getRoleId(lhs));
+        if (this.contains(rhs) && this.right instanceof UnboundVariable) {
+            return new RolesImpl(roles, this.getLeft(), this.getRight());
         }
-        return new RolesImpl(new HashSet<>(Collections.singleton(lhs)), this.getRight(), this.getLeft());
+        return new RolesImpl(roles, this.getRight(), this.getLeft());
     }
 
     @Override
     public Term getLeft() {
-        return this.left.getFresh();
+        return this.left;
     }
 
     @Override
     public Term getRight() {
-        return this.right.getFresh();
+        return this.right;
     }
 
     @Override
     public Binary replaceTerms(Term left, Term right) {
-        return new RolesImpl(new HashSet<>(this.roles), left, right);
+        return new RolesImpl((BitSet) this.roles.clone(), left, right);
     }
 
     @Override
     public Set<OWLObjectPropertyExpression> getRoles() {
+        return Vocabulary.getInstance().decodeRoles(this.roles);
+    }
+
+    @Override
+    public BitSet getRoleIds() {
         return this.roles;
     }
 
     @Override
     public Roles getInverse() {
-        Set<OWLObjectPropertyExpression> inverses = this.roles.stream()
-                .map(OWLObjectPropertyExpression::getInverseProperty)
-                .collect(Collectors.toSet());
-        return new RolesImpl(inverses, this.right.getFresh(), this.left.getFresh());
+        return new RolesImpl(Vocabulary.inverse(this.roles), this.right, this.left);
     }
 
     /**
@@ -239,6 +271,16 @@ public class RolesImpl implements Roles {
             left = left.applySubstitution(sub);
             right = right.applySubstitution(sub);
         }
-        return new RolesImpl(new HashSet<>(this.roles), left, right);
+        return new RolesImpl((BitSet) this.roles.clone(), left, right);
+    }
+
+    @Override
+    public Atom applySubstitution(Map<Term, Term> substitution) {
+        Term left = substitution.getOrDefault(this.left, this.left);
+        Term right = substitution.getOrDefault(this.right, this.right);
+        if (left == this.left && right == this.right) {
+            return this;
+        }
+        return new RolesImpl((BitSet) this.roles.clone(), left, right);
     }
 }
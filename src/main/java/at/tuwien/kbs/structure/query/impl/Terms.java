@@ -0,0 +1,48 @@
+package at.tuwien.kbs.structure.query.impl;
+
+import at.tuwien.kbs.structure.query.Term;
+import at.tuwien.kbs.structure.query.UnboundVariable;
+
+/**
+ * Helper functions for comparing the terms of atoms.
+ */
+final class Terms {
+
+    /**
+     * The hash of an unbound variable as a term of an atom, independent of its name.
+     */
+    private static final int ANONYMOUS = 7;
+
+    private Terms() {
+    }
+
+    /**
+     * Check if two terms are equivalent as terms of an atom.
+     * Two atoms are equivalent if they have the unbound variables in the same positions and the same variables
+     * otherwise, i.e. the names of unbound variables do not matter.
+     *
+     * @param t1 The first term.
+     * @param t2 The second term.
+     * @return True if both are unbound variables or if they are equal, False otherwise.
+     */
+    static boolean equivalent(Term t1, Term t2) {
+        if (t1 instanceof UnboundVariable) {
+            return t2 instanceof UnboundVariable;
+        }
+        return t1 == t2 || t1.equals(t2);
+    }
+
+    /**
+     * Get the hash of a term as a term of an atom, consistent with {@link #equivalent(Term, Term)}:
+     * all unbound variables hash to the same anonymous marker at their position.
+     *
+     * @param t The term.
+     * @return The hash of the term.
+     */
+    static int hash(Term t) {
+        if (t == null) {
+            return 0;
+        }
+        return t instanceof UnboundVariable ? ANONYMOUS : t.hashCode();
+    }
+}
@@ -30,14 +30,16 @@ public class UnboundVariableImpl implements UnboundVariable {
 
     @Override
     public int hashCode() {
-        int hash = 3;
-        // hash = 53 * hash + (this.name != null ? this.name.hashCode() : 0);
+        // consistent with equals, atoms hash unbound variables anonymously, see Terms#hash
+        int hash = 5;
+        hash = 53 * hash + (this.name != null ? this.name.hashCode() : 0);
         return hash;
     }
 
     @Override
     public Term getFresh() {
-        return new UnboundVariableImpl(this.name);
+        // unbound variables are immutable, no need for a copy
+        return this;
     }
 
     @Override
@@ -49,14 +51,14 @@ public class UnboundVariableImpl implements UnboundVariable {
      * Apply a substitution to this unbound variable.
      *
      * @param s The substitution to be applied
-     * @return A new Term with the substitution applied.
+     * @return The Term with the substitution applied.
      */
     @Override
     public Term applySubstitution(Substitution s) {
         if (s.getIn().equals(this)) {
-            return s.getOut().getFresh();
+            return s.getOut();
         }
-        return new UnboundVariableImpl(this.name);
+        return this;
     }
 
     @Override
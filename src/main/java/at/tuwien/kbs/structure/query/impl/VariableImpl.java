@@ -16,6 +16,7 @@ public class VariableImpl implements Variable {
 
     /**
      * Initialize a new variable object with a name.
+     * Use {@link InterningFactory#variable(String)} to get the canonical object instead.
      * @param name The name of the variable.
      */
     public VariableImpl(String name) {
@@ -46,7 +47,8 @@ public class VariableImpl implements Variable {
 
     @Override
     public Term getFresh() {
-        return new VariableImpl(this.name);
+        // variables are immutable, no need for a copy
+        return this;
     }
 
     @Override
@@ -58,14 +60,14 @@ public class VariableImpl implements Variable {
      * Apply a substitution to this variable.
      *
      * @param s The substitution to be applied
-     * @return A new Term with the substitution applied.
+     * @return The Term with the substitution applied.
      */
     @Override
     public Term applySubstitution(Substitution s) {
         if (s.getIn().equals(this)) {
-            return s.getOut().getFresh();
+            return s.getOut();
         }
-        return new VariableImpl(this.name);
+        return this;
     }
 
     @Override
@@ -0,0 +1,34 @@
+package at.tuwien.kbs.translation;
+
+import at.tuwien.kbs.structure.query.Query;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * A translation that is written while the queries are added, such that the first queries of a rewriting can be sent
+ * to the database while the rewriting goes on, see {@link Translator#open}.
+ * The written string is the same as the one returned by {@link Translator#translate} for the added queries, up to
+ * the order of the queries.
+ */
+public interface TranslationWriter extends Consumer<Query>, Closeable {
+
+    /**
+     * Translate a query and write it.
+     *
+     * @param query The query.
+     * @throws UncheckedIOException If the query cannot be written.
+     */
+    @Override
+    void accept(Query query);
+
+    /**
+     * Finish the translation and flush the writer. The writer itself is not closed.
+     *
+     * @throws IOException If the translation cannot be written.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -3,6 +3,9 @@ package at.tuwien.kbs.translation;
 import at.tuwien.kbs.structure.query.Query;
 import at.tuwien.kbs.structure.query.Variable;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -21,4 +24,33 @@ public interface Translator {
      * @return String that can be evaluated over a database.
      */
     String translate(List<Variable> answerVars, Set<Query> queries);
+
+    /**
+     * Start a translation that writes each query to a writer once it is added, instead of building the whole query
+     * string. Duplicate translations are not removed, which is only a difference in the output if two distinct
+     * queries are translated into the same string.
+     * The default implementation collects the queries and writes their translation when it is closed, for query
+     * languages in which the translation of a query depends on the others.
+     *
+     * @param answerVars The answer variables in the input query.
+     * @param writer The writer the query string is written to.
+     * @return The translation, which must be closed once all queries are added.
+     */
+    default TranslationWriter open(List<Variable> answerVars, Writer writer) {
+        return new TranslationWriter() {
+
+            private final Set<Query> queries = new LinkedHashSet<>();
+
+            @Override
+            public void accept(Query query) {
+                this.queries.add(query);
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.write(translate(answerVars, this.queries));
+                writer.flush();
+            }
+        };
+    }
 }
@@ -1,26 +1,140 @@
 package at.tuwien.kbs.translation.impl;
 
 import at.tuwien.kbs.structure.query.*;
+import at.tuwien.kbs.translation.TranslationWriter;
 import at.tuwien.kbs.translation.Translator;
 import org.semanticweb.owlapi.model.OWLClassExpression;
 import org.semanticweb.owlapi.model.OWLObjectInverseOf;
 import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 /**
  * A class that translates a query into Cypher for Neo4j.
+ * <p>
+ * In deterministic mode, the same set of queries is always translated into the same string, such that Neo4j finds
+ * the plan of a repeated query in its cache: the variables are renamed canonically, see
+ * {@link Query#getCanonicalQuery()}, rewritings that are then equal are translated once, the clauses, labels and
+ * union branches are sorted, and the translation starts with a comment that holds its SHA-256 fingerprint. The
+ * sequential and the parallel rewriter may keep different variants of a rewriting apart, e.g. q(x,x):-r(x,x) and
+ * q(y,y):-r(y,y), so their rewritings are translated into the same string.
  */
 public class CypherTranslator implements Translator {
 
+    private static final String UNION = "\nunion\n";
+
+    private final boolean deterministic;
+
+    /**
+     * Initialize a translator, the order of the clauses is arbitrary.
+     */
+    public CypherTranslator() {
+        this(false);
+    }
+
+    /**
+     * Initialize a translator.
+     * @param deterministic True if the same queries must always be translated into the same string.
+     */
+    public CypherTranslator(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
     @Override
     public String translate(List<Variable> answerVars, Set<Query> queries) {
-        Set<String> queryStrings = queries.stream().map(q -> queryToCypher(answerVars, q)).collect(Collectors.toSet());
-        return String.join("\nunion\n", queryStrings);
+        Set<String> queryStrings = queries.stream()
+                .map(q -> queryToCypher(answerVars, this.deterministic ? q.getCanonicalQuery() : q))
+                .collect(Collectors.toCollection(this::newSet));
+        return withFingerprint(String.join(UNION, queryStrings));
+    }
+
+    @Override
+    public TranslationWriter open(List<Variable> answerVars, Writer writer) {
+        if (this.deterministic) {
+            // the branches can only be sorted once all of them are known
+            return buffered(answerVars, writer);
+        }
+        return new TranslationWriter() {
+
+            private boolean first = true;
+
+            @Override
+            public void accept(Query query) {
+                try {
+                    if (!this.first) {
+                        writer.write(UNION);
+                    }
+                    writer.write(queryToCypher(answerVars, query));
+                    this.first = false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.flush();
+            }
+        };
+    }
+
+    /**
+     * Get a translation that collects the queries and writes their translation when it is closed.
+     *
+     * @param answerVars The answer variables in the input query.
+     * @param writer The writer the query string is written to.
+     * @return The translation.
+     */
+    protected TranslationWriter buffered(List<Variable> answerVars, Writer writer) {
+        return Translator.super.open(answerVars, writer);
+    }
+
+    /**
+     * Check whether the translator is in deterministic mode.
+     *
+     * @return True if the same queries are always translated into the same string.
+     */
+    public boolean isDeterministic() {
+        return this.deterministic;
+    }
+
+    /**
+     * Get a new set of clauses, which is sorted in deterministic mode.
+     *
+     * @return The empty set.
+     */
+    protected Set<String> newSet() {
+        return this.deterministic ? new TreeSet<>() : new HashSet<>();
+    }
+
+    /**
+     * Prepend the fingerprint of a translation in deterministic mode.
+     *
+     * @param translation The translation.
+     * @return The translation, after a comment with its SHA-256 hash in deterministic mode.
+     */
+    protected String withFingerprint(String translation) {
+        if (!this.deterministic) {
+            return translation;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+        byte[] hash = digest.digest(translation.getBytes(StandardCharsets.UTF_8));
+        return "// fingerprint " + String.format("%064x", new BigInteger(1, hash)) + "\n" + translation;
     }
 
     /**
@@ -30,12 +144,36 @@ public class CypherTranslator implements Translator {
      * @param query The query to be translated into Cypher
      * @return A string representation of the query in Cypher.
      */
-    private String queryToCypher(List<Variable> answerVars, Query query) {
-        int variableCounter = 0;
-        Set<String> matchClauses = new HashSet<>();
-        Set<String> dependencies = new HashSet<>();
+    protected String queryToCypher(List<Variable> answerVars, Query query) {
+        Set<String> matchClauses = newSet();
+        Set<String> dependencies = newSet();
+        atomsToCypher(query.getBody(), 0, matchClauses, dependencies);
+
+        String returnClause = "return distinct ";
+        if (answerVars.size() == 0) {  // boolean query
+            returnClause += "1";
+        } else {  // contains answer variables
+            returnClause += IntStream.range(0, Math.min(answerVars.size(), query.getHead().size()))
+                    .mapToObj(i -> query.getHead().get(i).getName() + " as " + answerVars.get(i).getName())
+                    .collect(Collectors.joining(", "));
+        }
+        return String.join("\n", matchClauses) + "\n" +
+                (dependencies.size() > 0 ? "where " + String.join(" and ", dependencies) + "\n" : "") +
+                returnClause;
+    }
 
-        for (Atom atom : query.getBody()) {
+    /**
+     * Translate atoms to Cypher match clauses and the conditions of the where clause.
+     *
+     * @param atoms The atoms.
+     * @param variableCounter The number of relationship variables r1, r2, ... used so far.
+     * @param matchClauses Receives the match clauses.
+     * @param dependencies Receives the conditions, which must be joined by "and".
+     * @return The number of relationship variables used after the atoms.
+     */
+    protected int atomsToCypher(Collection<Atom> atoms, int variableCounter, Set<String> matchClauses,
+                                Set<String> dependencies) {
+        for (Atom atom : order(atoms)) {
             // three possibilities: Concepts, Roles or Arbitrary length Roles
             if (atom instanceof Concepts) {
                 Term term = ((Concepts) atom).getTerm();
@@ -49,7 +187,7 @@ public class CypherTranslator implements Translator {
                 Set<String> atomDependencies = concepts
                         .stream()
                         .map(concept -> term.getName() + ":" + concept.asOWLClass().getIRI().getFragment())
-                        .collect(Collectors.toSet());
+                        .collect(Collectors.toCollection(this::newSet));
                 dependencies.add("(" + String.join(" or ", atomDependencies) + ")");
             } else if (atom instanceof Roles) {
                 // performance consideration: if no mixing of directions, make directed
@@ -61,7 +199,7 @@ public class CypherTranslator implements Translator {
                             ":" +
                             String.join("|", ((Roles) atom).getRoles().stream().map(
                                     p -> p.getNamedProperty().getIRI().getFragment()
-                            ).collect(Collectors.toSet())) +
+                            ).collect(Collectors.toCollection(this::newSet))) +
                             "]->(" +
                             ((Roles) atom).getRight().getName() +
                             ")";
@@ -74,7 +212,7 @@ public class CypherTranslator implements Translator {
                             ":" +
                             String.join("|", ((Roles) atom).getRoles().stream().map(
                                     p -> p.getNamedProperty().getIRI().getFragment()
-                            ).collect(Collectors.toSet())) +
+                            ).collect(Collectors.toCollection(this::newSet))) +
                             "]-(" +
                             ((Roles) atom).getRight().getName() +
                             ")";
@@ -88,12 +226,12 @@ public class CypherTranslator implements Translator {
                             ":" +
                             String.join("|", ((Roles) atom).getRoles().stream().map(
                                     p -> p.getNamedProperty().getIRI().getFragment()
-                            ).collect(Collectors.toSet())) +
+                            ).collect(Collectors.toCollection(this::newSet))) +
                             "]-(" +
                             ((Roles) atom).getRight().getName() +
                             ")";
                     matchClauses.add(match);
-                    Set<String> atomDependencies = new HashSet<>();
+                    Set<String> atomDependencies = newSet();
                     for (OWLObjectPropertyExpression p : ((Roles) atom).getRoles()) {
                         String dependency = "(startnode(r" +
                                 variableCounter +
@@ -117,24 +255,33 @@ public class CypherTranslator implements Translator {
                         ":" +
                         String.join("|", ((ArbitraryLengthRoles) atom).getRoles().stream().map(
                                 p -> p.getNamedProperty().getIRI().getFragment()
-                        ).collect(Collectors.toSet())) +
+                        ).collect(Collectors.toCollection(this::newSet))) +
                         "*0..]->(" +
                         ((ArbitraryLengthRoles) atom).getRight().getName() +
                         ")";
                 matchClauses.add(match);
             }
         }
+        return variableCounter;
+    }
 
-        String returnClause = "return distinct ";
-        if (answerVars.size() == 0) {  // boolean query
-            returnClause += "1";
-        } else {  // contains answer variables
-            returnClause += IntStream.range(0, Math.min(answerVars.size(), query.getHead().size()))
-                    .mapToObj(i -> query.getHead().get(i).getName() + " as " + answerVars.get(i).getName())
-                    .collect(Collectors.joining(", "));
+    /**
+     * Order atoms by their translation in deterministic mode, such that the relationship variables are numbered in
+     * the same order for equal queries.
+     */
+    private Collection<Atom> order(Collection<Atom> atoms) {
+        if (!this.deterministic || atoms.size() < 2) {
+            return atoms;
         }
-        return String.join("\n", matchClauses) + "\n" +
-                (dependencies.size() > 0 ? "where " + String.join(" and ", dependencies) + "\n" : "") +
-                returnClause;
+        Map<Atom, String> translations = new HashMap<>();
+        for (Atom atom : atoms) {
+            Set<String> matchClauses = newSet();
+            Set<String> dependencies = newSet();
+            atomsToCypher(Collections.singleton(atom), 0, matchClauses, dependencies);
+            translations.put(atom, matchClauses + " " + dependencies);
+        }
+        List<Atom> ordered = new ArrayList<>(atoms);
+        ordered.sort(Comparator.comparing(translations::get));
+        return ordered;
     }
 }
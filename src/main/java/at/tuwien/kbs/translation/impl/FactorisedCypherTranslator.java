@@ -0,0 +1,197 @@
+package at.tuwien.kbs.translation.impl;
+
+import at.tuwien.kbs.structure.query.*;
+import at.tuwien.kbs.translation.TranslationWriter;
+
+import java.io.Writer;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A class that translates a query into Cypher for Neo4j, sharing the atoms that several rewritings have in common.
+ * <p>
+ * The rewritings are grouped greedily: the atom that occurs in most of the remaining rewritings is chosen, and all
+ * rewritings that contain it form a group. The atoms common to all rewritings of a group are matched once, the
+ * remaining atoms of each rewriting become a branch of a {@code CALL { ... UNION ... }} subquery. Atoms are compared
+ * by what they are translated into, see {@link #key}. Rewritings that do not share an atom with another one are
+ * translated as by {@link CypherTranslator}. Subqueries with a union need Neo4j 4.1 or later.
+ */
+public class FactorisedCypherTranslator extends CypherTranslator {
+
+    /**
+     * The prefix of the columns returned by the subqueries. Query variables consist of letters and fresh variables
+     * start with "v", so the columns never hide a variable of the outer scope.
+     */
+    private static final String COLUMN = "answer";
+
+    /**
+     * Initialize a translator, the order of the clauses is arbitrary.
+     */
+    public FactorisedCypherTranslator() {
+        this(false);
+    }
+
+    /**
+     * Initialize a translator.
+     * @param deterministic True if the same queries must always be translated into the same string.
+     */
+    public FactorisedCypherTranslator(boolean deterministic) {
+        super(deterministic);
+    }
+
+    @Override
+    public String translate(List<Variable> answerVars, Set<Query> queries) {
+        List<Query> remaining = new ArrayList<>(queries);
+        if (isDeterministic()) {
+            // rewritings that only differ by the names of their variables are translated once
+            Map<String, Query> canonical = new TreeMap<>();
+            for (Query q : queries) {
+                Query renamed = q.getCanonicalQuery();
+                canonical.putIfAbsent(renamed.getNamedCanonicalForm(), renamed);
+            }
+            remaining = new ArrayList<>(canonical.values());
+        }
+        List<String> parts = new ArrayList<>();
+        int variableCounter = 0;
+        while (!remaining.isEmpty()) {
+            String shared = mostFrequentAtom(remaining);
+            if (shared == null) {
+                // no atom occurs in two rewritings, nothing can be shared
+                for (Query q : remaining) {
+                    parts.add(queryToCypher(answerVars, q));
+                }
+                break;
+            }
+            List<Query> group = remaining.stream()
+                    .filter(q -> keys(q.getBody()).contains(shared))
+                    .collect(Collectors.toList());
+            remaining.removeAll(group);
+
+            Set<String> commonKeys = keys(group.get(0).getBody());
+            group.forEach(q -> commonKeys.retainAll(keys(q.getBody())));
+            Set<Atom> common = group.get(0).getBody().stream()
+                    .filter(a -> commonKeys.contains(key(a)))
+                    .collect(Collectors.toSet());
+
+            Set<String> matchClauses = newSet();
+            Set<String> dependencies = newSet();
+            variableCounter = atomsToCypher(common, variableCounter, matchClauses, dependencies);
+            Set<String> bound = variables(common);
+
+            List<String> branches = new ArrayList<>();
+            for (Query q : group) {
+                Set<Atom> atoms = q.getBody().stream()
+                        .filter(a -> !commonKeys.contains(key(a)))
+                        .collect(Collectors.toSet());
+                Set<String> branchMatchClauses = newSet();
+                Set<String> branchDependencies = newSet();
+                variableCounter = atomsToCypher(atoms, variableCounter, branchMatchClauses, branchDependencies);
+
+                // the variables of the outer scope that the branch refers to are imported
+                Set<String> imported = new TreeSet<>(variables(atoms));
+                q.getHead().forEach(v -> imported.add(v.getName()));
+                imported.retainAll(bound);
+
+                branches.add((imported.isEmpty() ? "" : "with " + String.join(", ", imported) + "\n") +
+                        clauses(branchMatchClauses, branchDependencies) +
+                        "return " + columns(answerVars, q));
+            }
+
+            String returnClause = "return distinct " + (answerVars.isEmpty() ? "1" :
+                    IntStream.range(0, answerVars.size())
+                            .mapToObj(i -> COLUMN + (i + 1) + " as " + answerVars.get(i).getName())
+                            .collect(Collectors.joining(", ")));
+            parts.add(clauses(matchClauses, dependencies) +
+                    "call {\n" + String.join("\nunion\n", branches) + "\n}\n" +
+                    returnClause);
+        }
+        return withFingerprint(String.join("\nunion\n", parts));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The rewritings can only be factorised once all of them are known, so the translation is written when it is
+     * closed.
+     */
+    @Override
+    public TranslationWriter open(List<Variable> answerVars, Writer writer) {
+        return buffered(answerVars, writer);
+    }
+
+    /**
+     * Get the atom that occurs in most queries, ties are broken by the keys of the atoms.
+     *
+     * @return The key of the atom, or null if no atom occurs in two queries.
+     */
+    private static String mostFrequentAtom(List<Query> queries) {
+        Map<String, Integer> frequency = new HashMap<>();
+        for (Query q : queries) {
+            for (String key : keys(q.getBody())) {
+                frequency.merge(key, 1, Integer::sum);
+            }
+        }
+        return frequency.entrySet().stream()
+                .filter(e -> e.getValue() > 1)
+                .min(Comparator.<Map.Entry<String, Integer>>comparingInt(e -> -e.getValue())
+                        .thenComparing(Map.Entry::getKey))
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+
+    /**
+     * Get a key of an atom that only depends on what the atom is translated into. Unlike atoms, keys do not tell
+     * bound and unbound variables apart, since both are translated into the same node variable.
+     */
+    private static String key(Atom atom) {
+        if (atom instanceof Concepts) {
+            return names(((Concepts) atom).getConceptNames()) + "(" + ((Concepts) atom).getTerm().getName() + ")";
+        }
+        return (atom instanceof ArbitraryLengthRoles ? "*" : "") + names(((Binary) atom).getRoles()) +
+                "(" + ((Binary) atom).getLeft().getName() + "," + ((Binary) atom).getRight().getName() + ")";
+    }
+
+    private static String names(Set<?> entities) {
+        return entities.stream().map(Object::toString).sorted().collect(Collectors.joining("|"));
+    }
+
+    private static Set<String> keys(Collection<Atom> atoms) {
+        return atoms.stream().map(FactorisedCypherTranslator::key).collect(Collectors.toSet());
+    }
+
+    /**
+     * Get the names of the variables of atoms.
+     */
+    private static Set<String> variables(Collection<Atom> atoms) {
+        Set<String> variables = new HashSet<>();
+        for (Atom a : atoms) {
+            if (a instanceof Concepts) {
+                variables.add(((Concepts) a).getTerm().getName());
+            } else {
+                variables.add(((Binary) a).getLeft().getName());
+                variables.add(((Binary) a).getRight().getName());
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Join match clauses and conditions, each clause on a line of its own.
+     */
+    private static String clauses(Set<String> matchClauses, Set<String> dependencies) {
+        return matchClauses.stream().map(c -> c + "\n").collect(Collectors.joining()) +
+                (dependencies.size() > 0 ? "where " + String.join(" and ", dependencies) + "\n" : "");
+    }
+
+    /**
+     * Get the columns returned by the branch of a query: the head of the query, or a constant for a boolean query.
+     */
+    private static String columns(List<Variable> answerVars, Query query) {
+        if (answerVars.isEmpty()) {
+            return "1 as " + COLUMN + "1";
+        }
+        return IntStream.range(0, answerVars.size())
+                .mapToObj(i -> query.getHead().get(i).getName() + " as " + COLUMN + (i + 1))
+                .collect(Collectors.joining(", "));
+    }
+}
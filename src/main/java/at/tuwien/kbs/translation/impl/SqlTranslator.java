@@ -0,0 +1,242 @@
+package at.tuwien.kbs.translation.impl;
+
+import at.tuwien.kbs.structure.query.*;
+import at.tuwien.kbs.translation.Translator;
+import org.semanticweb.owlapi.model.OWLObjectInverseOf;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A class that translates a query into SQL, to be evaluated over a relational copy of the graph, e.g. in PostgreSQL
+ * or DuckDB.
+ * <p>
+ * The graph is stored in three tables: {@code nodes(id)} holds all nodes, {@code labels(node, label)} the labels of
+ * the nodes and {@code edges(source, target, type)} the typed edges. Labels and types are the fragments of the IRIs,
+ * as for {@link CypherTranslator}. A concepts atom is joined with the labels, a roles atom with the edges in the
+ * direction of each role, and an arbitrary length roles atom with the reflexive-transitive closure of its roles,
+ * which is computed by a recursive common table expression. The queries are joined by UNION.
+ * <p>
+ * In sharing mode, each distinct concepts or roles atom (up to its variables) is defined once as a common table
+ * expression that all queries refer to, instead of being written out in every query that contains it.
+ */
+public class SqlTranslator implements Translator {
+
+    /**
+     * The table of all nodes, with the column id.
+     */
+    public static final String NODES = "nodes";
+
+    /**
+     * The table of the labels of the nodes, with the columns node and label.
+     */
+    public static final String LABELS = "labels";
+
+    /**
+     * The table of the edges, with the columns source, target and type.
+     */
+    public static final String EDGES = "edges";
+
+    private final boolean share;
+
+    /**
+     * Initialize a translator that writes the atoms out in every query.
+     */
+    public SqlTranslator() {
+        this(false);
+    }
+
+    /**
+     * Initialize a translator.
+     * @param share True if the concepts and roles atoms are defined once as common table expressions.
+     */
+    public SqlTranslator(boolean share) {
+        this.share = share;
+    }
+
+    @Override
+    public String translate(List<Variable> answerVars, Set<Query> queries) {
+        CommonTables tables = new CommonTables();
+        Set<String> queryStrings = new LinkedHashSet<>();
+        for (Query q : queries) {
+            queryStrings.add(queryToSql(answerVars, q, tables));
+        }
+        return tables + String.join("\nunion\n", queryStrings);
+    }
+
+    /**
+     * Translate a single query to a SQL query.
+     *
+     * @param answerVars The answer variables to the query.
+     * @param query The query to be translated into SQL.
+     * @param tables The common table expressions, which receive the tables the query refers to.
+     * @return A string representation of the query in SQL.
+     */
+    private String queryToSql(List<Variable> answerVars, Query query, CommonTables tables) {
+        List<String> from = new ArrayList<>();
+        List<String> where = new ArrayList<>();
+        // the column each variable is bound to, further occurrences are joined with it
+        Map<String, String> columns = new HashMap<>();
+        int aliases = 0;
+
+        for (Atom atom : query.getBody()) {
+            String alias = "a" + ++aliases;
+            if (atom instanceof Concepts) {
+                String labels = literals(((Concepts) atom).getConceptNames().stream()
+                        .map(c -> c.asOWLClass().getIRI().getFragment()));
+                if (this.share) {
+                    from.add(tables.define("concepts", "(node)",
+                            "select node from " + LABELS + " where label in (" + labels + ")") + " " + alias);
+                } else {
+                    from.add(LABELS + " " + alias);
+                    where.add(alias + ".label in (" + labels + ")");
+                }
+                bind(((Concepts) atom).getTerm(), alias + ".node", columns, where);
+                continue;
+            }
+
+            Binary binary = (Binary) atom;
+            String left = alias + ".source";
+            String right = alias + ".target";
+            if (atom instanceof ArbitraryLengthRoles) {
+                from.add(tables.closure(binary.getRoles()) + " " + alias);
+            } else if (this.share) {
+                from.add(tables.define("roles", "(source, target)", edges(binary.getRoles())) + " " + alias);
+            } else if (directions(binary.getRoles()).size() == 2) {
+                // the edges of the roles are read in different directions
+                from.add("(" + edges(binary.getRoles()) + ") " + alias);
+            } else {
+                Map.Entry<Boolean, String> types = directions(binary.getRoles()).entrySet().iterator().next();
+                from.add(EDGES + " " + alias);
+                where.add(alias + ".type in (" + types.getValue() + ")");
+                if (types.getKey()) {
+                    left = alias + ".target";
+                    right = alias + ".source";
+                }
+            }
+            bind(binary.getLeft(), left, columns, where);
+            bind(binary.getRight(), right, columns, where);
+        }
+
+        String select = "select distinct ";
+        if (answerVars.size() == 0) {  // boolean query
+            select += "1 as answer";
+        } else {  // contains answer variables
+            select += IntStream.range(0, Math.min(answerVars.size(), query.getHead().size()))
+                    .mapToObj(i -> column(query.getHead().get(i), columns) + " as \"" + answerVars.get(i).getName() +
+                            "\"")
+                    .collect(Collectors.joining(", "));
+        }
+        return select + "\n" +
+                "from " + String.join(", ", from) +
+                (where.size() > 0 ? "\nwhere " + String.join(" and ", where) : "");
+    }
+
+    /**
+     * Bind a term to a column, or join the column with the column the term is bound to already.
+     */
+    private static void bind(Term term, String column, Map<String, String> columns, List<String> where) {
+        String bound = columns.putIfAbsent(term.getName(), column);
+        if (bound != null) {
+            where.add(column + " = " + bound);
+        }
+    }
+
+    private static String column(Variable variable, Map<String, String> columns) {
+        String column = columns.get(variable.getName());
+        if (column == null) {
+            throw new IllegalArgumentException("The answer variable " + variable.getName() +
+                    " does not occur in the body of the query");
+        }
+        return column;
+    }
+
+    /**
+     * Group roles by their direction.
+     *
+     * @return A map from true for inverse roles and false for roles to the list of the types of their edges.
+     */
+    private static Map<Boolean, String> directions(Set<OWLObjectPropertyExpression> roles) {
+        return roles.stream().collect(Collectors.groupingBy(p -> p instanceof OWLObjectInverseOf, TreeMap::new,
+                Collectors.collectingAndThen(Collectors.toList(),
+                        ps -> literals(ps.stream().map(p -> p.getNamedProperty().getIRI().getFragment())))));
+    }
+
+    /**
+     * Get the edges of roles as a relation with the columns source and target, where the edges of inverse roles are
+     * reversed.
+     */
+    private static String edges(Set<OWLObjectPropertyExpression> roles) {
+        return directions(roles).entrySet().stream()
+                .map(e -> (e.getKey() ? "select target as source, source as target" : "select source, target") +
+                        " from " + EDGES + " where type in (" + e.getValue() + ")")
+                .collect(Collectors.joining(" union all "));
+    }
+
+    /**
+     * Write names as a list of SQL string literals.
+     */
+    private static String literals(Stream<String> names) {
+        return names.sorted()
+                .map(n -> "'" + n.replace("'", "''") + "'")
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * The common table expressions of a translation, in the order in which they are defined.
+     */
+    private static final class CommonTables {
+
+        /**
+         * The names of the tables by their definition.
+         */
+        private final Map<String, String> names = new HashMap<>();
+
+        private final List<String> definitions = new ArrayList<>();
+
+        private boolean recursive;
+
+        /**
+         * Get the name of a table, which is defined if it has not been defined yet.
+         */
+        private String define(String prefix, String columns, String definition) {
+            return this.names.computeIfAbsent(prefix + columns + definition, k -> {
+                String name = prefix + (this.definitions.size() + 1);
+                this.definitions.add(name + columns + " as (\n" + definition + "\n)");
+                return name;
+            });
+        }
+
+        /**
+         * Get the name of the reflexive-transitive closure of the edges of roles.
+         */
+        private String closure(Set<OWLObjectPropertyExpression> roles) {
+            String edges = edges(roles);
+            String key = "closure(source, target)" + edges;
+            String name = this.names.get(key);
+            if (name == null) {
+                this.recursive = true;
+                name = "closure" + (this.definitions.size() + 1);
+                // union instead of union all, such that the recursion ends on cycles
+                this.definitions.add(name + "(source, target) as (\n" +
+                        "select id, id from " + NODES + "\n" +
+                        "union\n" +
+                        "select c.source, e.target from " + name + " c join (" + edges + ") e on e.source = c.target" +
+                        "\n)");
+                this.names.put(key, name);
+            }
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            if (this.definitions.isEmpty()) {
+                return "";
+            }
+            return (this.recursive ? "with recursive " : "with ") + String.join(",\n", this.definitions) + "\n";
+        }
+    }
+}
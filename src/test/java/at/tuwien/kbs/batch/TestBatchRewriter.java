@@ -0,0 +1,63 @@
+package at.tuwien.kbs.batch;
+
+import at.tuwien.kbs.logic.RewritingBudget;
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.translation.impl.CypherTranslator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBatchRewriter {
+
+    @Test
+    public void testBatch(@TempDir Path directory) throws OWLOntologyCreationException, NotOWL2QLException,
+            IOException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/vvr.owl");
+
+        // a manifest with two queries of the resources and a missing one
+        Path manifest = directory.resolve("queries.txt");
+        Files.write(manifest, Arrays.asList(
+                "# nightly",
+                resourcesDirectory.getAbsolutePath() + "/queries/q1.query",
+                "",
+                resourcesDirectory.getAbsolutePath() + "/queries/q2.query",
+                "missing.query"));
+        List<Path> queryFiles = BatchRewriter.queryFiles(manifest);
+        assertEquals(3, queryFiles.size());
+
+        Path output = directory.resolve("out");
+        List<BatchRewriter.Result> results = new BatchRewriter(o, RewriterImpl::new, new CypherTranslator(),
+                "cypher", 2, RewritingBudget.unlimited()).run(queryFiles, output);
+
+        assertEquals(Arrays.asList("q1", "q2", "missing"), Arrays.asList(results.get(0).getName(),
+                results.get(1).getName(), results.get(2).getName()));
+        assertNull(results.get(0).getError());
+        assertTrue(results.get(0).getRewritings() > 0);
+        assertTrue(Files.readString(output.resolve("q1.cypher")).contains("match"));
+        assertTrue(Files.exists(output.resolve("q2.cypher")));
+        // the missing query is reported, it does not stop the batch
+        assertNotNull(results.get(2).getError());
+        assertFalse(Files.exists(output.resolve("missing.cypher")));
+        assertEquals(4, Files.readAllLines(output.resolve(BatchRewriter.SUMMARY)).size());
+    }
+
+    @Test
+    public void testDirectory() throws IOException {
+        List<Path> queryFiles = BatchRewriter.queryFiles(Path.of("src/test/resources/queries"));
+        assertEquals(Path.of("src/test/resources/queries/q1.query"), queryFiles.get(0));
+        assertTrue(queryFiles.stream().allMatch(f -> f.toString().endsWith(".query")));
+    }
+}
@@ -0,0 +1,50 @@
+package at.tuwien.kbs.benchmark;
+
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Access to the ontologies and queries in the test resources, which are used as benchmark inputs.
+ * Benchmarks are run from the project directory, see the benchmark profile in the pom.
+ */
+final class BenchmarkResources {
+
+    private static final File RESOURCES = new File("src/test/resources");
+
+    private BenchmarkResources() {
+    }
+
+    /**
+     * Get the path of an ontology in the test resources.
+     * @param name The file name of the ontology.
+     * @return The absolute path of the ontology.
+     */
+    static String ontologyPath(String name) {
+        return RESOURCES.getAbsolutePath() + "/" + name;
+    }
+
+    /**
+     * Load an ontology from the test resources.
+     * @param name The file name of the ontology.
+     * @return The ontology.
+     */
+    static Ontology ontology(String name) throws OWLOntologyCreationException, NotOWL2QLException {
+        return new OntologyImpl(ontologyPath(name));
+    }
+
+    /**
+     * Read a query from the test resources.
+     * @param name The name of the query, without the .query extension.
+     * @return The query in string format.
+     */
+    static String query(String name) throws IOException {
+        return Files.readString(Path.of(RESOURCES.getAbsolutePath(), "queries", name + ".query"));
+    }
+}
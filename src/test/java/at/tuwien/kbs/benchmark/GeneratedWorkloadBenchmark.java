@@ -0,0 +1,85 @@
+package at.tuwien.kbs.benchmark;
+
+import at.tuwien.kbs.generator.OntologyGenerator;
+import at.tuwien.kbs.generator.QueryGenerator;
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Query;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ontology loading and rewriting on generated ontologies of growing size.
+ * An ontology of width w has 5 levels of w concepts and about 5.6 * w logical axioms, i.e. a width of 10000 yields
+ * an ontology with about 56k axioms.
+ * The generated query has the given numbers of concept, role and arbitrary length atoms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratedWorkloadBenchmark {
+
+    private static final long SEED = 20220401L;
+
+    /**
+     * The widths of the ontologies, the number of rewritings grows quickly with the size of the ontology, so the
+     * larger ontologies (e.g. 10000 for about 56k axioms) are not measured by default.
+     */
+    @Param({"100", "300", "1000"})
+    public int width;
+
+    @Param({"2"})
+    public int conceptAtoms;
+
+    @Param({"1"})
+    public int roleAtoms;
+
+    @Param({"0", "1"})
+    public int pathAtoms;
+
+    private OWLOntology generated;
+
+    private Ontology ontology;
+
+    private Query query;
+
+    @Setup
+    public void setup() throws OWLOntologyCreationException, NotOWL2QLException {
+        this.generated = new OntologyGenerator(SEED)
+                .depth(5)
+                .width(this.width)
+                .properties(Math.max(1, this.width / 10))
+                .subProperties(this.width / 10)
+                .existentials(this.width)
+                .domainRanges(this.width / 2)
+                .generate();
+        this.ontology = new OntologyImpl(this.generated);
+
+        String queryString = new QueryGenerator(this.ontology, SEED)
+                .conceptAtoms(this.conceptAtoms)
+                .roleAtoms(this.roleAtoms)
+                .pathAtoms(this.pathAtoms)
+                .generate();
+        this.query = new QueryParserImpl(this.ontology).parse(queryString);
+    }
+
+    @Benchmark
+    public Ontology load() throws NotOWL2QLException {
+        return new OntologyImpl(this.generated);
+    }
+
+    @Benchmark
+    public Set<Query> rewrite() {
+        return new RewriterImpl().rewrite(this.query, this.ontology);
+    }
+}
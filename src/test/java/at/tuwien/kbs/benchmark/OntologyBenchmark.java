@@ -0,0 +1,36 @@
+package at.tuwien.kbs.benchmark;
+
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading of the bundled ontologies, including the OWL2 QL check, the axiom index and the hierarchy closures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OntologyBenchmark {
+
+    @Param({"university.owl", "university2.ttl", "vvr.owl", "paths1.owl", "paths2.owl", "subroles.owl"})
+    public String ontology;
+
+    private String path;
+
+    @Setup
+    public void setup() {
+        this.path = BenchmarkResources.ontologyPath(this.ontology);
+    }
+
+    @Benchmark
+    public Ontology load() throws OWLOntologyCreationException, NotOWL2QLException {
+        return new OntologyImpl(this.path);
+    }
+}
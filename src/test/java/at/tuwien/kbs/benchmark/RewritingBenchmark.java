@@ -0,0 +1,76 @@
+package at.tuwien.kbs.benchmark;
+
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.parser.QueryParser;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.translation.Translator;
+import at.tuwien.kbs.translation.impl.CypherTranslator;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, saturation, rewriting and translation of the bundled queries over the vvr ontology.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RewritingBenchmark {
+
+    @Param({"q1", "q2", "q3", "q4", "q5"})
+    public String query;
+
+    private Ontology ontology;
+
+    private QueryParser parser;
+
+    private String queryString;
+
+    /**
+     * The parsed query; saturating it again does not change it, so it can be reused by every invocation.
+     */
+    private Query parsed;
+
+    private Set<Query> rewritings;
+
+    private final Translator translator = new CypherTranslator();
+
+    @Setup
+    public void setup() throws OWLOntologyCreationException, NotOWL2QLException, IOException {
+        this.ontology = BenchmarkResources.ontology("vvr.owl");
+        this.parser = new QueryParserImpl(this.ontology);
+        this.queryString = BenchmarkResources.query(this.query);
+        this.parsed = this.parser.parse(this.queryString);
+        this.rewritings = new RewriterImpl().rewrite(this.parser.parse(this.queryString), this.ontology);
+    }
+
+    @Benchmark
+    public Query parse() {
+        return this.parser.parse(this.queryString);
+    }
+
+    @Benchmark
+    public Query saturate() {
+        this.parsed.saturate(this.ontology);
+        return this.parsed;
+    }
+
+    @Benchmark
+    public Set<Query> rewrite() {
+        return new RewriterImpl().rewrite(this.parsed, this.ontology);
+    }
+
+    @Benchmark
+    public String translate() {
+        return this.translator.translate(this.parsed.getHead(), this.rewritings);
+    }
+}
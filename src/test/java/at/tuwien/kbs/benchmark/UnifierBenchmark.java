@@ -0,0 +1,67 @@
+package at.tuwien.kbs.benchmark;
+
+import at.tuwien.kbs.logic.Unifier;
+import at.tuwien.kbs.logic.impl.UnifierImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Atom;
+import at.tuwien.kbs.structure.query.Binary;
+import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.structure.query.Term;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction and application of unifiers, as done by the rules reduce and merge for pairs of atoms.
+ * The unifier maps the left terms of all binary atoms of a query to their right terms, which joins all variables
+ * along the paths of the query into a single class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnifierBenchmark {
+
+    @Param({"q2", "q4"})
+    public String query;
+
+    private Query parsed;
+
+    private final List<Term> left = new ArrayList<>();
+
+    private final List<Term> right = new ArrayList<>();
+
+    private Unifier unifier;
+
+    @Setup
+    public void setup() throws OWLOntologyCreationException, NotOWL2QLException, IOException {
+        Ontology ontology = BenchmarkResources.ontology("vvr.owl");
+        this.parsed = new QueryParserImpl(ontology).parse(BenchmarkResources.query(this.query));
+        this.parsed.saturate(ontology);
+        for (Atom a : this.parsed.getBody()) {
+            if (a instanceof Binary) {
+                this.left.add(((Binary) a).getLeft());
+                this.right.add(((Binary) a).getRight());
+            }
+        }
+        this.unifier = new UnifierImpl(this.left, this.right);
+    }
+
+    @Benchmark
+    public Unifier construct() {
+        return new UnifierImpl(this.left, this.right);
+    }
+
+    @Benchmark
+    public Query apply() {
+        return this.unifier.apply(this.parsed);
+    }
+}
@@ -0,0 +1,65 @@
+package at.tuwien.kbs.cache;
+
+import at.tuwien.kbs.cache.impl.RewritingCacheImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRewritingCacheImpl {
+
+    private static final String PATHS1 = new File("src/test/resources").getAbsolutePath() + "/paths1.owl";
+
+    private static final String PATHS2 = new File("src/test/resources").getAbsolutePath() + "/paths2.owl";
+
+    @Test
+    public void testKey() throws OWLOntologyCreationException, NotOWL2QLException {
+        Ontology o = new OntologyImpl(PATHS1);
+        RewritingCache cache = new RewritingCacheImpl();
+
+        // the same query up to renaming of the non-head variables, loaded twice
+        String key = cache.key(o, new QueryParserImpl(o).parse("q(x):-t(y,z),r(z,x)"), "cypher");
+        assertEquals(key, cache.key(new OntologyImpl(PATHS1),
+                new QueryParserImpl(o).parse("q(x):-r(w,x),t(v,w)"), "cypher"));
+
+        assertNotEquals(key, cache.key(o, new QueryParserImpl(o).parse("q(z):-t(y,z),r(z,x)"), "cypher"));
+        assertNotEquals(key, cache.key(o, new QueryParserImpl(o).parse("q(x):-t(y,z),r(z,x)"), "sql"));
+        Ontology other = new OntologyImpl(PATHS2);
+        assertNotEquals(o.getFingerprint(), other.getFingerprint());
+    }
+
+    @Test
+    public void testEviction() {
+        RewritingCache cache = new RewritingCacheImpl(2, null);
+        CachedRewriting rewriting = new CachedRewriting(Arrays.asList("q(x):-A(x)"), "MATCH (x:A) RETURN x");
+        cache.put("a", rewriting);
+        cache.put("b", rewriting);
+        // a is used more recently than b, so b is evicted
+        assertEquals(rewriting, cache.get("a"));
+        cache.put("c", rewriting);
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void testDisk(@TempDir Path directory) {
+        CachedRewriting rewriting = new CachedRewriting(Arrays.asList("q(x):-A(x)", "q(x):-B(x)"),
+                "MATCH (x:A) RETURN x\nUNION\nMATCH (x:B) RETURN x\n");
+        new RewritingCacheImpl(1, directory).put("a", rewriting);
+
+        // a new cache, e.g. in the next run, reads the entry from disk
+        RewritingCache cache = new RewritingCacheImpl(1, directory);
+        assertEquals(rewriting, cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+}
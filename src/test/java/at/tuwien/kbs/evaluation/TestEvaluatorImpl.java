@@ -0,0 +1,125 @@
+package at.tuwien.kbs.evaluation;
+
+import at.tuwien.kbs.evaluation.impl.EvaluatorImpl;
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Query;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestEvaluatorImpl {
+
+    @Test
+    public void testRewriting() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+        Query q = new QueryParserImpl(o).parse("q(x):-t(y,z),s*(z,w),r(w,x)");
+        PropertyGraph graph = new PropertyGraph.Builder()
+                .addNode("7", Collections.singleton("A"))
+                .addNode("8", Collections.emptySet())
+                .addRelationship("1", "2", "t")
+                .addRelationship("2", "3", "s")
+                .addRelationship("3", "4", "r")
+                .addRelationship("5", "6", "r")
+                .addRelationship("9", "10", "s")
+                .build();
+        Evaluator evaluator = new EvaluatorImpl(graph);
+
+        assertEquals(answers("4"), evaluator.evaluate(q.getHead(), Collections.singleton(q)));
+        // 6 and 7 are implied by the ontology
+        assertEquals(answers("4", "6", "7"), evaluator.evaluate(q.getHead(), new RewriterImpl().rewrite(q, o)));
+    }
+
+    @Test
+    public void testRoles() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+        QueryParserImpl parser = new QueryParserImpl(o);
+        PropertyGraph graph = new PropertyGraph.Builder()
+                .addRelationship("1", "2", "r")
+                .addRelationship("3", "4", "s")
+                .addRelationship("3", "4", "s")
+                .addRelationship("4", "4", "t")
+                .build();
+        Evaluator evaluator = new EvaluatorImpl(graph);
+
+        Query mixed = parser.parse("q(x,y):-(r|s-)(x,y)");
+        assertEquals(answers("1,2", "4,3"), evaluator.evaluate(mixed.getHead(), Collections.singleton(mixed)));
+        Query loop = parser.parse("q(x):-t(x,x),s(y,x)");
+        assertEquals(answers("4"), evaluator.evaluate(loop.getHead(), Collections.singleton(loop)));
+        Query holds = parser.parse("q():-r(x,y),s(z,w)");
+        assertEquals(Collections.singleton(Collections.emptyList()),
+                evaluator.evaluate(holds.getHead(), Collections.singleton(holds)));
+        Query fails = parser.parse("q():-r(x,y),s(y,z)");
+        assertEquals(Collections.emptySet(), evaluator.evaluate(fails.getHead(), Collections.singleton(fails)));
+    }
+
+    @Test
+    public void testCycle() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+        Query q = new QueryParserImpl(o).parse("q(x,y):-s*(x,y)");
+        PropertyGraph graph = new PropertyGraph.Builder()
+                .addNode("3", Collections.emptySet())
+                .addRelationship("1", "2", "s")
+                .addRelationship("2", "1", "s")
+                .build();
+
+        // the closure is reflexive and ends although the relationships form a cycle
+        assertEquals(answers("1,1", "1,2", "2,1", "2,2", "3,3"),
+                new EvaluatorImpl(graph).evaluate(q.getHead(), Collections.singleton(q)));
+    }
+
+    @Test
+    public void testRead(@TempDir Path directory) throws IOException {
+        Path nodes = Files.writeString(directory.resolve("nodes.csv"), "id:ID,:LABEL,name\n" +
+                "1,A;B,\"first, node\"\n" +
+                "2,,second\n");
+        Path relationships = Files.writeString(directory.resolve("relationships.csv"), ":START_ID,:END_ID,:TYPE\n" +
+                "1,2,r\n" +
+                "\n" +
+                "2,3,r\n");
+        Path json = Files.writeString(directory.resolve("graph.json"), "{\"nodes\": [" +
+                "{\"id\": 1, \"labels\": [\"A\", \"B\"], \"properties\": {\"name\": \"first, node\"}}, " +
+                "{\"id\": 2, \"labels\": []}], " +
+                "\"relationships\": [{\"start\": 1, \"end\": 2, \"type\": \"r\"}, " +
+                "{\"start\": 2, \"end\": 3, \"type\": \"r\"}]}");
+
+        for (PropertyGraph graph : Arrays.asList(PropertyGraph.readCsv(nodes, relationships),
+                PropertyGraph.readJson(json))) {
+            assertEquals(3, graph.size());
+            assertEquals(1, graph.getNodes("A").cardinality());
+            assertTrue(graph.getNodes("B").get(graph.getNode("1")));
+            assertTrue(graph.getNodes("C").isEmpty());
+            assertEquals(-1, graph.getNode("4"));
+            PropertyGraph.Adjacency outgoing = graph.getOutgoing("r");
+            assertTrue(outgoing.contains(graph.getNode("2"), graph.getNode("3")));
+            assertFalse(outgoing.contains(graph.getNode("3"), graph.getNode("2")));
+            assertEquals(1, graph.getIncoming("r").getDegree(graph.getNode("3")));
+            assertEquals(0, graph.getOutgoing("s").getDegree(graph.getNode("1")));
+        }
+
+        Files.writeString(relationships, ":START_ID,:END_ID,:TYPE\n1,2\n");
+        assertThrows(IOException.class, () -> PropertyGraph.readCsv(nodes, relationships));
+    }
+
+    private static Set<List<String>> answers(String... answers) {
+        Set<List<String>> set = new HashSet<>();
+        for (String answer : answers) {
+            set.add(Arrays.asList(answer.split(",")));
+        }
+        return set;
+    }
+}
@@ -0,0 +1,56 @@
+package at.tuwien.kbs.evaluation.impl;
+
+import at.tuwien.kbs.evaluation.PropertyGraph;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Binary;
+import at.tuwien.kbs.structure.query.Query;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPathAutomaton {
+
+    @Test
+    public void testStar() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+        Query q = new QueryParserImpl(o).parse("q(x,y):-(r|s-)*(x,y)");
+        // 1 -r-> 2 <-s- 3 -r-> 1 forms a cycle of (r|s-), 4 is only reached by t
+        PropertyGraph graph = new PropertyGraph.Builder()
+                .addRelationship("1", "2", "r")
+                .addRelationship("3", "2", "s")
+                .addRelationship("2", "3", "s")
+                .addRelationship("3", "1", "r")
+                .addRelationship("3", "4", "t")
+                .addNode("5", Collections.emptySet())
+                .build();
+        PathAutomaton automaton = PathAutomaton.star(graph, ((Binary) q.getBody().iterator().next()).getRoles());
+
+        assertEquals(nodes(graph, "1", "2", "3"), automaton.reachable(graph.getNode("1"), true));
+        // from 2 only the inverse of s leads on, which goes to 3
+        assertEquals(nodes(graph, "1", "2", "3"), automaton.reachable(graph.getNode("2"), true));
+        assertEquals(nodes(graph, "4"), automaton.reachable(graph.getNode("4"), true));
+        assertEquals(nodes(graph, "5"), automaton.reachable(graph.getNode("5"), false));
+        assertEquals(nodes(graph, "1", "2", "3"), automaton.reachable(graph.getNode("3"), false));
+
+        // the reachable nodes are searched once
+        assertSame(automaton.reachable(graph.getNode("1"), true), automaton.reachable(graph.getNode("1"), true));
+    }
+
+    private static BitSet nodes(PropertyGraph graph, String... ids) {
+        BitSet nodes = new BitSet();
+        for (String id : List.of(ids)) {
+            nodes.set(graph.getNode(id));
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,50 @@
+package at.tuwien.kbs.generator;
+
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestOntologyGenerator {
+
+    @Test
+    public void testGenerateOntology() throws OWLOntologyCreationException, NotOWL2QLException {
+        OWLOntology generated = new OntologyGenerator(42).depth(4).width(25).properties(8).subProperties(6)
+                .existentials(30).domainRanges(12).generate();
+
+        // 3 levels below the top level with one subclass axiom per concept and 30 existential axioms
+        assertEquals(3 * 25 + 30, generated.getAxiomCount(AxiomType.SUBCLASS_OF));
+        assertEquals(6, generated.getAxiomCount(AxiomType.SUB_OBJECT_PROPERTY));
+        assertEquals(6, generated.getAxiomCount(AxiomType.OBJECT_PROPERTY_DOMAIN));
+        assertEquals(6, generated.getAxiomCount(AxiomType.OBJECT_PROPERTY_RANGE));
+
+        // the generated ontology is in OWL2 QL
+        Ontology o = new OntologyImpl(generated);
+        assertEquals(100, o.getClassMap().size());
+        assertEquals(8, o.getPropertyMap().size());
+        assertTrue(o.getClassMap().containsKey(OntologyGenerator.conceptName(99)));
+    }
+
+    @Test
+    public void testDeterministic() throws OWLOntologyCreationException {
+        OWLOntology o1 = new OntologyGenerator(7).width(50).existentials(100).generate();
+        OWLOntology o2 = new OntologyGenerator(7).width(50).existentials(100).generate();
+        OWLOntology o3 = new OntologyGenerator(8).width(50).existentials(100).generate();
+
+        assertEquals(o1.getAxioms(), o2.getAxioms());
+        assertNotEquals(o1.getAxioms(), o3.getAxioms());
+    }
+
+    @Test
+    public void testNames() {
+        assertEquals("a", OntologyGenerator.letters(0));
+        assertEquals("z", OntologyGenerator.letters(25));
+        assertEquals("ba", OntologyGenerator.letters(26));
+        assertEquals("C_bb", OntologyGenerator.conceptName(27));
+    }
+}
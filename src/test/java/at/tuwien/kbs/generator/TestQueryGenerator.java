@@ -0,0 +1,47 @@
+package at.tuwien.kbs.generator;
+
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.*;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestQueryGenerator {
+
+    @Test
+    public void testGenerateQuery() throws OWLOntologyCreationException, NotOWL2QLException {
+        Ontology o = new OntologyImpl(new OntologyGenerator(1).generate());
+        String queryString = new QueryGenerator(o, 1).conceptAtoms(3).roleAtoms(4).pathAtoms(2)
+                .answerVariables(2).disjuncts(2).generate();
+
+        Query q = new QueryParserImpl(o).parse(queryString);
+
+        assertEquals(9, q.getBody().size(), queryString);
+        assertEquals(3, q.getBody().stream().filter(a -> a instanceof Concepts).count());
+        assertEquals(4, q.getBody().stream().filter(a -> a instanceof Roles).count());
+        assertEquals(2, q.getBody().stream().filter(a -> a instanceof ArbitraryLengthRoles).count());
+        assertEquals(2, q.getHead().size());
+    }
+
+    @Test
+    public void testRewriteGeneratedQuery() throws OWLOntologyCreationException, NotOWL2QLException {
+        Ontology o = new OntologyImpl(new OntologyGenerator(1).generate());
+        Query q = new QueryParserImpl(o).parse(new QueryGenerator(o, 1).conceptAtoms(1).roleAtoms(1).pathAtoms(0)
+                .generate());
+
+        assertFalse(new RewriterImpl().rewrite(q, o).isEmpty());
+    }
+
+    @Test
+    public void testDeterministic() throws OWLOntologyCreationException, NotOWL2QLException {
+        Ontology o = new OntologyImpl(new OntologyGenerator(1).generate());
+
+        assertEquals(new QueryGenerator(o, 3).roleAtoms(5).generate(),
+                new QueryGenerator(o, 3).roleAtoms(5).generate());
+    }
+}
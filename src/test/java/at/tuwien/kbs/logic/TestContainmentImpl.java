@@ -0,0 +1,139 @@
+package at.tuwien.kbs.logic;
+
+import at.tuwien.kbs.logic.impl.ContainmentImpl;
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.structure.query.Variable;
+import at.tuwien.kbs.structure.query.impl.*;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestContainmentImpl {
+
+    @Test
+    public void testContainedCQs() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths2.owl");
+        Containment containment = new ContainmentImpl();
+        OWLClassExpression a = o.getClassMap().get("A");
+        OWLClassExpression b = o.getClassMap().get("B");
+        OWLObjectPropertyExpression r = o.getPropertyMap().get("r");
+
+        // q(x):-A(x),r(x,y),B(y) is contained in q(x):-(A|B)(x),r-(y,x)
+        Query q1 = new QueryImpl(head("x"), new HashSet<>(Arrays.asList(
+                new ConceptsImpl(Collections.singleton(a), new VariableImpl("x")),
+                new RolesImpl(Collections.singleton(r), new VariableImpl("x"), new VariableImpl("y")),
+                new ConceptsImpl(Collections.singleton(b), new VariableImpl("y")))));
+        Query q2 = new QueryImpl(head("x"), new HashSet<>(Arrays.asList(
+                new ConceptsImpl(new HashSet<>(Arrays.asList(a, b)), new VariableImpl("x")),
+                new RolesImpl(Collections.singleton(r.getInverseProperty()), new UnboundVariableImpl("y"),
+                        new VariableImpl("x")))));
+
+        assertTrue(containment.isContained(q1, q2));
+        assertFalse(containment.isContained(q2, q1));
+
+        // the head is mapped position by position: q(y):-A(x),r(x,y),B(y) is not contained in q2
+        Query q3 = new QueryImpl(head("y"), q1.getBody());
+
+        assertFalse(containment.isContained(q3, q2));
+    }
+
+    @Test
+    public void testUnboundVariables() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths2.owl");
+        Containment containment = new ContainmentImpl();
+        OWLObjectPropertyExpression r = o.getPropertyMap().get("r");
+        OWLObjectPropertyExpression s = o.getPropertyMap().get("s");
+
+        // q():-r(_,y),s(y,_) is contained in q():-r(_,_),s(_,_), but not the other way around,
+        // since the unbound variables of q():-r(_,_),s(_,_) are all different
+        Query q1 = new QueryImpl(new LinkedList<>(), new HashSet<>(Arrays.asList(
+                new RolesImpl(Collections.singleton(r), new UnboundVariableImpl("x"), new VariableImpl("y")),
+                new RolesImpl(Collections.singleton(s), new VariableImpl("y"), new UnboundVariableImpl("z")))));
+        Query q2 = new QueryImpl(new LinkedList<>(), new HashSet<>(Arrays.asList(
+                new RolesImpl(Collections.singleton(r), new UnboundVariableImpl("x"), new UnboundVariableImpl("y")),
+                new RolesImpl(Collections.singleton(s), new UnboundVariableImpl("y"), new UnboundVariableImpl("z")))));
+
+        assertTrue(containment.isContained(q1, q2));
+        assertFalse(containment.isContained(q2, q1));
+    }
+
+    @Test
+    public void testArbitraryLengthRoles() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths2.owl");
+        Containment containment = new ContainmentImpl();
+        OWLObjectPropertyExpression r = o.getPropertyMap().get("r");
+        OWLObjectPropertyExpression s = o.getPropertyMap().get("s");
+
+        // q(x,y):-(r|s)*(x,y)
+        Query path = new QueryImpl(head("x", "y"), new HashSet<>(Collections.singleton(
+                new ArbitraryLengthRolesImpl(new HashSet<>(Arrays.asList(r, s)), new VariableImpl("x"),
+                        new VariableImpl("y")))));
+        // q(x,y):-r(x,z),s-(y,z) is the path x -r-> z -s-> y
+        Query q1 = new QueryImpl(head("x", "y"), new HashSet<>(Arrays.asList(
+                new RolesImpl(Collections.singleton(r), new VariableImpl("x"), new VariableImpl("z")),
+                new RolesImpl(Collections.singleton(s.getInverseProperty()), new VariableImpl("y"),
+                        new VariableImpl("z")))));
+        // q(x,x):-r(x,_), the empty path
+        Query q2 = new QueryImpl(head("x", "x"), new HashSet<>(Collections.singleton(
+                new RolesImpl(Collections.singleton(r), new VariableImpl("x"), new UnboundVariableImpl("z")))));
+        // q(x,y):-r(x,z),s(y,z) has the wrong direction
+        Query q3 = new QueryImpl(head("x", "y"), new HashSet<>(Arrays.asList(
+                new RolesImpl(Collections.singleton(r), new VariableImpl("x"), new VariableImpl("z")),
+                new RolesImpl(Collections.singleton(s), new VariableImpl("y"), new VariableImpl("z")))));
+
+        assertTrue(containment.isContained(q1, path));
+        assertTrue(containment.isContained(q2, path));
+        assertFalse(containment.isContained(q3, path));
+        assertFalse(containment.isContained(path, q1));
+    }
+
+    @Test
+    public void testMinimizeRewriting() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths2.owl");
+        Containment containment = new ContainmentImpl();
+
+        // q():-A(x),r*(x,y),B(y)
+        Query q = new QueryImpl(new LinkedList<>(), new HashSet<>(Arrays.asList(
+                new ConceptsImpl(Collections.singleton(o.getClassMap().get("A")), new VariableImpl("x")),
+                new ArbitraryLengthRolesImpl(Collections.singleton(o.getPropertyMap().get("r")),
+                        new VariableImpl("x"), new VariableImpl("y")),
+                new ConceptsImpl(Collections.singleton(o.getClassMap().get("B")), new VariableImpl("y")))));
+
+        Set<Query> all = new RewriterImpl().rewrite(q, o);
+        Set<Query> minimal = new RewriterImpl(containment).rewrite(q, o);
+
+        assertTrue(minimal.size() < all.size());
+        // every dropped query is contained in one of the remaining ones
+        for (Query dropped : all) {
+            assertTrue(minimal.stream().anyMatch(m -> containment.isContained(dropped, m)));
+        }
+        // the remaining queries are not contained in each other
+        for (Query m1 : minimal) {
+            for (Query m2 : minimal) {
+                assertTrue(m1 == m2 || !containment.isContained(m1, m2));
+            }
+        }
+    }
+
+    private static List<Variable> head(String... names) {
+        List<Variable> head = new LinkedList<>();
+        for (String name : names) {
+            head.add(new VariableImpl(name));
+        }
+        return head;
+    }
+}
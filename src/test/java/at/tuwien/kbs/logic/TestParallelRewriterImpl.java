@@ -0,0 +1,68 @@
+package at.tuwien.kbs.logic;
+
+import at.tuwien.kbs.logic.impl.ParallelRewriterImpl;
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.structure.query.impl.*;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestParallelRewriterImpl {
+
+    @Test
+    public void testSameAsSequential() throws OWLOntologyCreationException, NotOWL2QLException {
+        // load ontology
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+
+        Set<String> sequential = canonicalForms(new RewriterImpl().rewrite(query(o), o));
+        Set<String> parallel = canonicalForms(new ParallelRewriterImpl(4, false, null).rewrite(query(o), o));
+
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testDeterministic() throws OWLOntologyCreationException, NotOWL2QLException {
+        // load ontology
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+
+        List<String> first = new ArrayList<>();
+        new ParallelRewriterImpl(4, true, null).rewrite(query(o), o).forEach(q -> first.add(q.toString()));
+
+        for (int i = 0; i < 5; i++) {
+            List<String> next = new ArrayList<>();
+            new ParallelRewriterImpl(4, true, null).rewrite(query(o), o).forEach(q -> next.add(q.toString()));
+            assertEquals(first, next);
+        }
+    }
+
+    private static Query query(Ontology o) {
+        // q(x):-t(y,z1),s*(z1,z2),r(z2,x)
+        return new QueryImpl(new LinkedList<>(Collections.singleton(new VariableImpl("x"))),
+                new HashSet<>(Arrays.asList(
+                        new RolesImpl(
+                                new HashSet<>(Collections.singleton(o.getPropertyMap().get("t"))),
+                                new VariableImpl("y"), new VariableImpl("z1")),
+                        new ArbitraryLengthRolesImpl(
+                                new HashSet<>(Collections.singleton(o.getPropertyMap().get("s"))),
+                                new VariableImpl("z1"), new VariableImpl("z2")),
+                        new RolesImpl(
+                                new HashSet<>(Collections.singleton(o.getPropertyMap().get("r"))),
+                                new VariableImpl("z2"), new VariableImpl("x"))
+                )));
+    }
+
+    private static Set<String> canonicalForms(Set<Query> queries) {
+        return queries.stream().map(Query::getCanonicalForm).collect(Collectors.toSet());
+    }
+}
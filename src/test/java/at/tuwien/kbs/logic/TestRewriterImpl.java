@@ -169,7 +169,8 @@ public class TestRewriterImpl {
 
         Q = rewriter.rewrite(q, o);
 
-        assertEquals(11, Q.size());
+        // queries that are equal up to renaming the fresh variables are only counted once
+        assertEquals(9, Q.size());
     }
 
     @Test
@@ -198,7 +199,8 @@ public class TestRewriterImpl {
 
         Q = rewriter.rewrite(q, o);
 
-        assertEquals(12, Q.size());
+        // queries that are equal up to renaming the fresh variables are only counted once
+        assertEquals(10, Q.size());
     }
 
     @Test
@@ -227,6 +229,7 @@ public class TestRewriterImpl {
 
         Q = rewriter.rewrite(q, o);
 
-        assertEquals(14, Q.size());
+        // queries that are equal up to renaming the fresh variables are only counted once
+        assertEquals(12, Q.size());
     }
 }
@@ -0,0 +1,87 @@
+package at.tuwien.kbs.logic;
+
+import at.tuwien.kbs.generator.OntologyGenerator;
+import at.tuwien.kbs.generator.QueryGenerator;
+import at.tuwien.kbs.logic.impl.ParallelRewriterImpl;
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Query;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRewritingBudget {
+
+    private static final String QUERY = "q(x):-t(y,z),s*(z,w),r(w,x)";
+
+    @Test
+    public void testLimits() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+
+        List<Rewriter> rewriters = Arrays.asList(new RewriterImpl(), new ParallelRewriterImpl(4, false, null),
+                new ParallelRewriterImpl(4, true, null));
+        for (Rewriter rewriter : rewriters) {
+            RewritingResult complete = rewriter.rewrite(parse(o), o, RewritingBudget.unlimited());
+            assertTrue(complete.isComplete());
+            assertNull(complete.getExceeded());
+            assertEquals(rewriter.rewrite(parse(o), o).size(), complete.getQueries().size());
+
+            RewritingResult result = rewriter.rewrite(parse(o), o, new RewritingBudget().maxQueries(3));
+            assertEquals(RewritingBudget.Limit.QUERIES, result.getExceeded());
+            assertEquals(3, result.getQueries().size());
+
+            result = rewriter.rewrite(parse(o), o, new RewritingBudget().maxRounds(1));
+            assertEquals(RewritingBudget.Limit.ROUNDS, result.getExceeded());
+            assertTrue(result.getQueries().size() < complete.getQueries().size());
+
+            // the budget is checked before the input query is expanded
+            result = rewriter.rewrite(parse(o), o, new RewritingBudget().timeout(Duration.ZERO));
+            assertEquals(RewritingBudget.Limit.TIMEOUT, result.getExceeded());
+            assertEquals(1, result.getQueries().size());
+
+            RewritingBudget cancelled = new RewritingBudget();
+            cancelled.cancel();
+            result = rewriter.rewrite(parse(o), o, cancelled);
+            assertEquals(RewritingBudget.Limit.CANCELLED, result.getExceeded());
+            assertEquals(1, result.getQueries().size());
+        }
+    }
+
+    @Test
+    public void testCancel() throws OWLOntologyCreationException, NotOWL2QLException {
+        // a rewriting that takes more than a second
+        Ontology o = new OntologyImpl(new OntologyGenerator(20220401L).depth(5).width(300).properties(30)
+                .subProperties(30).existentials(300).domainRanges(150).generate());
+        Query query = new QueryParserImpl(o).parse(new QueryGenerator(o, 20220401L)
+                .conceptAtoms(2).roleAtoms(1).pathAtoms(1).generate());
+
+        RewritingBudget budget = new RewritingBudget();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            executor.schedule(budget::cancel, 50, TimeUnit.MILLISECONDS);
+            RewritingResult result = new RewriterImpl().rewrite(query, o, budget);
+            assertFalse(result.isComplete());
+            assertEquals(RewritingBudget.Limit.CANCELLED, result.getExceeded());
+            assertFalse(result.getQueries().isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Query parse(Ontology o) {
+        return new QueryParserImpl(o).parse(QUERY);
+    }
+}
@@ -0,0 +1,67 @@
+package at.tuwien.kbs.logic;
+
+import at.tuwien.kbs.logic.impl.ParallelRewriterImpl;
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.logic.impl.RewritingMetrics;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Query;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRewritingMetrics {
+
+    @Test
+    public void testMetrics() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+
+        RewritingMetrics metrics = new RewritingMetrics();
+        Rewriter rewriter = new RewriterImpl();
+        rewriter.addListener(metrics);
+        Set<Query> rewritings = rewriter.rewrite(new QueryParserImpl(o).parse("q(x):-t(y,z),s*(z,w),r(w,x)"), o);
+
+        // every query but the input query is added in one of the rounds, the last round adds nothing
+        String json = metrics.toJson();
+        assertTrue(json.contains("\"rewritings\": " + rewritings.size() + ","));
+        assertTrue(metrics.getRounds() > 1);
+        assertTrue(json.contains("{\"round\": " + metrics.getRounds() + ", \"frontier\": "));
+        assertTrue(json.endsWith("\"added\": 0}\n  ]\n}\n"));
+        long produced = Arrays.stream(RewritingRule.values()).mapToLong(metrics::getProduced).sum();
+        assertTrue(metrics.getProduced(RewritingRule.CONCATENATE) > 0);
+        assertTrue(metrics.getProduced(RewritingRule.DROP) > 0);
+        assertTrue(produced >= rewritings.size() - 1 + metrics.getDuplicates());
+    }
+
+    @Test
+    public void testParallelMetrics() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+        String query = "q(x):-t(y,z),s*(z,w),r(w,x)";
+
+        RewritingMetrics sequential = new RewritingMetrics();
+        Rewriter rewriter = new RewriterImpl();
+        rewriter.addListener(sequential);
+        rewriter.rewrite(new QueryParserImpl(o).parse(query), o);
+
+        RewritingMetrics parallel = new RewritingMetrics();
+        rewriter = new ParallelRewriterImpl(4, false, null);
+        rewriter.addListener(parallel);
+        rewriter.rewrite(new QueryParserImpl(o).parse(query), o);
+
+        // the rounds do not depend on the number of threads
+        assertEquals(sequential.getRounds(), parallel.getRounds());
+        assertEquals(sequential.getDuplicates(), parallel.getDuplicates());
+        for (RewritingRule rule : RewritingRule.values()) {
+            assertEquals(sequential.getProduced(rule), parallel.getProduced(rule));
+        }
+    }
+}
@@ -71,6 +71,18 @@ public class TestUnifierImpl {
         assertEquals(new LinkedList<>(
                         List.of(new SubstitutionImpl(new UnboundVariableImpl("y"), new VariableImpl("z")))),
                 unifier.getSubstitutions());
+
+        // chains of substitutions are resolved to one representative
+        t1 = Arrays.asList(new VariableImpl("x"), new VariableImpl("x"), new UnboundVariableImpl("u"));
+        t2 = Arrays.asList(new VariableImpl("y"), new VariableImpl("z"), new VariableImpl("y"));
+
+        unifier = new UnifierImpl(t1, t2);
+
+        assertEquals(new LinkedList<>(
+                        Arrays.asList(new SubstitutionImpl(new VariableImpl("x"), new VariableImpl("z")),
+                                new SubstitutionImpl(new VariableImpl("y"), new VariableImpl("z")),
+                                new SubstitutionImpl(new UnboundVariableImpl("u"), new VariableImpl("z")))),
+                unifier.getSubstitutions());
     }
 
     @Test
@@ -0,0 +1,82 @@
+package at.tuwien.kbs.server;
+
+import at.tuwien.kbs.cache.impl.RewritingCacheImpl;
+import at.tuwien.kbs.logic.RewritingBudget;
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.Vocabulary;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.translation.impl.CypherTranslator;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestRewritingServer {
+
+    @Test
+    public void testRewrite() throws OWLOntologyCreationException, NotOWL2QLException, IOException,
+            InterruptedException {
+        File resourcesDirectory = new File("src/test/resources");
+        Map<String, Ontology> ontologies = new HashMap<>();
+        ontologies.put("paths1", new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl"));
+        ontologies.put("paths2", new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths2.owl"));
+        RewritingServer server = new RewritingServer(ontologies, RewriterImpl::new, new CypherTranslator(),
+                new RewritingCacheImpl(), "cypher", 2, RewritingBudget.unlimited());
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        try {
+            String queryString = "q(x):-t(y,z),s*(z,w),r(w,x)";
+            Ontology o = ontologies.get("paths1");
+            Query query = new QueryParserImpl(o).parse(queryString);
+            Set<Query> rewritings = new RewriterImpl().rewrite(query, o);
+            Set<String> expected = new HashSet<>(Arrays.asList(
+                    new CypherTranslator().translate(query.getHead(), rewritings).split("\nunion\n")));
+
+            // the second request is answered from the cache
+            for (int i = 0; i < 2; i++) {
+                HttpResponse<String> response = post(server, "/rewrite?ontology=paths1", queryString);
+                assertEquals(200, response.statusCode());
+                assertEquals(expected, new HashSet<>(Arrays.asList(response.body().split("\nunion\n"))));
+            }
+
+            // unknown names are rejected, not added to the vocabulary
+            int classes = Vocabulary.getInstance().getClassCount();
+            assertEquals(400, post(server, "/rewrite?ontology=paths1", "q(x):-Posted(x)").statusCode());
+            assertEquals(400, post(server, "/rewrite?ontology=paths1", "q(x):-posted(x,y)").statusCode());
+            assertEquals(classes, Vocabulary.getInstance().getClassCount());
+
+            assertEquals(404, post(server, "/rewrite?ontology=other", queryString).statusCode());
+            // the ontology must be given if several are loaded
+            assertEquals(404, post(server, "/rewrite", queryString).statusCode());
+            assertEquals(405, HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(uri(server, "/rewrite?ontology=paths1")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static HttpResponse<String> post(RewritingServer server, String path, String body)
+            throws IOException, InterruptedException {
+        return HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(uri(server, path)).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(RewritingServer server, String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
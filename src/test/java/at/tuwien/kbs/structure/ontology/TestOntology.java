@@ -2,13 +2,22 @@ package at.tuwien.kbs.structure.ontology;
 
 import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
 import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.query.Atom;
+import at.tuwien.kbs.structure.query.impl.ConceptsImpl;
+import at.tuwien.kbs.structure.query.impl.RolesImpl;
+import at.tuwien.kbs.structure.query.impl.UnboundVariableImpl;
+import at.tuwien.kbs.structure.query.impl.VariableImpl;
 import org.junit.jupiter.api.Test;
 import org.semanticweb.owlapi.model.*;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestOntology {
     @Test
@@ -57,4 +66,63 @@ public class TestOntology {
         h.add(o.getClassMap().get("FacultyMember"));
         assertEquals(subclasses, h);
     }
+
+    @Test
+    public void testAxiomIndex() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        OntologyImpl o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/university.owl");
+
+        // Assistant_Prof \ISA Professor, \exists teaches \ISA Professor
+        assertEquals(2, o.getAxiomsForClass(o.getClassMap().get("Professor")).size());
+        // \exists teaches- \ISA Course
+        assertEquals(1, o.getAxiomsForClass(o.getClassMap().get("Course")).size());
+        assertEquals(0, o.getAxiomsForClass(o.getClassMap().get("Student")).size());
+        // Professor \ISA \exists teaches
+        assertEquals(1, o.getAxiomsForProperty(o.getPropertyMap().get("teaches")).size());
+        assertEquals(0, o.getAxiomsForProperty(o.getPropertyMap().get("teaches").getInverseProperty()).size());
+
+        // every axiom that is applicable to an atom must be a candidate for the atom
+        for (Atom a : Arrays.asList(
+                new ConceptsImpl(new HashSet<>(Collections.singleton(o.getClassMap().get("Professor"))),
+                        new VariableImpl("x")),
+                new RolesImpl(new HashSet<>(Collections.singleton(o.getPropertyMap().get("teaches"))),
+                        new VariableImpl("x"), new UnboundVariableImpl("y")),
+                new RolesImpl(new HashSet<>(Collections.singleton(o.getPropertyMap().get("teaches")
+                        .getInverseProperty())), new UnboundVariableImpl("x"), new VariableImpl("y")))) {
+            Set<OWLAxiom> applicable = new HashSet<>();
+            for (OWLAxiom I : o.getAxioms()) {
+                if (a.applicable(I)) {
+                    applicable.add(I);
+                }
+            }
+            assertTrue(applicable.size() > 0);
+            assertTrue(a.getCandidateAxioms(o).containsAll(applicable));
+        }
+    }
+
+    @Test
+    public void testHierarchyClosures() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        OntologyImpl o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/university.owl");
+
+        assertEquals(new HashSet<>(Arrays.asList(o.getClassMap().get("Professor"),
+                o.getClassMap().get("Assistant_Prof"))), o.getSubConcepts(o.getClassMap().get("Professor")));
+        assertEquals(Collections.singleton(o.getClassMap().get("Course")),
+                o.getSubConcepts(o.getClassMap().get("Course")));
+        // teaches is the inverse of taughtBy
+        assertEquals(new HashSet<>(Arrays.asList(o.getPropertyMap().get("teaches"),
+                o.getPropertyMap().get("taughtBy").getInverseProperty())),
+                o.getSubRoles(o.getPropertyMap().get("teaches")));
+
+        o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/subroles.owl");
+
+        // t \ISA r \ISA s
+        assertEquals(new HashSet<>(Arrays.asList(o.getPropertyMap().get("r"), o.getPropertyMap().get("s"),
+                o.getPropertyMap().get("t"))), o.getSubRoles(o.getPropertyMap().get("s")));
+        assertEquals(new HashSet<>(Arrays.asList(o.getPropertyMap().get("r").getInverseProperty(),
+                o.getPropertyMap().get("t").getInverseProperty())),
+                o.getSubRoles(o.getPropertyMap().get("r").getInverseProperty()));
+        assertEquals(new HashSet<>(Arrays.asList(o.getPropertyMap().get("r"), o.getPropertyMap().get("t"))),
+                o.getSubProperties(o.getPropertyMap().get("r")));
+    }
 }
@@ -0,0 +1,53 @@
+package at.tuwien.kbs.structure.ontology;
+
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestVocabulary {
+
+    @Test
+    public void testInverseRoles() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/subroles.owl");
+        Vocabulary vocabulary = Vocabulary.getInstance();
+
+        OWLObjectPropertyExpression r = o.getPropertyMap().get("r");
+        int id = vocabulary.getRoleId(r);
+
+        assertEquals(0, id % 2);
+        assertEquals(id + 1, vocabulary.getRoleId(r.getInverseProperty()));
+        assertEquals(r.getInverseProperty(), vocabulary.getRole(Vocabulary.inverse(id)));
+
+        Set<OWLObjectPropertyExpression> roles = new HashSet<>(Arrays.asList(r, o.getPropertyMap().get("s"),
+                o.getPropertyMap().get("t").getInverseProperty()));
+        Set<OWLObjectPropertyExpression> inverses = new HashSet<>(Arrays.asList(r.getInverseProperty(),
+                o.getPropertyMap().get("s").getInverseProperty(), o.getPropertyMap().get("t")));
+
+        assertEquals(vocabulary.encodeRoles(inverses), Vocabulary.inverse(vocabulary.encodeRoles(roles)));
+        assertEquals(roles, vocabulary.decodeRoles(vocabulary.encodeRoles(roles)));
+    }
+
+    @Test
+    public void testContainsAll() {
+        BitSet set = new BitSet();
+        set.set(1);
+        set.set(70);
+        BitSet subset = new BitSet();
+        subset.set(70);
+
+        assertTrue(Vocabulary.containsAll(set, subset));
+        assertTrue(Vocabulary.containsAll(set, new BitSet()));
+        assertFalse(Vocabulary.containsAll(subset, set));
+    }
+}
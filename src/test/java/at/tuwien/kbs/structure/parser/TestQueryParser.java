@@ -1,6 +1,7 @@
 package at.tuwien.kbs.structure.parser;
 
 import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.Vocabulary;
 import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
 import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
 import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
@@ -13,8 +14,14 @@ import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class TestQueryParser {
 
@@ -231,4 +238,57 @@ public class TestQueryParser {
         assertEquals(q1, q);
     }
 
+    @Test
+    public void testUnknownClass() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/university.owl");
+        int axioms = o.getOntology().getAxiomCount();
+
+        Query q = new QueryParserImpl(o).parse("q(x):-Unknown(x)");
+
+        List<Variable> head = new LinkedList<>();
+        head.add(new VariableImpl("x"));
+        HashSet<Atom> body = new HashSet<>();
+        body.add(new ConceptsImpl(Collections.singleton(o.lookupClass("Unknown")), new VariableImpl("x")));
+
+        assertEquals(new QueryImpl(head, body), q);
+        // the ontology is not modified
+        assertEquals(axioms, o.getOntology().getAxiomCount());
+        assertFalse(o.getClassMap().containsKey("Unknown"));
+
+        // a strict parser rejects unknown names before they get an id
+        int classes = Vocabulary.getInstance().getClassCount();
+        QueryParserImpl strict = new QueryParserImpl(o, true);
+        assertThrows(IllegalArgumentException.class, () -> strict.parse("q(x):-Missing(x)"));
+        assertThrows(IllegalArgumentException.class, () -> strict.parse("q(x):-unknown(x,y)"));
+        assertEquals(classes, Vocabulary.getInstance().getClassCount());
+    }
+
+    @Test
+    public void testConcurrentParsing() throws OWLOntologyCreationException, NotOWL2QLException,
+            InterruptedException, ExecutionException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/university.owl");
+        QueryParserImpl queryParser = new QueryParserImpl(o);
+        List<String> queryStrings = Arrays.asList("q(x):-Assistant_Prof(x),Professor(y)",
+                "q(x,y):-(Assistant_Prof|Professor)(x),teaches(x,y)", "q(x):-Unknown(x)", "q():-Professor(x)");
+        List<Query> expected = new ArrayList<>();
+        for (String queryString : queryStrings) {
+            expected.add(queryParser.parse(queryString));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Query>> futures = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                String queryString = queryStrings.get(i % queryStrings.size());
+                futures.add(executor.submit(() -> queryParser.parse(queryString)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(expected.get(i % queryStrings.size()), futures.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -19,6 +19,7 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestConceptsImpl {
     @Test
@@ -162,4 +163,21 @@ public class TestConceptsImpl {
                         new VariableImpl("y"), new UnboundVariableImpl("v2")))), rewritten);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSaturateSharedIds() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/university.owl");
+        ConceptsImpl c1 = new ConceptsImpl(new HashSet<>(Collections.singleton(o.getClassMap().get("Professor"))),
+                new VariableImpl("x"));
+        // the rewriter builds atoms from the ids of other atoms
+        ConceptsImpl c2 = new ConceptsImpl(c1.getConceptIds(), new VariableImpl("x"));
+        int hash = c2.hashCode();
+
+        c1.saturate(o);
+
+        assertTrue(c1.getConceptIds().cardinality() > 1);
+        assertEquals(1, c2.getConceptIds().cardinality());
+        assertEquals(hash, c2.hashCode());
+        assertNotEquals(c1, c2);
+    }
+}
@@ -0,0 +1,73 @@
+package at.tuwien.kbs.structure.query.impl;
+
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.query.Atom;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestInterningFactory {
+
+    @Test
+    public void testInternTerms() {
+        assertSame(InterningFactory.variable("x"), InterningFactory.variable("x"));
+        assertSame(InterningFactory.unboundVariable("x"), InterningFactory.unboundVariable("x"));
+        assertNotSame(InterningFactory.variable("x"), InterningFactory.unboundVariable("x"));
+        assertSame(InterningFactory.variable("x"), InterningFactory.intern(new VariableImpl("x")));
+    }
+
+    @Test
+    public void testInternAtoms() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/subroles.owl");
+        InterningFactory factory = new InterningFactory();
+
+        Atom r1 = factory.intern(new RolesImpl(Collections.singleton(o.getPropertyMap().get("r")),
+                new VariableImpl("x"), new UnboundVariableImpl("z")));
+        Atom r2 = factory.intern(new RolesImpl(Collections.singleton(o.getPropertyMap().get("r")),
+                InterningFactory.variable("x"), InterningFactory.unboundVariable("z")));
+        assertSame(r1, r2);
+
+        // equal, but the unbound variables have different names
+        Atom r3 = factory.intern(new RolesImpl(Collections.singleton(o.getPropertyMap().get("r")),
+                new VariableImpl("x"), new UnboundVariableImpl("y")));
+        assertEquals(r1, r3);
+        assertNotSame(r1, r3);
+
+        // same roles and terms, but different kind of atom
+        Atom r4 = factory.intern(new ArbitraryLengthRolesImpl(Collections.singleton(o.getPropertyMap().get("r")),
+                new VariableImpl("x"), new UnboundVariableImpl("z")));
+        assertNotSame(r1, r4);
+
+        assertEquals(3, factory.size());
+    }
+
+    @Test
+    public void testEqualityClass() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/subroles.owl");
+        RolesImpl r1 = new RolesImpl(Collections.singleton(o.getPropertyMap().get("r")),
+                new VariableImpl("x"), new UnboundVariableImpl("z"));
+        // the inverse, with another name of the unbound variable
+        RolesImpl r2 = new RolesImpl(Collections.singleton(o.getPropertyMap().get("r").getInverseProperty()),
+                new UnboundVariableImpl("y"), new VariableImpl("x"));
+        RolesImpl r3 = new RolesImpl(Collections.singleton(o.getPropertyMap().get("r")),
+                new VariableImpl("x"), new VariableImpl("z"));
+
+        assertEquals(r1, r2);
+        assertEquals(r1.hashCode(), r2.hashCode());
+        assertSame(InterningFactory.equalityClass(r1, r1.hashCode()), InterningFactory.equalityClass(r2, r2.hashCode()));
+        assertNotEquals(r1, r3);
+
+        // saturation adds the sub-role t of r, the atom is then in another class
+        r1.saturate(o);
+        assertNotEquals(r1, r2);
+        assertEquals(new RolesImpl(r1.getRoleIds(), new VariableImpl("x"), new UnboundVariableImpl("y")), r1);
+    }
+}
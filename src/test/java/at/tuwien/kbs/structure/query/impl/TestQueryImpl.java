@@ -3,15 +3,19 @@ package at.tuwien.kbs.structure.query.impl;
 import at.tuwien.kbs.structure.ontology.Ontology;
 import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
 import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.query.Atom;
 import at.tuwien.kbs.structure.query.Query;
 import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 public class TestQueryImpl {
 
@@ -73,4 +77,73 @@ public class TestQueryImpl {
 
         assertEquals(1, queries.size());
     }
+
+    @Test
+    public void testCanonicalForm() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/subroles.owl");
+        OWLObjectPropertyExpression r = o.getPropertyMap().get("r");
+
+        // q(x):-r(x,y),r(y,z),r(z,x) and q(x):-r(x,v2),r-(v1,v2),r(v1,x)
+        Query q1 = new QueryImpl(new LinkedList<>(Collections.singletonList(new VariableImpl("x"))),
+                new HashSet<>(Arrays.asList(
+                        new RolesImpl(Collections.singleton(r), new VariableImpl("x"), new VariableImpl("y")),
+                        new RolesImpl(Collections.singleton(r), new VariableImpl("y"), new VariableImpl("z")),
+                        new RolesImpl(Collections.singleton(r), new VariableImpl("z"), new VariableImpl("x")))));
+        Query q2 = new QueryImpl(new LinkedList<>(Collections.singletonList(new VariableImpl("x"))),
+                new HashSet<>(Arrays.asList(
+                        new RolesImpl(Collections.singleton(r), new VariableImpl("x"), new VariableImpl("v2")),
+                        new RolesImpl(Collections.singleton(r.getInverseProperty()), new VariableImpl("v1"),
+                                new VariableImpl("v2")),
+                        new RolesImpl(Collections.singleton(r), new VariableImpl("v1"), new VariableImpl("x")))));
+
+        assertNotEquals(q1, q2);
+        assertEquals(q1.getCanonicalForm(), q2.getCanonicalForm());
+        // renamed canonically, both queries are written the same
+        assertEquals(q1.getCanonicalQuery(), q2.getCanonicalQuery());
+        assertEquals(q1.getCanonicalQuery().toString(), q2.getCanonicalQuery().toString());
+
+        // head variables are not renamed: q(y):-r(x,y),r(y,z),r(z,x)
+        Query q3 = new QueryImpl(new LinkedList<>(Collections.singletonList(new VariableImpl("y"))),
+                new HashSet<>(q1.getBody()));
+
+        assertNotEquals(q1.getCanonicalForm(), q3.getCanonicalForm());
+
+        // q(x):-r(x,y),r(y,z),r(x,z) is not a cycle
+        Query q4 = new QueryImpl(new LinkedList<>(Collections.singletonList(new VariableImpl("x"))),
+                new HashSet<>(Arrays.asList(
+                        new RolesImpl(Collections.singleton(r), new VariableImpl("x"), new VariableImpl("y")),
+                        new RolesImpl(Collections.singleton(r), new VariableImpl("y"), new VariableImpl("z")),
+                        new RolesImpl(Collections.singleton(r), new VariableImpl("x"), new VariableImpl("z")))));
+
+        assertNotEquals(q1.getCanonicalForm(), q4.getCanonicalForm());
+    }
+
+    @Test
+    public void testSymmetricCanonicalForm() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/subroles.owl");
+        OWLObjectPropertyExpression r = o.getPropertyMap().get("r");
+        int k = 12;
+
+        // q(x):-r(x,y1),r(y1,z1),...,r(x,yk),r(yk,zk), whose branches are interchangeable
+        Set<Atom> body = new HashSet<>();
+        Set<Atom> renamed = new HashSet<>();
+        for (int i = 1; i <= k; i++) {
+            body.add(new RolesImpl(Collections.singleton(r), new VariableImpl("x"), new VariableImpl("y" + i)));
+            body.add(new RolesImpl(Collections.singleton(r), new VariableImpl("y" + i), new VariableImpl("z" + i)));
+            renamed.add(new RolesImpl(Collections.singleton(r), new VariableImpl("x"),
+                    new VariableImpl("b" + (k + 1 - i))));
+            renamed.add(new RolesImpl(Collections.singleton(r.getInverseProperty()),
+                    new VariableImpl("a" + i), new VariableImpl("b" + (k + 1 - i))));
+        }
+        Query q1 = new QueryImpl(new LinkedList<>(Collections.singletonList(new VariableImpl("x"))), body);
+        Query q2 = new QueryImpl(new LinkedList<>(Collections.singletonList(new VariableImpl("x"))), renamed);
+
+        // the automorphisms prune the k! orderings of the branches, which could not be searched in time
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertEquals(q1.getCanonicalForm(), q2.getCanonicalForm());
+            assertEquals(q1.getCanonicalQuery(), q2.getCanonicalQuery());
+        });
+    }
 }
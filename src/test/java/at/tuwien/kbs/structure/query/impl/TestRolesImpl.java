@@ -49,6 +49,23 @@ public class TestRolesImpl {
         assertEquals(r1, r2);
     }
 
+    @Test
+    public void testHashUnboundVariables() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/subroles.owl");
+
+        // unbound variables hash by name, but are anonymous as terms of an atom
+        assertNotEquals(new UnboundVariableImpl("y").hashCode(), new UnboundVariableImpl("z").hashCode());
+
+        Roles r1 = new RolesImpl(Collections.singleton(o.getPropertyMap().get("r")),
+                new VariableImpl("x"), new UnboundVariableImpl("z"));
+        Roles r2 = new RolesImpl(Collections.singleton(o.getPropertyMap().get("r").getInverseProperty()),
+                new UnboundVariableImpl("y"), new VariableImpl("x"));
+
+        assertEquals(r1, r2);
+        assertEquals(r1.hashCode(), r2.hashCode());
+    }
+
     @Test
     public void testUnequalRoles() throws OWLOntologyCreationException, NotOWL2QLException {
         File resourcesDirectory = new File("src/test/resources");
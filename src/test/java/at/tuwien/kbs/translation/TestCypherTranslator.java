@@ -1,23 +1,30 @@
 package at.tuwien.kbs.translation;
 
 import at.tuwien.kbs.logic.Rewriter;
+import at.tuwien.kbs.logic.RewritingBudget;
+import at.tuwien.kbs.logic.impl.ParallelRewriterImpl;
 import at.tuwien.kbs.logic.impl.RewriterImpl;
 import at.tuwien.kbs.structure.ontology.Ontology;
 import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
 import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
 import at.tuwien.kbs.structure.query.Query;
 import at.tuwien.kbs.structure.query.Variable;
 import at.tuwien.kbs.structure.query.impl.*;
 import at.tuwien.kbs.translation.impl.CypherTranslator;
+import at.tuwien.kbs.translation.impl.FactorisedCypherTranslator;
 import com.google.errorprone.annotations.Var;
 import org.eclipse.rdf4j.model.vocabulary.OWL;
 import org.junit.jupiter.api.Test;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.*;
+import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TestCypherTranslator {
 
@@ -217,4 +224,61 @@ public class TestCypherTranslator {
 
     }
 
+    @Test
+    public void testStreaming() throws OWLOntologyCreationException, NotOWL2QLException, IOException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+        String queryString = "q(x):-t(y,z),s*(z,w),r(w,x)";
+        Translator translator = new CypherTranslator();
+
+        for (Rewriter rewriter : Arrays.asList(new RewriterImpl(), new ParallelRewriterImpl(4, false, null),
+                new ParallelRewriterImpl(4, true, null))) {
+            Set<String> expected = new RewriterImpl().rewrite(new QueryParserImpl(o).parse(queryString), o).stream()
+                    .map(Query::getCanonicalForm)
+                    .collect(Collectors.toSet());
+
+            // the translation is written while the rewriting goes on
+            Query q = new QueryParserImpl(o).parse(queryString);
+            List<Query> streamed = new ArrayList<>();
+            StringWriter writer = new StringWriter();
+            RewritingBudget.Limit exceeded;
+            try (TranslationWriter translation = translator.open(q.getHead(), writer)) {
+                exceeded = rewriter.rewrite(q, o, RewritingBudget.unlimited(), translation.andThen(streamed::add));
+            }
+
+            assertNull(exceeded);
+            assertEquals(expected.size(), streamed.size());
+            assertEquals(expected, streamed.stream().map(Query::getCanonicalForm).collect(Collectors.toSet()));
+            assertEquals(new HashSet<>(Arrays.asList(translator.translate(q.getHead(), new HashSet<>(streamed))
+                            .split("\nunion\n"))),
+                    new HashSet<>(Arrays.asList(writer.toString().split("\nunion\n"))));
+        }
+    }
+
+    @Test
+    public void testDeterministic() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths2.owl");
+        String queryString = "q(xa,xb):-t*(xb,xa),(r|s)*(xc,xa),(s|t)(xd,xc),(t|s)(xc,xe),C(xe),(C|B)(xa)";
+
+        // the rewriters name the fresh variables differently, and keep apart different variants of rewritings
+        // whose head variables are unified, e.g. q(xb,xb):-t(xb,xb) and q(xa,xa):-t(xa,xa)
+        Query q = new QueryParserImpl(o).parse(queryString);
+        List<Set<Query>> rewritings = Arrays.asList(new RewriterImpl().rewrite(q, o),
+                new ParallelRewriterImpl(2, true, null).rewrite(q, o),
+                new ParallelRewriterImpl(4, true, null).rewrite(q, o),
+                new ParallelRewriterImpl(4, false, null).rewrite(q, o));
+
+        for (Translator translator : Arrays.asList(new CypherTranslator(true), new FactorisedCypherTranslator(true))) {
+            String translation = translator.translate(q.getHead(), rewritings.get(0));
+            for (Set<Query> r : rewritings) {
+                assertEquals(translation, translator.translate(q.getHead(), r));
+            }
+            assertTrue(translation.startsWith("// fingerprint "));
+            assertNotEquals(translation, translator.translate(q.getHead(), Collections.singleton(q)));
+        }
+        // the variants are translated once
+        String translation = new CypherTranslator(true).translate(q.getHead(), rewritings.get(0));
+        assertTrue(translation.split("\nunion\n").length < rewritings.get(0).size());
+    }
 }
@@ -0,0 +1,83 @@
+package at.tuwien.kbs.translation;
+
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.translation.impl.CypherTranslator;
+import at.tuwien.kbs.translation.impl.FactorisedCypherTranslator;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFactorisedCypherTranslator {
+
+    @Test
+    public void testSharedAtom() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/university.owl");
+        QueryParserImpl parser = new QueryParserImpl(o);
+        Query q1 = parser.parse("q(x):-teaches(x,y),Course(y)");
+        Query q2 = parser.parse("q(x):-teaches(x,y),Professor(x)");
+        Query q3 = parser.parse("q(x):-Assistant_Prof(x)");
+
+        String translation = new FactorisedCypherTranslator().translate(q1.getHead(),
+                new LinkedHashSet<>(Arrays.asList(q1, q2, q3)));
+
+        assertEquals("match (x)-[:teaches]->(y)\n" +
+                "call {\n" +
+                "with x, y\n" +
+                "match (y)\n" +
+                "where (y:Course)\n" +
+                "return x as answer1\n" +
+                "union\n" +
+                "with x\n" +
+                "match (x)\n" +
+                "where (x:Professor)\n" +
+                "return x as answer1\n" +
+                "}\n" +
+                "return distinct answer1 as x\n" +
+                "union\n" +
+                "match (x)\n" +
+                "where (x:Assistant_Prof)\n" +
+                "return distinct x as x", translation);
+    }
+
+    @Test
+    public void testRewriting() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+        Query q = new QueryParserImpl(o).parse("q(x):-t(y,z),s*(z,w),r(w,x)");
+        Set<Query> rewritings = new RewriterImpl().rewrite(q, o);
+
+        String flat = new CypherTranslator().translate(q.getHead(), rewritings);
+        String factorised = new FactorisedCypherTranslator().translate(q.getHead(), rewritings);
+
+        assertTrue(factorised.contains("call {"));
+        // the shared atoms are matched once instead of once per rewriting
+        assertTrue(factorised.split("\nmatch |^match ").length < flat.split("\nmatch |^match ").length);
+        // all rewritings are kept, either as a branch of a subquery or as a query of their own
+        assertEquals(rewritings.size(), factorised.split("\nunion\n").length);
+    }
+
+    @Test
+    public void testNothingShared() throws OWLOntologyCreationException, NotOWL2QLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/university.owl");
+        QueryParserImpl parser = new QueryParserImpl(o);
+        Query q1 = parser.parse("q(x):-teaches(x,y)");
+        Query q2 = parser.parse("q(x):-Professor(x)");
+        Set<Query> queries = new HashSet<>(Arrays.asList(q1, q2));
+
+        assertEquals(new HashSet<>(Arrays.asList(
+                        new CypherTranslator().translate(q1.getHead(), queries).split("\nunion\n"))),
+                new HashSet<>(Arrays.asList(
+                        new FactorisedCypherTranslator().translate(q1.getHead(), queries).split("\nunion\n"))));
+    }
+}
@@ -0,0 +1,133 @@
+package at.tuwien.kbs.translation;
+
+import at.tuwien.kbs.logic.impl.RewriterImpl;
+import at.tuwien.kbs.structure.ontology.Ontology;
+import at.tuwien.kbs.structure.ontology.exception.NotOWL2QLException;
+import at.tuwien.kbs.structure.ontology.impl.OntologyImpl;
+import at.tuwien.kbs.structure.parser.impl.QueryParserImpl;
+import at.tuwien.kbs.structure.query.Query;
+import at.tuwien.kbs.translation.impl.SqlTranslator;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.io.File;
+import java.sql.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSqlTranslator {
+
+    @Test
+    public void testRewriting() throws OWLOntologyCreationException, NotOWL2QLException, SQLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+        Query q = new QueryParserImpl(o).parse("q(x):-t(y,z),s*(z,w),r(w,x)");
+        Set<Query> rewritings = new RewriterImpl().rewrite(q, o);
+
+        try (Connection connection = graph(new int[][]{{7}, {8}},
+                new String[][]{{"7", "A"}},
+                new String[][]{{"1", "2", "t"}, {"2", "3", "s"}, {"3", "4", "r"}, {"5", "6", "r"}, {"9", "10", "s"}})) {
+            // 4 is reached by the path, 6 and 7 are implied by the ontology
+            Set<String> expected = new HashSet<>(Arrays.asList("4", "6", "7"));
+            String flat = new SqlTranslator().translate(q.getHead(), rewritings);
+            String shared = new SqlTranslator(true).translate(q.getHead(), rewritings);
+            assertTrue(flat.startsWith("with recursive "));
+            assertEquals(expected, answers(connection, flat));
+            assertEquals(expected, answers(connection, shared));
+            // every atom is defined once
+            assertTrue(shared.length() < flat.length());
+        }
+    }
+
+    @Test
+    public void testInverseRoles() throws OWLOntologyCreationException, NotOWL2QLException, SQLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+        QueryParserImpl parser = new QueryParserImpl(o);
+        Query inverse = parser.parse("q(x,y):-s-(x,y)");
+        Query mixed = parser.parse("q(x,y):-(r|s-)(x,y)");
+
+        try (Connection connection = graph(new int[0][],
+                new String[0][],
+                new String[][]{{"1", "2", "r"}, {"3", "4", "s"}, {"5", "6", "t"}})) {
+            for (boolean share : new boolean[]{false, true}) {
+                SqlTranslator translator = new SqlTranslator(share);
+                assertEquals(Collections.singleton("4,3"), answers(connection,
+                        translator.translate(inverse.getHead(), Collections.singleton(inverse))));
+                assertEquals(new HashSet<>(Arrays.asList("1,2", "4,3")), answers(connection,
+                        translator.translate(mixed.getHead(), Collections.singleton(mixed))));
+            }
+        }
+    }
+
+    @Test
+    public void testCycle() throws OWLOntologyCreationException, NotOWL2QLException, SQLException {
+        File resourcesDirectory = new File("src/test/resources");
+        Ontology o = new OntologyImpl(resourcesDirectory.getAbsolutePath() + "/paths1.owl");
+        Query q = new QueryParserImpl(o).parse("q(x,y):-s*(x,y)");
+
+        try (Connection connection = graph(new int[][]{{3}},
+                new String[0][],
+                new String[][]{{"1", "2", "s"}, {"2", "1", "s"}})) {
+            // the closure is reflexive and ends although the edges form a cycle
+            assertEquals(new HashSet<>(Arrays.asList("1,1", "1,2", "2,1", "2,2", "3,3")), answers(connection,
+                    new SqlTranslator().translate(q.getHead(), Collections.singleton(q))));
+        }
+    }
+
+    /**
+     * Create a graph in an embedded database, all nodes of the labels and edges are added to the nodes.
+     */
+    private static Connection graph(int[][] nodes, String[][] labels, String[][] edges) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table " + SqlTranslator.NODES + "(id varchar primary key)");
+            statement.execute("create table " + SqlTranslator.LABELS + "(node varchar, label varchar)");
+            statement.execute("create table " + SqlTranslator.EDGES + "(source varchar, target varchar, type varchar)");
+        }
+        Set<String> ids = new TreeSet<>();
+        Arrays.stream(nodes).forEach(n -> ids.add(String.valueOf(n[0])));
+        insert(connection, SqlTranslator.LABELS, labels);
+        Arrays.stream(labels).forEach(l -> ids.add(l[0]));
+        insert(connection, SqlTranslator.EDGES, edges);
+        Arrays.stream(edges).forEach(e -> ids.addAll(Arrays.asList(e[0], e[1])));
+        insert(connection, SqlTranslator.NODES, ids.stream().map(id -> new String[]{id}).toArray(String[][]::new));
+        return connection;
+    }
+
+    private static void insert(Connection connection, String table, String[][] rows) throws SQLException {
+        if (rows.length == 0) {
+            return;
+        }
+        String parameters = String.join(", ", Collections.nCopies(rows[0].length, "?"));
+        try (PreparedStatement statement = connection.prepareStatement(
+                "insert into " + table + " values (" + parameters + ")")) {
+            for (String[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    statement.setString(i + 1, row[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Evaluate a query, each answer is written as its values separated by commas.
+     */
+    private static Set<String> answers(Connection connection, String sql) throws SQLException {
+        Set<String> answers = new HashSet<>();
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            int columns = result.getMetaData().getColumnCount();
+            while (result.next()) {
+                StringJoiner answer = new StringJoiner(",");
+                for (int i = 1; i <= columns; i++) {
+                    answer.add(result.getString(i));
+                }
+                answers.add(answer.toString());
+            }
+        }
+        return answers;
+    }
+}